@@ -4,6 +4,12 @@ import VariablesManegment.Variable;
 import VariablesManegment.SymbolsTable;
 import VariablesManegment.Variable.Type; // נניח שיש Enum של טייפים
 import errors.ValidationException;
+import parser.ListTokenizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A validator that checks the validity
@@ -20,7 +26,15 @@ import errors.ValidationException;
  */
 public class ConditionValidator {
 
+    /** Upper bound on cached conditions; the cache is cleared once it is reached. */
+    private static final int MAX_CACHED_CONDITIONS = 512;
+
     private final SymbolsTable symbolsTable;
+    private final ListTokenizer tokenizer = new ListTokenizer();
+    /** Conditions that already validated, keyed by their text. */
+    private final Map<String, ValidatedCondition> validatedConditions = new HashMap<>();
+    /** Variables referenced by the condition currently being validated. */
+    private final List<Variable> referencedVariables = new ArrayList<>();
 
     /**
      * Constructs a ConditionValidator with a given SymbolsTable.
@@ -31,12 +45,20 @@ public class ConditionValidator {
         this.symbolsTable = symbolsTable;
     }
 
+    /**
+     * Forgets the validated conditions, so no variable of a previous file stays reachable.
+     * The cache keeps its capacity for the next file.
+     */
+    public void reset() {
+        validatedConditions.clear();
+    }
+
     /**
      * Validates whether the given condition string is syntactically and semantically correct.
      *
      * <p>The condition is checked for the following:
      *  - It should not be empty or null.
-     *  - It should be split correctly by logical operators (&&, ||).
+     *  - It should be split correctly by logical operators (&&, ||), with no empty operand.
      *  - Each sub-condition should be a valid boolean expression,
      *  numeric constant, or a valid initialized variable.
      *
@@ -48,24 +70,30 @@ public class ConditionValidator {
             throw new ValidationException("Empty or null condition is invalid.");
         }
 
-        // Split the condition into sub-conditions by logical operators
-        String[] subConditions = condition.split("(&&|\\|\\|)");
-
-        // Basic check: if the array is empty, there were invalid operators (e.g., leading or trailing operators).
-        if (subConditions.length == 0) {
-            throw new ValidationException("Invalid condition syntax (possibly leading/trailing operators).");
+        ValidatedCondition cached = validatedConditions.get(condition);
+        if (cached != null && cached.isStillValid(symbolsTable.getBindingVersion())) {
+            return;
         }
 
-        // Validate each sub-condition
-        for (String subCond : subConditions) {
-            String trimmed = subCond.trim();
-            if (trimmed.isEmpty()) {
+        // Split the condition into sub-conditions by logical operators
+        referencedVariables.clear();
+        tokenizer.resetLogical(condition);
+        while (tokenizer.next()) {
+            if (tokenizer.isTokenEmpty()) {
                 // Empty sub-condition means there were consecutive operators or an operator at the start or end
                 throw new ValidationException("Invalid syntax: empty sub-condition (consecutive operators?)");
             }
-            validateSingleCondition(trimmed);
+            Variable var = validateSingleCondition(tokenizer.token());
+            if (var != null) {
+                referencedVariables.add(var);
+            }
         }
 
+        if (validatedConditions.size() >= MAX_CACHED_CONDITIONS) {
+            validatedConditions.clear();
+        }
+        validatedConditions.put(condition,
+                new ValidatedCondition(symbolsTable.getBindingVersion(), referencedVariables));
     }
 
     /**
@@ -75,17 +103,18 @@ public class ConditionValidator {
      *  3) It must be an initialized variable of type boolean, int, or double.
      *
      * @param cond The single condition (sub-expression) to validate.
+     * @return the referenced variable, or {@code null} if the condition is a literal.
      * @throws ValidationException if the condition is invalid.
      */
-    private void validateSingleCondition(String cond) throws ValidationException {
+    private Variable validateSingleCondition(String cond) throws ValidationException {
         // 1. Check for boolean literals (true/false)
         if (cond.equals("true") || cond.equals("false")) {
-            return; // valid
+            return null; // valid
         }
 
         // 2. Check if it's a numeric literal (positive or negative, also supports Double).
         if (isNumericLiteral(cond)) {
-            return; // valid
+            return null; // valid
         }
 
         // 3. If it's not a literal, check if it's an initialized variable with the appropriate type (boolean/int/double).
@@ -101,6 +130,7 @@ public class ConditionValidator {
             throw new ValidationException("Variable '" + cond + "' is not boolean or numeric.");
         }
         // If we reached here, the condition is valid
+        return var;
     }
 
     /**
@@ -129,4 +159,58 @@ public class ConditionValidator {
     private boolean isNumericType(Type type) {
         return (type == Type.INT || type == Type.DOUBLE);
     }
+
+    /**
+     * A condition that passed validation, together with what its validity depends on:
+     * the binding version of the symbol table and the type and initialization state
+     * of every variable it references.
+     */
+    private static final class ValidatedCondition {
+        private final long bindingVersion;
+        private final Variable[] variables;
+        private final int[] states;
+
+        /**
+         * Records a validated condition.
+         *
+         * @param bindingVersion the binding version the condition was validated under
+         * @param variables      the variables referenced by the condition
+         */
+        ValidatedCondition(long bindingVersion, List<Variable> variables) {
+            this.bindingVersion = bindingVersion;
+            this.variables = variables.toArray(new Variable[0]);
+            this.states = new int[this.variables.length];
+            for (int i = 0; i < this.variables.length; i++) {
+                states[i] = stateOf(this.variables[i]);
+            }
+        }
+
+        /**
+         * Checks whether the recorded validation still holds.
+         *
+         * @param currentBindingVersion the current binding version of the symbol table
+         * @return {@code true} if no binding, type or initialization state the condition depends on changed
+         */
+        boolean isStillValid(long currentBindingVersion) {
+            if (bindingVersion != currentBindingVersion) {
+                return false;
+            }
+            for (int i = 0; i < variables.length; i++) {
+                if (states[i] != stateOf(variables[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Encodes the parts of a variable a condition depends on.
+         *
+         * @param var the variable
+         * @return its type ordinal and initialization flag packed into an int
+         */
+        private static int stateOf(Variable var) {
+            return (var.getType().ordinal() << 1) | (var.isInitialized() ? 1 : 0);
+        }
+    }
 }
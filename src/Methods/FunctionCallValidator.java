@@ -3,15 +3,16 @@ package Methods;
 import VariablesManegment.Variable;
 import VariablesManegment.VariableValidator;
 import errors.ValidationException;
-import java.util.List;
 import java.util.Map;
+import parser.ListTokenizer;
 
 /**
  * A class responsible for validating function calls.
  */
 public class FunctionCallValidator {
-    private final Map<String, MethodData> methods;
+    private MethodSignatureTable signatures;
     private final VariableValidator variableValidator;
+    private final ListTokenizer tokenizer = new ListTokenizer();
 
     /**
      * Constructs a new {@code FunctionCallValidator} with the specified methods and variable validator.
@@ -22,10 +23,48 @@ public class FunctionCallValidator {
      */
     public FunctionCallValidator
             (Map<String, MethodData> methods, VariableValidator variableValidator) throws Exception {
-        this.methods = methods;
+        this(MethodSignatureTable.of(methods), variableValidator);
+    }
+
+    /**
+     * Constructs a new {@code FunctionCallValidator} over a prebuilt signature table.
+     *
+     * @param signatures the signature table of all methods in the program
+     * @param variableValidator the variable validator to use for validating function call arguments
+     */
+    public FunctionCallValidator(MethodSignatureTable signatures, VariableValidator variableValidator) {
+        this.signatures = signatures;
         this.variableValidator = variableValidator;
     }
 
+    /**
+     * Replaces the signature table, so this validator can check the calls of another file.
+     *
+     * @param signatures the signature table of all methods in the next program
+     */
+    public void reset(MethodSignatureTable signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Returns the signatures of the methods calls are checked against.
+     *
+     * @return the signature table
+     */
+    MethodSignatureTable getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Resolves the name of a called function to its ID in the signature table.
+     *
+     * @param functionName the name of the called function
+     * @return the method ID, or {@link MethodSignatureTable#UNKNOWN_METHOD} if no such method exists
+     */
+    public int resolveFunction(String functionName) {
+        return signatures.resolve(functionName);
+    }
+
     /**
      * Validates the given function call with the specified function name and arguments.
      *
@@ -39,23 +78,37 @@ public class FunctionCallValidator {
      * @throws ValidationException if the function call is invalid
      */
     public void validateFunctionCall(String functionName, String arguments) throws ValidationException {
-        MethodData methodData = methods.get(functionName);
-        if (methodData==null) {
+        int methodId = signatures.resolve(functionName);
+        if (methodId == MethodSignatureTable.UNKNOWN_METHOD) {
             throw new IllegalStateException("Function not found: " + functionName);
         }
-        List<Variable> expectedParams = methodData.getMethodParameters();
-        String[] providedArgs = arguments.isEmpty() ? new String[0] : arguments.split(",");
+        validateFunctionCall(methodId, arguments);
+    }
 
-        if (providedArgs.length != expectedParams.size()) {
-            throw new IllegalStateException("Parameter count mismatch for function: " + functionName);
+    /**
+     * Validates a call to an already resolved method.
+     *
+     * <p>The arity and the parameter types are read from the signature table,
+     * so no {@link MethodData} or {@link Variable} is touched per call.
+     *
+     * @param methodId the ID of the called method, as returned by {@link #resolveFunction(String)}
+     * @param arguments the arguments to validate
+     * @throws ValidationException if the function call is invalid
+     */
+    public void validateFunctionCall(int methodId, String arguments) throws ValidationException {
+        int providedCount = 0;
+        if (!arguments.isEmpty()) {
+            providedCount = tokenizer.reset(arguments, ',').countTokens();
         }
 
-        for (int i = 0; i < providedArgs.length; i++) {
-            String providedArg = providedArgs[i].trim();
-            Variable parameter = expectedParams.get(i);
-            Variable.Type expectedType = parameter.getType();
+        if (providedCount != signatures.getArity(methodId)) {
+            throw new IllegalStateException("Parameter count mismatch for function: "
+                    + signatures.getMethodName(methodId));
+        }
 
-            variableValidator.parseAndValidateValue(providedArg, expectedType);
+        for (int i = 0; i < providedCount; i++) {
+            tokenizer.next();
+            variableValidator.validateValue(tokenizer.token(), signatures.getParameterType(methodId, i));
         }
     }
 
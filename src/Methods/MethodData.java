@@ -15,6 +15,7 @@ public class MethodData {
     private final String methodName;
     private final List<Variable> methodParameters;
     private final List<String> body;
+    private int[] callTargets;
     /**
      * Constructs a new MethodData instance.
      *
@@ -47,6 +48,25 @@ public class MethodData {
     public List<Variable> getMethodParameters() {
         return methodParameters;
     }
+    /**
+     * Retrieves the resolved call targets of the body, one entry per body line.
+     *
+     * @return the method ID called on each line, or {@code null} if call sites were not resolved yet
+     */
+    public int[] getCallTargets() {
+        return callTargets;
+    }
+
+    /**
+     * Stores the resolved call targets of the body.
+     *
+     * @param callTargets the method ID called on each body line
+     *                    ({@link MethodSignatureTable#UNKNOWN_METHOD} for lines without a resolved call)
+     */
+    public void setCallTargets(int[] callTargets) {
+        this.callTargets = callTargets;
+    }
+
     /**
      * Retrieves the name of the method.
      *
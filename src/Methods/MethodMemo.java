@@ -0,0 +1,307 @@
+package Methods;
+
+import VariablesManegment.SymbolsTable;
+import VariablesManegment.Variable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers method bodies that validated successfully, so an identical method met again in the
+ * same batch or worker, under an equivalent environment, is not validated twice.
+ *
+ * <p>The key of a method is its parameter list, its trimmed body, and a fingerprint of every name
+ * the body mentions: the type, final flag, initialization state and value of the global variable
+ * of that name, and the parameter types of the method of that name. Whatever the body can observe
+ * is thus part of the key. A method may still change the globals it assigns, so the state of those
+ * globals after validation is stored with the entry and replayed on a hit.</p>
+ *
+ * <p>The memo is bounded by the total length of its keys. Each entry counts its hits, and when the
+ * memo is full a sample of entries is drawn at random positions and the least used one is evicted.
+ * Each time as many entries have been evicted as the memo holds, every count is halved, so old
+ * popularity fades. The entry just stored is never its own victim. Failed validations are never stored. One memo is safe to share
+ * between threads.</p>
+ */
+public final class MethodMemo {
+    /** Default bound on the total key length, in characters. */
+    public static final long DEFAULT_MAX_CHARS = 8L * 1024 * 1024;
+    /** Number of entries examined to pick each eviction victim. */
+    private static final int EVICTION_SAMPLE = 8;
+    /** Key separator, never part of a trimmed s-Java line. */
+    private static final char SEPARATOR = '\0';
+    private static final char ABSENT = '-';
+
+    /**
+     * A method about to be validated: its key, and the globals its body mentions.
+     */
+    public static final class Lookup {
+        private final String key;
+        private final Variable[] globals;
+
+        private Lookup(String key, Variable[] globals) {
+            this.key = key;
+            this.globals = globals;
+        }
+    }
+
+    /**
+     * A method that validated successfully, with the state it left its globals in.
+     */
+    private static final class Entry {
+        private final boolean[] initialized;
+        private final Object[] values;
+        private final AtomicInteger frequency = new AtomicInteger();
+        /** Position of the key in {@link #slots}, guarded by the memo. */
+        private int slot;
+
+        private Entry(boolean[] initialized, Object[] values) {
+            this.initialized = initialized;
+            this.values = values;
+        }
+    }
+
+    private final long maxChars;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Every stored key, in no particular order, so eviction can sample at random; guarded by this. */
+    private final List<String> slots = new ArrayList<>();
+    /** Evictions since the counts were last halved; guarded by this. */
+    private int evictionsSinceAging;
+    private final AtomicLong usedChars = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new {@code MethodMemo}.
+     *
+     * @param maxChars the bound on the total length of the keys, in characters
+     */
+    public MethodMemo(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Builds the key of a method in its current environment. Must be called before the method's
+     * scope is opened, so the names of the body resolve to globals only.
+     *
+     * @param methodData   the method
+     * @param symbolsTable the symbol table, holding the globals
+     * @param signatures   the signatures of the methods of the file
+     * @return the lookup to pass to {@link #replay(Lookup)} and {@link #record(Lookup)}
+     */
+    public Lookup prepare(MethodData methodData, SymbolsTable symbolsTable, MethodSignatureTable signatures) {
+        StringBuilder key = new StringBuilder();
+        for (Variable parameter : methodData.getMethodParameters()) {
+            key.append(parameter.getType().ordinal()).append(parameter.isFinal() ? 'f' : ' ')
+                    .append(parameter.getName()).append(',');
+        }
+        List<String> body = methodData.getBody();
+        List<String> trimmed = new ArrayList<>(body.size());
+        for (String line : body) {
+            String trimmedLine = line.trim();
+            trimmed.add(trimmedLine);
+            key.append(SEPARATOR).append(trimmedLine);
+        }
+        key.append(SEPARATOR);
+
+        Set<String> names = new HashSet<>();
+        List<Variable> globals = new ArrayList<>();
+        for (String line : trimmed) {
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (!Character.isLetter(c) && c != '_') {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < line.length() && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_')) {
+                    i++;
+                }
+                String name = line.substring(start, i);
+                if (names.add(name)) {
+                    appendEnvironment(key, name, symbolsTable, signatures, globals);
+                }
+            }
+        }
+        return new Lookup(key.toString(), globals.toArray(new Variable[0]));
+    }
+
+    /**
+     * Appends what a name resolves to outside the method: a global variable, a method, or neither.
+     *
+     * @param key          the key being built
+     * @param name         the name
+     * @param symbolsTable the symbol table, holding the globals
+     * @param signatures   the signatures of the methods of the file
+     * @param globals      receives the global variable of that name, if any
+     */
+    private static void appendEnvironment(StringBuilder key, String name, SymbolsTable symbolsTable,
+                                          MethodSignatureTable signatures, List<Variable> globals) {
+        key.append(name).append('=');
+        Variable global = symbolsTable.getVariable(name);
+        if (global == null) {
+            key.append(ABSENT);
+        } else {
+            globals.add(global);
+            key.append(global.getType().ordinal()).append(global.isFinal() ? 'f' : ' ')
+                    .append(global.isInitialized() ? 'i' : ' ');
+            if (global.hasValue()) {
+                // The value is length-prefixed, so no string value can mimic the rest of the key
+                String value = String.valueOf(global.getValue());
+                key.append(value.length()).append(':').append(value);
+            } else {
+                key.append(ABSENT);
+            }
+        }
+        key.append('/');
+        int methodId = signatures.resolve(name);
+        if (methodId == MethodSignatureTable.UNKNOWN_METHOD) {
+            key.append(ABSENT);
+        } else {
+            for (int i = 0; i < signatures.getArity(methodId); i++) {
+                key.append(signatures.getParameterType(methodId, i).ordinal());
+            }
+        }
+        key.append(';');
+    }
+
+    /**
+     * Looks a method up, and on a hit leaves the globals as validating it would have.
+     *
+     * @param lookup the lookup built by {@link #prepare}
+     * @return {@code true} if the method is known to be valid and need not be validated
+     */
+    public boolean replay(Lookup lookup) {
+        Entry entry = entries.get(lookup.key);
+        if (entry == null) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        entry.frequency.incrementAndGet();
+        for (int i = 0; i < lookup.globals.length; i++) {
+            lookup.globals[i].setInitialized(entry.initialized[i]);
+            lookup.globals[i].setValue(entry.values[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Remembers a method that just validated successfully, with the state it left its globals in.
+     *
+     * @param lookup the lookup built by {@link #prepare} before the method was validated
+     */
+    public void record(Lookup lookup) {
+        if (lookup.key.length() > maxChars) {
+            return;
+        }
+        int count = lookup.globals.length;
+        boolean[] initialized = new boolean[count];
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            initialized[i] = lookup.globals[i].isInitialized();
+            values[i] = lookup.globals[i].getValue();
+        }
+        Entry entry = new Entry(initialized, values);
+        if (entries.putIfAbsent(lookup.key, entry) == null) {
+            store(lookup.key, entry);
+        }
+    }
+
+    /**
+     * Makes a new entry available for sampling and evicts entries if the memo is over its bound.
+     *
+     * @param key   the key of the new entry
+     * @param entry the new entry
+     */
+    private synchronized void store(String key, Entry entry) {
+        entry.slot = slots.size();
+        slots.add(key);
+        if (usedChars.addAndGet(key.length()) > maxChars) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Evicts sampled least-used entries until the memo is back under its bound. Must hold the lock.
+     *
+     * @param kept the key just stored, never evicted
+     */
+    private void evict(String kept) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (usedChars.get() > maxChars && slots.size() > 1) {
+            int victimSlot = -1;
+            int victimFrequency = Integer.MAX_VALUE;
+            for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                int slot = random.nextInt(slots.size());
+                String key = slots.get(slot);
+                if (key.equals(kept)) {
+                    continue;
+                }
+                int frequency = entries.get(key).frequency.get();
+                if (frequency < victimFrequency) {
+                    victimSlot = slot;
+                    victimFrequency = frequency;
+                }
+            }
+            if (victimSlot >= 0) {
+                remove(victimSlot);
+                if (++evictionsSinceAging >= slots.size()) {
+                    age();
+                }
+            }
+        }
+    }
+
+    /**
+     * Halves the count of every entry. Must hold the lock.
+     */
+    private void age() {
+        evictionsSinceAging = 0;
+        for (Entry entry : entries.values()) {
+            entry.frequency.getAndUpdate(f -> f / 2);
+        }
+    }
+
+    /**
+     * Removes the entry at a slot, moving the last slot into its place. Must hold the lock.
+     *
+     * @param slot the slot of the entry to remove
+     */
+    private void remove(int slot) {
+        String victim = slots.get(slot);
+        String last = slots.remove(slots.size() - 1);
+        if (slot < slots.size()) {
+            slots.set(slot, last);
+            entries.get(last).slot = slot;
+        }
+        entries.remove(victim);
+        usedChars.addAndGet(-victim.length());
+    }
+
+    /**
+     * Returns the number of methods found in the memo.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of methods not found in the memo.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -1,11 +1,15 @@
 package Methods;
 
+import errors.ValidationBudget;
+import parser.LineMatchers;
+import parser.LineSyntax;
+
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A parser class that analyzes a list of method lines and classifies them into different types.
- * The class uses regular expressions to identify various elements of
+ * The class uses linear-time line matchers to identify various elements of
  * a method such as variable declarations, assignments,
  * function calls, conditional statements, and return statements.
  *
@@ -27,17 +31,28 @@ import java.util.List;
  */
 public class MethodParser {
 
-    // Regular expressions for line types
-    private static final String VARIABLE_DECLARATION =
-            "^(final\\s+)?(int|double|String|boolean|char)\\s+[a-zA-Z_][a-zA-Z0-9_]*(\\s*=\\s*.+)?;$";
-    private static final String VARIABLE_ASSIGNMENT =
-            "^[a-zA-Z_][a-zA-Z0-9_]*\\s*=\\s*.+;$"; //TODO: check if covers all the options
-    private static final String FUNCTION_CALL = "^[a-zA-Z][a-zA-Z0-9_]*\\s*\\(.*\\)\\s*;$";
-    private static final String CONDITION = "^(if|while)\\s*\\(.*\\)\\s*\\{?$";
-    private static final String END_BLOCK = "^\\}\\s*$";
-    private static final String RETURN_STATEMENT = "^return;$";
+    private static final String RETURN_STATEMENT = "return;";
     private static final int RETURN_STATEMENT_LINE = 2;
 
+    /** The line syntax the lines are classified with. */
+    private final LineSyntax syntax;
+
+    /**
+     * Constructs a parser classifying lines with the default, linear-time syntax.
+     */
+    public MethodParser() {
+        this(LineMatchers.SYNTAX);
+    }
+
+    /**
+     * Constructs a parser classifying lines with the given syntax.
+     *
+     * @param syntax the line syntax to classify the lines with
+     */
+    public MethodParser(LineSyntax syntax) {
+        this.syntax = syntax;
+    }
+
     /**
      * Enum representing different types of lines that can be encountered in a method.
      */
@@ -61,9 +76,10 @@ public class MethodParser {
         List<LineType> lineTypes = new ArrayList<>();
 
         for (int i = 0; i < methodLines.size(); i++) {//without the decleration itself. TODO: magic number
+            ValidationBudget.checkpoint();
             String line = methodLines.get(i).trim();
 
-            if (i == methodLines.size() - RETURN_STATEMENT_LINE && !line.matches(RETURN_STATEMENT)) {
+            if (i == methodLines.size() - RETURN_STATEMENT_LINE && !line.equals(RETURN_STATEMENT)) {
                 throw new IllegalStateException("The second-to-last line must be 'return;': " + line);
             }
 
@@ -76,23 +92,23 @@ public class MethodParser {
 
     /**
      * Classifies a single line of code into one of the predefined
-     * {@link LineType}s based on regular expression matching.
+     * {@link LineType}s using the parser's {@link LineSyntax}.
      *
      * @param line A single line of code to classify.
      * @return The corresponding {@link LineType} for the given line.
      * @throws IllegalStateException if the line does not match any of the recognized patterns.
      */    private LineType classifyLine(String line) {
-        if (line.matches(VARIABLE_DECLARATION)) {
+        if (syntax.isVariableDeclaration(line)) {
             return LineType.VARIABLE_DECLARATION;
-        } else if (line.matches(VARIABLE_ASSIGNMENT)) {
+        } else if (syntax.isVariableAssignment(line)) {
             return LineType.VARIABLE_ASSIGNMENT;
-        } else if (line.matches(FUNCTION_CALL)) {
+        } else if (syntax.isFunctionCall(line)) {
             return LineType.FUNCTION_CALL;
-        } else if (line.matches(CONDITION)) {
+        } else if (syntax.isCondition(line)) {
             return LineType.CONDITION_START;
-        } else if (line.matches(END_BLOCK)) {
+        } else if (syntax.isClosingBrace(line)) {
             return LineType.END_BLOCK;
-        } else if (line.matches(RETURN_STATEMENT)) {
+        } else if (line.equals(RETURN_STATEMENT)) {
             return LineType.RETURN_STATEMENT;
         } else {
             throw new IllegalStateException("Unsupported type of line: " + line);
@@ -0,0 +1,128 @@
+package Methods;
+
+import VariablesManegment.Variable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable table of method signatures, built once after the top-level parse.
+ *
+ * <p>Each method is given a dense integer ID. For every ID the table stores the arity and the
+ * parameter types packed into a single byte array (type ordinals), so checking a call site
+ * only reads arrays instead of walking the {@link MethodData} parameter list.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * MethodSignatureTable table = MethodSignatureTable.of(methods);
+ * int id = table.resolve("foo");
+ * int arity = table.getArity(id);
+ * </pre>
+ */
+public final class MethodSignatureTable {
+    /** Returned by {@link #resolve(String)} when no method has the given name. */
+    public static final int UNKNOWN_METHOD = -1;
+
+    private static final Variable.Type[] TYPES = Variable.Type.values();
+
+    private final Map<String, Integer> ids;
+    private final String[] names;
+    private final int[] arities;
+    private final int[] parameterOffsets;
+    private final byte[] parameterTypes;
+
+    private MethodSignatureTable(Map<String, Integer> ids, String[] names, int[] arities,
+                                 int[] parameterOffsets, byte[] parameterTypes) {
+        this.ids = ids;
+        this.names = names;
+        this.arities = arities;
+        this.parameterOffsets = parameterOffsets;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * Builds the signature table for the given methods.
+     *
+     * @param methods a map of method names to {@link MethodData} objects
+     * @return the immutable signature table
+     */
+    public static MethodSignatureTable of(Map<String, MethodData> methods) {
+        int count = methods.size();
+        int totalParameters = 0;
+        for (MethodData methodData : methods.values()) {
+            totalParameters += methodData.getMethodParameters().size();
+        }
+
+        Map<String, Integer> ids = new HashMap<>(count * 2);
+        String[] names = new String[count];
+        int[] arities = new int[count];
+        int[] offsets = new int[count];
+        byte[] types = new byte[totalParameters];
+
+        int id = 0;
+        int offset = 0;
+        for (MethodData methodData : methods.values()) {
+            List<Variable> parameters = methodData.getMethodParameters();
+            ids.put(methodData.getMethodName(), id);
+            names[id] = methodData.getMethodName();
+            arities[id] = parameters.size();
+            offsets[id] = offset;
+            for (Variable parameter : parameters) {
+                types[offset++] = (byte) parameter.getType().ordinal();
+            }
+            id++;
+        }
+        return new MethodSignatureTable(ids, names, arities, offsets, types);
+    }
+
+    /**
+     * Resolves a method name to its ID.
+     *
+     * @param methodName the name of the method
+     * @return the method ID, or {@link #UNKNOWN_METHOD} if no such method exists
+     */
+    public int resolve(String methodName) {
+        Integer id = ids.get(methodName);
+        return id == null ? UNKNOWN_METHOD : id;
+    }
+
+    /**
+     * Returns the number of parameters of a method.
+     *
+     * @param methodId the method ID
+     * @return the arity of the method
+     */
+    public int getArity(int methodId) {
+        return arities[methodId];
+    }
+
+    /**
+     * Returns the type of one parameter of a method.
+     *
+     * @param methodId the method ID
+     * @param index    the index of the parameter
+     * @return the declared type of the parameter
+     */
+    public Variable.Type getParameterType(int methodId, int index) {
+        return TYPES[parameterTypes[parameterOffsets[methodId] + index]];
+    }
+
+    /**
+     * Returns the name of a method.
+     *
+     * @param methodId the method ID
+     * @return the method name
+     */
+    public String getMethodName(int methodId) {
+        return names[methodId];
+    }
+
+    /**
+     * Returns the number of methods in the table.
+     *
+     * @return the number of methods
+     */
+    public int size() {
+        return names.length;
+    }
+}
@@ -4,6 +4,7 @@
     import VariablesManegment.SymbolsTable;
     import VariablesManegment.Variable;
     import VariablesManegment.VariableValidator;
+    import errors.ValidationBudget;
     import java.util.List;
     import java.util.Map;
 
@@ -25,7 +26,7 @@
          * A map associating method names to their corresponding {@link MethodData} objects.
          * Used to retrieve method parameters and bodies for validation.
          */
-        private final Map<String, MethodData> methods;
+        private Map<String, MethodData> methods;
 
         /** Parser to analyze and categorize lines within method bodies. */
         private final MethodParser methodParser;
@@ -41,6 +42,9 @@
         /** Validator for variable declarations and assignments within methods. */
         private final VariableValidator variableValidator;
 
+        /** Memo of methods already validated, shared across files; {@code null} to validate every method. */
+        private final MethodMemo methodMemo;
+
         /**
          * Constructs a new {@code MethodValidator} with the specified dependencies.
          *
@@ -55,7 +59,50 @@
                                FunctionCallValidator functionCallValidator,
                                ConditionValidator conditionValidator,
                                VariableValidator variableValidator) {
-            this.methodParser = new MethodParser();
+            this(methods, symbolsTable, functionCallValidator, conditionValidator, variableValidator,
+                    new MethodParser());
+        }
+
+        /**
+         * Constructs a new {@code MethodValidator} classifying method bodies with the given parser.
+         *
+         * @param methods                a map of method names to {@link MethodData} objects
+         * @param symbolsTable           the symbol table managing variable scopes
+         * @param functionCallValidator  the validator for function calls
+         * @param conditionValidator     the validator for conditions
+         * @param variableValidator      the validator for variables
+         * @param methodParser           the parser classifying the lines of method bodies
+         */
+        public MethodValidator(Map<String, MethodData> methods,
+                               SymbolsTable symbolsTable,
+                               FunctionCallValidator functionCallValidator,
+                               ConditionValidator conditionValidator,
+                               VariableValidator variableValidator,
+                               MethodParser methodParser) {
+            this(methods, symbolsTable, functionCallValidator, conditionValidator, variableValidator,
+                    methodParser, null);
+        }
+
+        /**
+         * Constructs a new {@code MethodValidator} that skips methods found in a memo.
+         *
+         * @param methods                a map of method names to {@link MethodData} objects
+         * @param symbolsTable           the symbol table managing variable scopes
+         * @param functionCallValidator  the validator for function calls
+         * @param conditionValidator     the validator for conditions
+         * @param variableValidator      the validator for variables
+         * @param methodParser           the parser classifying the lines of method bodies
+         * @param methodMemo             the memo of methods already validated, or {@code null}
+         */
+        public MethodValidator(Map<String, MethodData> methods,
+                               SymbolsTable symbolsTable,
+                               FunctionCallValidator functionCallValidator,
+                               ConditionValidator conditionValidator,
+                               VariableValidator variableValidator,
+                               MethodParser methodParser,
+                               MethodMemo methodMemo) {
+            this.methodParser = methodParser;
+            this.methodMemo = methodMemo;
             this.methods = methods;
             this.symbolsTable = symbolsTable;
             this.functionCallValidator = functionCallValidator;
@@ -63,6 +110,16 @@
             this.variableValidator = variableValidator;
         }
 
+        /**
+         * Replaces the methods to validate, so this validator can validate another file
+         * with the same symbol table and validators.
+         *
+         * @param methods a map of method names to {@link MethodData} objects
+         */
+        public void reset(Map<String, MethodData> methods) {
+            this.methods = methods;
+        }
+
         /**
          * Validates all methods present in the {@code methods} map.
          *
@@ -85,11 +142,22 @@
          *     <li>Iterates through each line, performing validations based on line type.</li>
          *     <li>Ensures all opened scopes are properly closed at the end of the method.</li>
          * </ol>
+         * With a {@link MethodMemo}, a method already validated in an equivalent environment is
+         * skipped, and a method that validates is remembered.
          *
          * @param methodData the {@link MethodData} object representing the method to validate
          * @throws Exception if any validation step fails, such as unmatched braces or invalid lines
          */
         public void validateMethod(MethodData methodData) throws Exception {
+            // 0. Skip a method already validated in an equivalent environment
+            MethodMemo.Lookup lookup = null;
+            if (methodMemo != null) {
+                lookup = methodMemo.prepare(methodData, symbolsTable, functionCallValidator.getSignatures());
+                if (methodMemo.replay(lookup)) {
+                    return;
+                }
+            }
+
             // 1. Open a new scope for method parameters
             symbolsTable.openScope();
             // Add method parameters as local variables
@@ -101,19 +169,23 @@
             // 2. Retrieve the method body and parse line types
             List<String> body = methodData.getBody();
             List<MethodParser.LineType> lineTypes = methodParser.parseMethod(body);
+            int[] callTargets = resolveCallSites(methodData, lineTypes);
 
             int blockDepth = 1; // Counter for nested blocks
 
             // 3. Iterate through each line of the method body
             for (int i = 0; i < body.size(); i++) {
+                ValidationBudget.checkpoint();
                 String line = body.get(i).trim();
                 MethodParser.LineType lineType = lineTypes.get(i);
 
                 switch (lineType) {
                     case FUNCTION_CALL:
                         // 3. Iterate through each line of the method body
-                        functionCallValidator.validateFunctionCall(extractFunctionName(line),
-                                extractArguments(line));
+                        if (callTargets[i] == MethodSignatureTable.UNKNOWN_METHOD) {
+                            throw new IllegalStateException("Function not found: " + extractFunctionName(line));
+                        }
+                        functionCallValidator.validateFunctionCall(callTargets[i], extractArguments(line));
                         break;
 
                     case CONDITION_START:
@@ -151,7 +223,35 @@
             if (blockDepth != 0) {
                 throw new Exception("Unclosed block(s) in method: " + methodData.getMethodName());
             }
+            if (lookup != null) {
+                methodMemo.record(lookup);
+            }
+
+        }
+
 
+        /**
+         * Resolves every function call in the method body to a method ID, once per method.
+         * The result is kept on the {@link MethodData} so later validations reuse it.
+         *
+         * @param methodData the method whose call sites are resolved
+         * @param lineTypes  the parsed type of each body line
+         * @return the called method ID per body line
+         */
+        private int[] resolveCallSites(MethodData methodData, List<MethodParser.LineType> lineTypes) {
+            int[] callTargets = methodData.getCallTargets();
+            if (callTargets != null) {
+                return callTargets;
+            }
+            List<String> body = methodData.getBody();
+            callTargets = new int[body.size()];
+            for (int i = 0; i < callTargets.length; i++) {
+                callTargets[i] = lineTypes.get(i) == MethodParser.LineType.FUNCTION_CALL
+                        ? functionCallValidator.resolveFunction(extractFunctionName(body.get(i).trim()))
+                        : MethodSignatureTable.UNKNOWN_METHOD;
+            }
+            methodData.setCallTargets(callTargets);
+            return callTargets;
         }
 
 
@@ -27,6 +27,29 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
      */
     private Deque<Map<String, Variable>> scopes;
 
+    /**
+     * Emptied maps of closed scopes, reused by {@link #openScope()} so a table validating many
+     * files keeps its grown scope storage.
+     */
+    private final Deque<Map<String, Variable>> spareScopes = new ArrayDeque<>();
+
+    /**
+     * A stack of 64-bit bloom-style filters, one per open scope.
+     * The filter at depth {@code i} holds the bits of every name declared in scopes {@code 0..i},
+     * so the top entry alone answers "may this name be visible?" for the whole stack.
+     */
+    private long[] scopeFilters = new long[INITIAL_FILTER_CAPACITY];
+
+    /**
+     * Incremented whenever the set of visible name-to-variable bindings changes:
+     * when a variable is declared or a scope that declared variables is closed.
+     * Opening or closing an empty scope leaves it unchanged.
+     */
+    private long bindingVersion;
+
+    /** Initial capacity of the filter stack; grows on demand for deeply nested blocks. */
+    private static final int INITIAL_FILTER_CAPACITY = 8;
+
     /**
      * Constructs a new {@code SymbolsTable} and initializes it with a global scope.
      */
@@ -40,7 +63,13 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
      * This new scope becomes the current active scope.
      */
     public void openScope() {
-        scopes.push(new HashMap<>());
+        int depth = scopes.size();
+        if (depth == scopeFilters.length) {
+            scopeFilters = Arrays.copyOf(scopeFilters, depth * 2);
+        }
+        scopeFilters[depth] = depth == 0 ? 0L : scopeFilters[depth - 1];
+        Map<String, Variable> scope = spareScopes.poll();
+        scopes.push(scope != null ? scope : new HashMap<>());
     }
 
     /**
@@ -53,7 +82,34 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
         if (scopes.isEmpty()) {
             throw new IllegalStateException("No scope to close.");
         }
-        scopes.pop();
+        Map<String, Variable> scope = scopes.pop();
+        if (!scope.isEmpty()) {
+            bindingVersion++;
+            scope.clear();
+        }
+        spareScopes.push(scope);
+    }
+
+    /**
+     * Closes every scope and opens an empty global scope, so the table can validate another file.
+     * The binding version keeps increasing, so nothing cached against the old bindings is reused.
+     */
+    public void reset() {
+        while (!scopes.isEmpty()) {
+            closeScope();
+        }
+        bindingVersion++;
+        openScope();
+    }
+
+    /**
+     * Returns the current binding version. Two lookups made under the same version
+     * resolve every name to the same {@link Variable} instance.
+     *
+     * @return the binding version
+     */
+    public long getBindingVersion() {
+        return bindingVersion;
     }
 
 
@@ -79,6 +135,8 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
             throw new Exception("Variable " + var.getName() + " already declared in this scope");
         }
         currentScope.put(var.getName(), var);
+        scopeFilters[scopes.size() - 1] |= filterBits(var.getName());
+        bindingVersion++;
     }
 
     /**
@@ -88,6 +146,9 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
      * @return the {@link Variable} instance if found; {@code null} otherwise
      */
     public Variable getVariable(String varName) {
+        if (!mayContain(varName)) {
+            return null;
+        }
         for (Map<String, Variable> scope : scopes) {
             if (scope.containsKey(varName)) {
                 return scope.get(varName);
@@ -95,6 +156,34 @@ public class SymbolsTable implements Iterable<Map<String, Variable>> {
         }
         return null;
     }
+    /**
+     * Checks the bloom-style filter of the active scope stack.
+     * A {@code false} result means the name is certainly not declared in any active scope;
+     * a {@code true} result means the scopes must be probed.
+     *
+     * @param varName the name of the variable to check
+     * @return {@code false} if the variable is definitely not declared; {@code true} otherwise
+     */
+    public boolean mayContain(String varName) {
+        if (scopes.isEmpty()) {
+            return false;
+        }
+        long bits = filterBits(varName);
+        return (scopeFilters[scopes.size() - 1] & bits) == bits;
+    }
+
+    /**
+     * Computes the two filter bits of a name from its (cached) hash code.
+     *
+     * @param varName the name to hash
+     * @return a mask with up to two bits set
+     */
+    private static long filterBits(String varName) {
+        int hash = varName.hashCode();
+        hash ^= hash >>> 16;
+        return (1L << (hash & 63)) | (1L << ((hash >>> 6) & 63));
+    }
+
     /**
      * Returns an iterator over the scopes in the symbol table.
      *
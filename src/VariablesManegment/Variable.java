@@ -22,16 +22,28 @@ import errors.ValidationException;
             CHAR;
             }
 
+        /** Cached {@link Type#values()} so decoding the flags word does not clone the array. */
+        private static final Type[] TYPES = Type.values();
+        /** Mask of the type ordinal inside the flags word. */
+        private static final int TYPE_MASK = 0x7;
+        /** Flag bit set when the variable is final. */
+        private static final int FINAL_FLAG = 1 << 3;
+        /** Flag bit set when the variable has been initialized. */
+        private static final int INITIALIZED_FLAG = 1 << 4;
+        /** Flag bit set when a value is held in {@link #bits} or {@link #stringValue}. */
+        private static final int HAS_VALUE_FLAG = 1 << 5;
+
         /** The name of the variable. */
         private String name;
-        /** The type of the variable. */
-        private Type type;
-        /** Indicates whether the variable is final. */
-        private boolean isFinal;
-        /** Indicates whether the variable has been initialized. */
-        private boolean isInitialized;
-        /** The value assigned to the variable. */
-        private Object value;
+        /** The type ordinal, finality, initialization and value-presence packed into one word. */
+        private int flags;
+        /**
+         * The value of a primitive variable: the int, the raw bits of the double,
+         * {@code 0}/{@code 1} for a boolean or the char code.
+         */
+        private long bits;
+        /** The value of a {@code String} variable. */
+        private String stringValue;
 
         /**
          * Constructs a new {@code Variable} with the specified attributes.
@@ -45,10 +57,10 @@ import errors.ValidationException;
 
         public Variable(String name, Type type, boolean isFinal, boolean isInitialized, Object value) {
             this.name = name;
-            this.type = type;
-            this.isFinal = isFinal;
-            this.isInitialized = isInitialized;
-            this.value = value;
+            this.flags = type.ordinal()
+                    | (isFinal ? FINAL_FLAG : 0)
+                    | (isInitialized ? INITIALIZED_FLAG : 0);
+            setValue(value);
         }
         /**
          * Constructs a new {@code Variable} by parsing the type from a string.
@@ -62,12 +74,11 @@ import errors.ValidationException;
          */
         public Variable(String name, String typeString, boolean isFinal, boolean isInitialized, Object value)
                 throws ValidationException {
-            Type type = parseType(typeString);
             this.name = name;
-            this.type = type;
-            this.isFinal = isFinal;
-            this.isInitialized = isInitialized;
-            this.value = value;
+            this.flags = parseType(typeString).ordinal()
+                    | (isFinal ? FINAL_FLAG : 0)
+                    | (isInitialized ? INITIALIZED_FLAG : 0);
+            setValue(value);
         }
 
 
@@ -85,25 +96,94 @@ import errors.ValidationException;
          * @return {@code true} if the variable is initialized; {@code false} otherwise
          */
         public boolean isInitialized() {
-            return isInitialized;
+            return (flags & INITIALIZED_FLAG) != 0;
         }
 
         /**
-         * Returns the depth of the scope in which the variable is declared.
+         * Returns the type of the variable.
          *
-         * @return the scope depth
+         * @return the variable's type
          */
         public Type getType() {
-            return type;
+            return TYPES[flags & TYPE_MASK];
+        }
+
+        /**
+         * Indicates whether a value is currently held by the variable.
+         *
+         * @return {@code true} if a value was assigned; {@code false} otherwise
+         */
+        public boolean hasValue() {
+            return (flags & HAS_VALUE_FLAG) != 0;
         }
 
         /**
-         * Returns the value assigned to the variable.
+         * Returns the value assigned to the variable, boxed according to its type.
+         * Validation code should prefer the primitive accessors, which do not allocate.
          *
-         * @return the variable's value
+         * @return the variable's value, or {@code null} if no value is held
          */
         public Object getValue() {
-            return value;
+            if (!hasValue()) {
+                return null;
+            }
+            switch (getType()) {
+                case INT:
+                    return getIntValue();
+                case DOUBLE:
+                    return getDoubleValue();
+                case BOOLEAN:
+                    return getBooleanValue();
+                case CHAR:
+                    return getCharValue();
+                default:
+                    return stringValue;
+            }
+        }
+
+        /**
+         * Returns the value of an {@code int} variable.
+         *
+         * @return the int value
+         */
+        public int getIntValue() {
+            return (int) bits;
+        }
+
+        /**
+         * Returns the value of a {@code double} variable.
+         *
+         * @return the double value
+         */
+        public double getDoubleValue() {
+            return Double.longBitsToDouble(bits);
+        }
+
+        /**
+         * Returns the value of a {@code boolean} variable.
+         *
+         * @return the boolean value
+         */
+        public boolean getBooleanValue() {
+            return bits != 0;
+        }
+
+        /**
+         * Returns the value of a {@code char} variable.
+         *
+         * @return the char value
+         */
+        public char getCharValue() {
+            return (char) bits;
+        }
+
+        /**
+         * Returns the value of a {@code String} variable.
+         *
+         * @return the string value
+         */
+        public String getStringValue() {
+            return stringValue;
         }
 
         /**
@@ -112,7 +192,7 @@ import errors.ValidationException;
          * @return {@code true} if the variable is final; {@code false} otherwise
          */
         public boolean isFinal() {
-            return isFinal;
+            return (flags & FINAL_FLAG) != 0;
         }
         /**
          * Sets the initialization status of the variable.
@@ -120,25 +200,141 @@ import errors.ValidationException;
          * @param initialized {@code true} to mark the variable as initialized; {@code false} otherwise
          */
         public void setInitialized(boolean initialized) {
-            isInitialized = initialized;
+            flags = initialized ? flags | INITIALIZED_FLAG : flags & ~INITIALIZED_FLAG;
         }
 
         /**
-         * Sets the type of the variable.
+         * Sets the type of the variable. A held value is converted to the new type.
          *
          * @param type the new type of the variable
          */
         public void setType(Type type) {
-            this.type = type;
+            Object value = getValue();
+            flags = (flags & ~TYPE_MASK) | type.ordinal();
+            setValue(value);
         }
 
         /**
-         * Sets the value of the variable.
+         * Sets the value of the variable from a boxed object.
+         * Validation code should prefer the primitive setters, which do not box.
          *
-         * @param value the new value to assign to the variable
+         * @param value the new value to assign to the variable, or {@code null} to clear it
          */
         public void setValue(Object value) {
-            this.value = value;
+            if (value == null) {
+                clearValue();
+            } else if (value instanceof String) {
+                setStringValue((String) value);
+            } else if (value instanceof Boolean) {
+                setBooleanValue((Boolean) value);
+            } else if (value instanceof Character) {
+                setCharValue((Character) value);
+            } else if (value instanceof Number) {
+                setDoubleValue(((Number) value).doubleValue());
+            }
+        }
+
+        /**
+         * Assigns an int value, converting it to the variable's type.
+         *
+         * @param value the new value
+         */
+        public void setIntValue(int value) {
+            setDoubleValue(value);
+        }
+
+        /**
+         * Assigns a double value, converting it to the variable's type.
+         *
+         * @param value the new value
+         */
+        public void setDoubleValue(double value) {
+            switch (getType()) {
+                case INT:
+                    bits = (int) value;
+                    break;
+                case DOUBLE:
+                    bits = Double.doubleToRawLongBits(value);
+                    break;
+                case BOOLEAN:
+                    bits = value != 0 ? 1 : 0;
+                    break;
+                case CHAR:
+                    bits = (char) value;
+                    break;
+                default:
+                    clearValue();
+                    return;
+            }
+            flags |= HAS_VALUE_FLAG;
+        }
+
+        /**
+         * Assigns a boolean value.
+         *
+         * @param value the new value
+         */
+        public void setBooleanValue(boolean value) {
+            bits = value ? 1 : 0;
+            flags |= HAS_VALUE_FLAG;
+        }
+
+        /**
+         * Assigns a char value.
+         *
+         * @param value the new value
+         */
+        public void setCharValue(char value) {
+            bits = value;
+            flags |= HAS_VALUE_FLAG;
+        }
+
+        /**
+         * Assigns a string value.
+         *
+         * @param value the new value
+         */
+        public void setStringValue(String value) {
+            stringValue = value;
+            flags |= HAS_VALUE_FLAG;
+        }
+
+        /**
+         * Copies the value held by another variable into this one without boxing,
+         * converting numeric values to this variable's type.
+         *
+         * @param source the variable to copy the value from
+         */
+        public void copyValueFrom(Variable source) {
+            if (!source.hasValue()) {
+                clearValue();
+                return;
+            }
+            switch (source.getType()) {
+                case INT:
+                    setIntValue(source.getIntValue());
+                    break;
+                case DOUBLE:
+                    setDoubleValue(source.getDoubleValue());
+                    break;
+                case BOOLEAN:
+                    setBooleanValue(source.getBooleanValue());
+                    break;
+                case CHAR:
+                    setCharValue(source.getCharValue());
+                    break;
+                default:
+                    setStringValue(source.getStringValue());
+            }
+        }
+
+        /**
+         * Clears the held value.
+         */
+        private void clearValue() {
+            bits = 0;
+            stringValue = null;
+            flags &= ~HAS_VALUE_FLAG;
         }
         /**
          * Parses a type from its string representation.
@@ -175,10 +371,10 @@ import errors.ValidationException;
             public String toString() {
                 return "Variable{" +
                         "name='" + name + '\'' +
-                        ", type=" + type +
-                        ", isFinal=" + isFinal +
-                        ", isInitialized=" + isInitialized +
-                        ", value=" + value +
+                        ", type=" + getType() +
+                        ", isFinal=" + isFinal() +
+                        ", isInitialized=" + isInitialized() +
+                        ", value=" + getValue() +
                         '}';
             }
 
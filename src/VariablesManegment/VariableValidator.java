@@ -1,10 +1,13 @@
 package VariablesManegment;
 
 import java.util.*;
-import java.util.regex.*;
 
 import VariablesManegment.Variable.Type;
+import errors.ValidationBudget;
 import errors.ValidationException;
+import parser.LineMatchers;
+import parser.LineSyntax;
+import parser.ListTokenizer;
 
 /**
  * Validates and manages variable declarations and assignments within different scopes.
@@ -25,9 +28,12 @@ public class VariableValidator {
     /** Symbol table managing variable scopes and declarations. */
     private final SymbolsTable symbolsTable;
 
-    /** Pattern to validate variable names following specific naming conventions. */
-    private static final Pattern VARIABLE_NAME_PATTERN =
-            Pattern.compile("^[a-zA-Z]|^_[a-zA-Z][a-zA-Z0-9_]*|^[a-zA-Z][a-zA-Z0-9_]*$");
+    /** Quote-aware tokenizer splitting multi-variable lines on commas. */
+    private final ListTokenizer tokenizer = new ListTokenizer();
+
+    /** The syntax names and literals are checked with. */
+    private final LineSyntax syntax;
+
 
     /**
      * Constructs a new {@code VariableValidator} and processes a list of global variable declarations.
@@ -37,9 +43,45 @@ public class VariableValidator {
      * @throws Exception if any variable declaration is invalid or causes a conflict
      */
     public VariableValidator(List<String> globalVariables,SymbolsTable symbolsTable) throws Exception {
+        this(globalVariables, symbolsTable, LineMatchers.SYNTAX);
+    }
+
+    /**
+     * Constructs a new {@code VariableValidator} checking names and literals with the given syntax,
+     * and processes a list of global variable declarations.
+     *
+     * @param globalVariables a list of strings representing global variable declarations
+     * @param symbolsTable    the symbol table to manage variable scopes and declarations
+     * @param syntax          the syntax to check names and literals with
+     * @throws Exception if any variable declaration is invalid or causes a conflict
+     */
+    public VariableValidator(List<String> globalVariables, SymbolsTable symbolsTable, LineSyntax syntax)
+            throws Exception {
+        this(symbolsTable, syntax);
+        declareGlobals(globalVariables);
+    }
 
+    /**
+     * Constructs a new {@code VariableValidator} checking names and literals with the given syntax,
+     * without declaring any globals yet; see {@link #declareGlobals(List)}.
+     *
+     * @param symbolsTable the symbol table to manage variable scopes and declarations
+     * @param syntax       the syntax to check names and literals with
+     */
+    public VariableValidator(SymbolsTable symbolsTable, LineSyntax syntax) {
         this.symbolsTable = symbolsTable;
+        this.syntax = syntax;
+    }
+
+    /**
+     * Processes a list of global variable declarations into the current scope of the symbol table.
+     *
+     * @param globalVariables a list of strings representing global variable declarations
+     * @throws Exception if any variable declaration is invalid or causes a conflict
+     */
+    public void declareGlobals(List<String> globalVariables) throws Exception {
         for (String line: globalVariables){
+            ValidationBudget.checkpoint();
             handleDeclarationOrAssignment(line);
         }
     }
@@ -94,12 +136,11 @@ public class VariableValidator {
      * @throws Exception if any declaration or assignment is invalid or causes a conflict
      */
     private List<Variable> getResultVariables(String line, String typeStr, boolean isFinal) throws Exception {
-        String[] declarations = line.split(",");
-
         List<Variable> resultVariables = new ArrayList<>();
 
-        for (String decl : declarations) {
-            assignOrDeclareVariables(typeStr, isFinal, decl, resultVariables);
+        tokenizer.reset(line, ',');
+        while (tokenizer.next()) {
+            assignOrDeclareVariables(typeStr, isFinal, tokenizer.token(), resultVariables);
         }
         return resultVariables;
     }
@@ -209,26 +250,22 @@ public class VariableValidator {
         Type type = parseType(typeStr); // מתודה שממירה מחרוזת ל-type (int, double ...)
 
         // 4) If the variable is final, ensure it has an initial value
-        boolean isInitialized = false;
-        Object value = null;
         if (isFinal && assignmentValue == null) {
             throw new ValidationException("Final variable '" + varName + "' must have an initial value.");
         }
 
-        if (assignmentValue != null) {
-            // Validate and parse the assignment value
-            value = parseAndValidateValue(assignmentValue, type);
-            isInitialized = true;
-        }
-
-        // 5) Create the Variable instance
+        // 5) Create the Variable instance and store the validated value directly into it
         Variable newVar = new Variable(
                 varName,
                 type,
                 isFinal,
-                isInitialized,
-                value
+                false,
+                null
         );
+        if (assignmentValue != null) {
+            assignValue(assignmentValue, newVar);
+            newVar.setInitialized(true);
+        }
 
         // 6) Add the variable to the symbol table
         symbolsTable.addVariable(newVar);
@@ -266,25 +303,24 @@ public class VariableValidator {
             throw new ValidationException("No value provided in assignment to '" + varName + "'.");
         }
 
-        // 5) Validate and parse the assignment value
-        Object obj = parseAndValidateValue(assignmentValue,variable.getType());
-        if (obj==null){
+        // 5) Validate the assignment value and store it into the variable
+        assignValue(assignmentValue, variable);
+        if (!variable.hasValue()) {
             throw new ValidationException("Value provided is illegal.");
         }
-        // 6) Update the variable's value and mark it as initialized
-        variable.setValue(obj);
+        // 6) Mark the variable as initialized
         variable.setInitialized(true);
         return variable;
     }
 
     /**
-     * Validates the variable name against the predefined naming pattern.
+     * Validates the variable name against the naming convention.
      *
      * @param varName the name of the variable to validate
-     * @throws ValidationException if the variable name does not match the naming pattern
+     * @throws ValidationException if the variable name does not follow the naming convention
      */
     private void validateVariableName(String varName) throws ValidationException {
-        if (!VARIABLE_NAME_PATTERN.matcher(varName).matches()) {
+        if (!syntax.isVariableName(varName)) {
             throw new ValidationException("Invalid variable name: " + varName);
         }
     }
@@ -292,16 +328,49 @@ public class VariableValidator {
 
 
     /**
-     * Parses and validates the value assigned to a variable based on its target type.
-     * Handles both literal values and assignments from other variables.
+     * Validates a value against a target type without storing it anywhere.
+     * Handles both literal values and references to other variables.
      *
-     * @param valueStr   the value as a string to be parsed and validated
-     * @param targetType the target {@link Type} of the variable
-     * @return the parsed value as an {@link Object} if valid
+     * @param valueStr   the value as a string to be validated
+     * @param targetType the target {@link Type} of the value
      * @throws ValidationException if the value is invalid or incompatible with the target type
      */
-    public Object parseAndValidateValue(String valueStr, Type targetType) throws ValidationException {
-        // Check if the value is an existing variable
+    public void validateValue(String valueStr, Type targetType) throws ValidationException {
+        if (resolveSourceVariable(valueStr, targetType) == null) {
+            parseLiteral(valueStr, targetType, null);
+        }
+    }
+
+    /**
+     * Validates a value against the type of a variable and stores it into that variable.
+     * Values are copied through the primitive fields of {@link Variable}, so nothing is boxed.
+     *
+     * @param valueStr the value as a string to be parsed and validated
+     * @param target   the variable receiving the value
+     * @throws ValidationException if the value is invalid or incompatible with the target type
+     */
+    public void assignValue(String valueStr, Variable target) throws ValidationException {
+        Variable otherVar = resolveSourceVariable(valueStr, target.getType());
+        if (otherVar != null) {
+            target.copyValueFrom(otherVar);
+        } else {
+            parseLiteral(valueStr, target.getType(), target);
+        }
+    }
+
+    /**
+     * Resolves a value that names another variable and checks it can be assigned to the target type.
+     *
+     * @param valueStr   the value as a string
+     * @param targetType the target {@link Type} of the value
+     * @return the referenced {@link Variable}, or {@code null} if the value is not a known variable
+     * @throws ValidationException if the referenced variable is incompatible or uninitialized
+     */
+    private Variable resolveSourceVariable(String valueStr, Type targetType) throws ValidationException {
+        // Only identifiers can name another variable; anything else is a literal
+        if (!isIdentifier(valueStr)) {
+            return null;
+        }
         Variable otherVar = symbolsTable.getVariable(valueStr);
         if (otherVar != null) {
             // Assignment from another variable
@@ -312,58 +381,110 @@ public class VariableValidator {
             if (!otherVar.isInitialized()) {
                 throw new ValidationException("Cannot assign value from uninitialized variable '" + valueStr + "'.");
             }
-            return otherVar.getValue(); // Return the value of the other variable
         }
+        return otherVar;
+    }
 
-        // Assume the value is a literal and parse accordingly
-        return validateInputParameterType(valueStr, targetType);
+    /**
+     * Lexically checks whether a value is shaped like an identifier (a letter or underscore,
+     * followed by letters, digits or underscores). Literals such as {@code 5}, {@code "hello"}
+     * or {@code 'c'} are rejected here without touching the symbol table.
+     *
+     * @param valueStr the value to classify
+     * @return {@code true} if the value could be a variable name; {@code false} otherwise
+     */
+    private static boolean isIdentifier(String valueStr) {
+        if (valueStr.isEmpty()) {
+            return false;
+        }
+        char first = valueStr.charAt(0);
+        if (!isAsciiLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = 1; i < valueStr.length(); i++) {
+            char c = valueStr.charAt(i);
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '_') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * get the value of the new paremeter, and check if it fits the parameter type.
-     * @param valueStr
-     * @param targetType
-     * @return Object
-     * @throws ValidationException
+     * Checks whether a character is an ASCII letter.
+     *
+     * @param c the character to check
+     * @return {@code true} if the character is in {@code [a-zA-Z]}
      */
-    private static Object validateInputParameterType(String valueStr, Type targetType) throws ValidationException {
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Checks that a literal fits the target type and, if a target variable is given,
+     * stores the parsed value into it through the matching primitive setter.
+     *
+     * @param valueStr   the literal as a string
+     * @param targetType the expected {@link Type} of the literal
+     * @param target     the variable receiving the value, or {@code null} to only validate
+     * @throws ValidationException if the literal does not fit the target type
+     */
+    private void parseLiteral(String valueStr, Type targetType, Variable target)
+            throws ValidationException {
         switch (targetType) {
             case INT:
                 // Expecting an integer literal
-                if (!valueStr.matches("^(-|\\+)?\\d+$")) {
+                if (!syntax.isIntLiteral(valueStr)) {
                     throw new ValidationException("Invalid int value: " + valueStr);
                 }
-                return Integer.parseInt(valueStr);
+                int intValue = Integer.parseInt(valueStr);
+                if (target != null) {
+                    target.setIntValue(intValue);
+                }
+                return;
 
             case DOUBLE:
                 // Expecting a double literal (with or without decimal point)
-                if (!valueStr.matches("^(-|\\+)?\\d*\\.?\\d+$")) {
+                if (!syntax.isDoubleLiteral(valueStr)) {
                     throw new ValidationException("Invalid double value: " + valueStr);
                 }
-                return Double.parseDouble(valueStr);
+                double doubleValue = Double.parseDouble(valueStr);
+                if (target != null) {
+                    target.setDoubleValue(doubleValue);
+                }
+                return;
 
             case BOOLEAN:
                 // Expecting 'true' or 'false'
                 //TODO: handle that!
-                if (!valueStr.matches("^(false|true|[-+]?\\d*\\.?\\d+)$")) {
+                if (!syntax.isBooleanLiteral(valueStr)) {
                     throw new ValidationException("Invalid boolean value: " + valueStr);
                 }
-                return Boolean.parseBoolean(valueStr);
+                if (target != null) {
+                    target.setBooleanValue(Boolean.parseBoolean(valueStr));
+                }
+                return;
 
             case CHAR:
                 // Expecting a single character enclosed in single quotes, e.g., 'a'
-                if (!valueStr.matches("^'.'$")) {
+                if (!syntax.isCharLiteral(valueStr)) {
                     throw new ValidationException("Invalid char value: " + valueStr);
                 }
-                return valueStr.charAt(1);
+                if (target != null) {
+                    target.setCharValue(valueStr.charAt(1));
+                }
+                return;
 
             case STRING:
                 // Expecting a string literal enclosed in double quotes, e.g., "hello"
-                if (!valueStr.matches("^\".*\"$")) {
+                if (!syntax.isStringLiteral(valueStr)) {
                     throw new ValidationException("Invalid string literal: " + valueStr);
                 }
-                // Remove the surrounding double quotes
-                return valueStr.substring(1, valueStr.length() - 1);
+                if (target != null) {
+                    // Remove the surrounding double quotes
+                    target.setStringValue(valueStr.substring(1, valueStr.length() - 1));
+                }
+                return;
 
             default:
                 throw new ValidationException("Unsupported type: " + targetType);
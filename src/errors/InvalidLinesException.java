@@ -0,0 +1,30 @@
+package errors;
+
+/**
+ * Exception thrown when lines of a file match none of the s-Java line forms.
+ * The command line reports it in the legacy format rather than as an uncaught error.
+ */
+public class InvalidLinesException extends ValidationException {
+    private static final long serialVersionUID = 1L;
+
+    private final int invalidLines;
+
+    /**
+     * Constructs a new {@code InvalidLinesException} for the given number of invalid lines.
+     *
+     * @param invalidLines the number of lines matching no line form
+     */
+    public InvalidLinesException(int invalidLines) {
+        super("Nums invalid lines: " + invalidLines);
+        this.invalidLines = invalidLines;
+    }
+
+    /**
+     * Returns the number of invalid lines.
+     *
+     * @return the number of lines matching no line form
+     */
+    public int getInvalidLines() {
+        return invalidLines;
+    }
+}
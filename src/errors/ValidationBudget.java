@@ -0,0 +1,247 @@
+package errors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-file CPU time budget, checked cooperatively by the validation loops.
+ *
+ * <p>A budget is bound to the thread validating the file. The parsers and validators call
+ * {@link #checkpoint()} once per line; every {@value #CHECK_INTERVAL} calls the budget reads the
+ * thread's CPU time and throws a {@link ValidationTimeoutException} once the limit is exceeded.
+ * Another thread can also {@link #cancel()} the budget, which fails the next checkpoint.
+ * Without a bound budget, {@link #checkpoint()} does nothing.</p>
+ *
+ * <p>A budget begun while another is bound to the thread nests in it: the checkpoints check both,
+ * so cancelling the outer budget also stops the work of the inner one, and {@link #end()} binds
+ * the outer budget again. An unlimited budget ({@link #begin()}) is only there to be cancelled.
+ * A second run over the same file can start afresh with {@link #beginAgain()}.</p>
+ *
+ * <p>Work a validation hands to other threads is wrapped with {@link #carry(Callable)}: the task
+ * runs under a budget of its own, limited to what the validating thread had left when it handed
+ * the task out and cancelled along with it. The CPU time the task spent is charged back to the
+ * validating thread's budget, which counts it from its next checkpoints on.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * ValidationBudget budget = ValidationBudget.begin(500);
+ * try {
+ *     // validate the file
+ * } finally {
+ *     budget.end();
+ * }
+ * </pre>
+ */
+public final class ValidationBudget {
+    /** Number of checkpoints between two reads of the CPU clock. */
+    private static final int CHECK_INTERVAL = 64;
+    /** Limit of a budget that can only be cancelled. */
+    private static final long UNLIMITED = Long.MAX_VALUE;
+    private static final ThreadLocal<ValidationBudget> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Holds the thread MXBean, so the management subsystem is only started once a budget is,
+     * and not by the {@link #checkpoint()} calls of every run.
+     */
+    private static final class Threads {
+        private static final ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+    }
+
+    private final long limitNanos;
+    private final boolean cpuClock;
+    private final long startNanos;
+    /** The budget bound to the thread when this one began, or {@code null}. */
+    private final ValidationBudget outer;
+    /**
+     * The budget this one starts afresh, or the budget of the thread that handed out this one's
+     * task, whose cancellation still applies; or {@code null}.
+     */
+    private final ValidationBudget renewed;
+    /** The budget bound to the thread when this one began, bound again by {@link #end()}. */
+    private final ValidationBudget previous;
+    /** The thread this budget is bound to. */
+    private final Thread thread = Thread.currentThread();
+    /** CPU time spent by tasks handed to other threads, charged by their budgets. */
+    private final AtomicLong chargedNanos = new AtomicLong();
+    private int countdown = CHECK_INTERVAL;
+    private volatile boolean cancelled;
+
+    private ValidationBudget(long limitNanos, ValidationBudget outer, ValidationBudget renewed) {
+        this.limitNanos = limitNanos;
+        this.outer = outer;
+        this.renewed = renewed;
+        this.previous = CURRENT.get();
+        // An unlimited budget never reads the clock, so it does not need the CPU one
+        this.cpuClock = limitNanos != UNLIMITED && Threads.BEAN.isCurrentThreadCpuTimeSupported();
+        this.startNanos = now();
+    }
+
+    /**
+     * Starts a budget and binds it to the current thread.
+     *
+     * @param limitMillis the CPU time allowed for the file, in milliseconds
+     * @return the started budget
+     */
+    public static ValidationBudget begin(long limitMillis) {
+        return bind(new ValidationBudget(limitMillis * 1_000_000L, CURRENT.get(), null));
+    }
+
+    /**
+     * Starts a budget without a time limit and binds it to the current thread, so that another
+     * thread can {@link #cancel()} the validation.
+     *
+     * @return the started budget
+     */
+    public static ValidationBudget begin() {
+        return bind(new ValidationBudget(UNLIMITED, CURRENT.get(), null));
+    }
+
+    /**
+     * Starts a budget with the limit of the one bound to the current thread, but none of its time
+     * spent, for a second validation of the same file. It nests where the bound budget does, and
+     * cancelling the bound budget cancels it too; {@link #end()} binds the bound budget again.
+     *
+     * @return the started budget, or {@code null} if no budget is bound
+     */
+    public static ValidationBudget beginAgain() {
+        ValidationBudget current = CURRENT.get();
+        if (current == null) {
+            return null;
+        }
+        return bind(new ValidationBudget(current.limitNanos, current.outer, current));
+    }
+
+    /**
+     * Wraps a task the current thread hands to another, so it runs under the budget bound here.
+     * Must be called on the thread that hands the task out.
+     *
+     * <p>The task gets a budget of its own on the thread that runs it, limited to the CPU time
+     * the bound budget has left now, and failing its checkpoints once the bound budget, or one
+     * it nests in, is cancelled. When the task ends, the CPU time it spent is charged to the
+     * bound budget.</p>
+     *
+     * @param task the task
+     * @param <T>  the result type of the task
+     * @return the wrapped task, or {@code task} itself if no budget is bound
+     */
+    public static <T> Callable<T> carry(Callable<T> task) {
+        ValidationBudget parent = CURRENT.get();
+        if (parent == null) {
+            return task;
+        }
+        long limitNanos = parent.limitNanos == UNLIMITED
+                ? UNLIMITED
+                : Math.max(0, parent.limitNanos - parent.elapsedNanos());
+        return () -> {
+            ValidationBudget budget = bind(new ValidationBudget(limitNanos, null, parent));
+            try {
+                return task.call();
+            } finally {
+                // Run on the handing thread itself, the time is already on its clock
+                if (limitNanos != UNLIMITED && budget.thread != parent.thread) {
+                    parent.chargedNanos.addAndGet(budget.elapsedNanos());
+                }
+                budget.end();
+            }
+        };
+    }
+
+    /**
+     * Binds a budget to the current thread.
+     *
+     * @param budget the budget
+     * @return the budget
+     */
+    private static ValidationBudget bind(ValidationBudget budget) {
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    /**
+     * Unbinds this budget from the current thread, binding the budget that was bound when it
+     * began again, if any.
+     */
+    public void end() {
+        if (CURRENT.get() != this) {
+            return;
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Cancels the budget; the next checkpoint of the validating thread fails.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the CPU time used so far by the validating thread, and charged by the tasks it
+     * handed out; for an unlimited budget, the wall time. Must be called from that thread.
+     *
+     * @return the elapsed CPU time, in nanoseconds
+     */
+    public long elapsedNanos() {
+        return now() - startNanos + chargedNanos.get();
+    }
+
+    /**
+     * Checks the budget bound to the current thread, if any.
+     *
+     * @throws ValidationTimeoutException if the budget was exceeded or cancelled
+     */
+    public static void checkpoint() {
+        ValidationBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.check();
+        }
+    }
+
+    /**
+     * Checks this budget.
+     *
+     * @throws ValidationTimeoutException if the budget was exceeded or cancelled
+     */
+    private void check() {
+        if (cancelled || renewed != null && renewed.isCancelled()) {
+            throw new ValidationTimeoutException("Validation cancelled");
+        }
+        if (outer != null) {
+            outer.check();
+        }
+        if (limitNanos == UNLIMITED || --countdown > 0) {
+            return;
+        }
+        countdown = CHECK_INTERVAL;
+        if (elapsedNanos() > limitNanos) {
+            // A task reports the budget of the file, not the part of it that was left
+            long fileLimitNanos = renewed != null ? renewed.limitNanos : limitNanos;
+            throw new ValidationTimeoutException(
+                    "CPU time budget of " + (fileLimitNanos / 1_000_000L) + " ms exceeded");
+        }
+    }
+
+    /**
+     * Returns whether this budget, or one it nests in or starts afresh, was cancelled.
+     *
+     * @return {@code true} if the work under this budget must stop
+     */
+    private boolean isCancelled() {
+        return cancelled || renewed != null && renewed.isCancelled() || outer != null && outer.isCancelled();
+    }
+
+    /**
+     * Reads the clock the budget is measured on: the thread's CPU time when supported, wall time otherwise.
+     *
+     * @return the current clock value, in nanoseconds
+     */
+    private long now() {
+        return cpuClock ? Threads.BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,19 @@
+package errors;
+
+/**
+ * Exception thrown when validating a file exceeds its {@link ValidationBudget}.
+ * It is unchecked so it passes through every validation stage unchanged,
+ * and is reported as a timeout rather than as an invalid file.
+ */
+public class ValidationTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new {@code ValidationTimeoutException} with the specified detail message.
+     *
+     * @param message the detail message explaining which budget was exceeded
+     */
+    public ValidationTimeoutException(String message) {
+        super(message);
+    }
+}
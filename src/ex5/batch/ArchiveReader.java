@@ -0,0 +1,151 @@
+package ex5.batch;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams the {@value BatchValidator#SOURCE_SUFFIX} entries out of a zip or tar.gz archive,
+ * decompressing as it goes, so submissions can be validated without extracting them to disk.
+ *
+ * <p>Entries are reported as {@code archive!/entry}. Other entries are skipped.</p>
+ */
+final class ArchiveReader implements Closeable {
+    private static final String ZIP_SUFFIX = ".zip";
+    private static final String TAR_GZ_SUFFIX = ".tar.gz";
+    private static final String TGZ_SUFFIX = ".tgz";
+    private static final String ENTRY_SEPARATOR = "!/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Every zip file starts with a local file header, or with the end record when it is empty. */
+    private static final int ZIP_ENTRY_SIGNATURE = 0x504B0304;
+    private static final int ZIP_EMPTY_SIGNATURE = 0x504B0506;
+
+    private final String name;
+    private final ZipInputStream zip;
+    private final TarReader tar;
+    private final InputStream stream;
+
+    private ArchiveReader(String name, ZipInputStream zip, TarReader tar, InputStream stream) {
+        this.name = name;
+        this.zip = zip;
+        this.tar = tar;
+        this.stream = stream;
+    }
+
+    /**
+     * Returns whether a file is an archive this class reads, judging by its name.
+     *
+     * @param path the file
+     * @return whether the file is a zip or tar.gz archive
+     */
+    static boolean isArchive(Path path) {
+        String fileName = path.getFileName() == null ? "" : path.getFileName().toString();
+        return fileName.endsWith(ZIP_SUFFIX) || fileName.endsWith(TAR_GZ_SUFFIX) || fileName.endsWith(TGZ_SUFFIX);
+    }
+
+    /**
+     * Opens an archive.
+     *
+     * @param path the archive, see {@link #isArchive(Path)}
+     * @return the reader, positioned before the first entry
+     * @throws IOException if the archive cannot be opened
+     */
+    static ArchiveReader open(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        try {
+            if (path.getFileName().toString().endsWith(ZIP_SUFFIX)) {
+                // ZipInputStream reads anything else as an empty archive
+                int signature = peekSignature(in);
+                if (signature != ZIP_ENTRY_SIGNATURE && signature != ZIP_EMPTY_SIGNATURE) {
+                    throw new ZipException("Not a zip archive");
+                }
+                ZipInputStream zip = new ZipInputStream(in);
+                return new ArchiveReader(path.toString(), zip, null, zip);
+            }
+            InputStream gzip = new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+            return new ArchiveReader(path.toString(), null, new TarReader(gzip), gzip);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the first four bytes of a stream, big-endian, and rewinds it.
+     *
+     * @param in the stream
+     * @return the bytes, or -1 if the stream is shorter
+     * @throws IOException if the stream cannot be read
+     */
+    private static int peekSignature(InputStream in) throws IOException {
+        in.mark(Integer.BYTES);
+        byte[] bytes = in.readNBytes(Integer.BYTES);
+        in.reset();
+        if (bytes.length < Integer.BYTES) {
+            return -1;
+        }
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+    }
+
+    /**
+     * Reads the next source entry of the archive into memory.
+     *
+     * @param index the position the entry takes in the batch
+     * @return the entry as a batch input, or {@code null} once the archive is exhausted
+     * @throws IOException if the archive cannot be read or is corrupt
+     */
+    BatchInput next(int index) throws IOException {
+        if (zip != null) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().endsWith(BatchValidator.SOURCE_SUFFIX)) {
+                    return BatchInput.of(index, entryName(entry.getName()), zip.readAllBytes());
+                }
+            }
+            return null;
+        }
+        TarReader.Entry entry;
+        while ((entry = tar.nextEntry()) != null) {
+            if (entry.isFile() && entry.getName().endsWith(BatchValidator.SOURCE_SUFFIX)) {
+                return BatchInput.of(index, entryName(entry.getName()), tar.readContent(entry));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name an entry is reported under.
+     *
+     * @param entry the path of the entry inside the archive
+     * @return the name
+     */
+    private String entryName(String entry) {
+        return name + ENTRY_SEPARATOR + entry;
+    }
+
+    /**
+     * Returns the path of the archive.
+     *
+     * @return the path of the archive
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Closes the archive.
+     *
+     * @throws IOException if the archive cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
@@ -0,0 +1,127 @@
+package ex5.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One input of a batch: a file or an archive entry to validate, with its position in the batch.
+ */
+public final class BatchInput {
+    /**
+     * Produces the content of an input when a reader gets to it.
+     */
+    @FunctionalInterface
+    private interface Loader {
+        /**
+         * Loads the content.
+         *
+         * @return the raw bytes of the input
+         * @throws IOException if the content cannot be read
+         */
+        byte[] load() throws IOException;
+    }
+
+    private final int index;
+    private final String name;
+    private final long size;
+    private final Loader loader;
+
+    /**
+     * Constructs a new {@code BatchInput} for a file.
+     *
+     * @param index the position of the input in the batch
+     * @param path  the file to validate
+     * @param size  the size of the file in bytes, as known when the batch was built
+     */
+    public BatchInput(int index, Path path, long size) {
+        this(index, path.toString(), size, () -> Files.readAllBytes(path));
+    }
+
+    private BatchInput(int index, String name, long size, Loader loader) {
+        this.index = index;
+        this.name = name;
+        this.size = size;
+        this.loader = loader;
+    }
+
+    /**
+     * Creates an input, reading the size of the file.
+     *
+     * @param index the position of the input in the batch
+     * @param path  the file to validate
+     * @return the input; its size is 0 if the file cannot be read, and reading it later reports the error
+     */
+    public static BatchInput of(int index, Path path) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            size = 0;
+        }
+        return new BatchInput(index, path, size);
+    }
+
+    /**
+     * Creates an input whose content is already in memory, such as an archive entry.
+     *
+     * @param index   the position of the input in the batch
+     * @param name    the name results are reported under
+     * @param content the raw bytes of the input
+     * @return the input
+     */
+    public static BatchInput of(int index, String name, byte[] content) {
+        return new BatchInput(index, name, content.length, () -> content);
+    }
+
+    /**
+     * Creates an input that could not be loaded, such as a corrupt archive; reading it reports the error.
+     *
+     * @param index the position of the input in the batch
+     * @param name  the name results are reported under
+     * @param cause the error
+     * @return the input
+     */
+    public static BatchInput failed(int index, String name, IOException cause) {
+        return new BatchInput(index, name, 0, () -> {
+            throw cause;
+        });
+    }
+
+    /**
+     * Reads the content of the input.
+     *
+     * @return the raw bytes of the input
+     * @throws IOException if the input cannot be read
+     */
+    public byte[] read() throws IOException {
+        return loader.load();
+    }
+
+    /**
+     * Returns the position of the input in the batch.
+     *
+     * @return the position of the input in the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name results are reported under.
+     *
+     * @return the name results are reported under
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the size of the input in bytes, as known when the batch was built.
+     *
+     * @return the size of the input in bytes, as known when the batch was built
+     */
+    public long getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,294 @@
+package ex5.batch;
+
+import ex5.main.Stage;
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+import ex5.metrics.StageHistograms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validates a batch of files in three pipelined stages, so the CPU workers never wait on the disk.
+ *
+ * <ol>
+ *     <li>Reader threads prefetch upcoming files into memory.</li>
+ *     <li>Worker threads validate the loaded files.</li>
+ *     <li>A writer thread hands the results to the sink, in input order, or as soon as they
+ *     complete when the run is unordered.</li>
+ * </ol>
+ *
+ * <p>Back-pressure is applied in bytes, not in files: a reader takes the size of a file from an
+ * {@link InFlightBytes} limit before reading it, and the worker gives it back once the file is
+ * validated, so memory stays flat however large the files are.</p>
+ *
+ * <p>Given a {@link StageHistograms}, every worker records the stage latencies of its files into
+ * histograms of its own, merged into the shared ones as the worker ends, so recording adds no
+ * contention between workers.</p>
+ */
+public class BatchPipeline {
+    /** A loaded file on its way to a worker. */
+    private static final class LoadedInput {
+        private final BatchInput input;
+        private final byte[] content;
+        private final long reserved;
+        private final long readNanos;
+
+        private LoadedInput(BatchInput input, byte[] content, long reserved, long readNanos) {
+            this.input = input;
+            this.content = content;
+            this.reserved = reserved;
+            this.readNanos = readNanos;
+        }
+    }
+
+    /** Marks the end of the work queue for one worker. */
+    private static final LoadedInput END_OF_WORK = new LoadedInput(null, null, 0, 0);
+    /** Marks the end of the result queue for the writer. */
+    private static final BatchResult END_OF_RESULTS = new BatchResult(-1, null, null);
+
+    private final ContentValidator validator;
+    private final int readers;
+    private final int workers;
+    private final long maxInFlightBytes;
+    private final StageHistograms latencies;
+    /** The work queue of the current run, or {@code null} between runs. */
+    private volatile BlockingQueue<LoadedInput> currentWork;
+
+    /**
+     * Constructs a new {@code BatchPipeline}.
+     *
+     * @param validator        the validator the workers run
+     * @param readers          the number of reader threads
+     * @param workers          the number of worker threads
+     * @param maxInFlightBytes the most file bytes held in memory at once
+     */
+    public BatchPipeline(ContentValidator validator, int readers, int workers, long maxInFlightBytes) {
+        this(validator, readers, workers, maxInFlightBytes, null);
+    }
+
+    /**
+     * Constructs a new {@code BatchPipeline} recording the stage latencies of every file.
+     *
+     * @param validator        the validator the workers run
+     * @param readers          the number of reader threads
+     * @param workers          the number of worker threads
+     * @param maxInFlightBytes the most file bytes held in memory at once
+     * @param latencies        receives the stage latencies of the files of every run,
+     *                         or {@code null} to skip recording them
+     */
+    public BatchPipeline(ContentValidator validator, int readers, int workers, long maxInFlightBytes,
+                         StageHistograms latencies) {
+        this.validator = validator;
+        this.readers = readers;
+        this.workers = workers;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Validates every input and passes each result to the sink, in input order.
+     *
+     * @param inputs the inputs, indexed from 0 in order
+     * @param sink   receives the results, on the writer thread
+     * @throws InterruptedException  if interrupted while waiting for the stages
+     * @throws IllegalStateException if a stage failed; results not yet written are lost
+     */
+    public void run(List<BatchInput> inputs, BatchSink sink) throws InterruptedException {
+        run(BatchSource.of(inputs), sink, true);
+    }
+
+    /**
+     * Validates every input of a source and passes each result to the sink.
+     *
+     * @param source  the inputs
+     * @param sink    receives the results, on the writer thread
+     * @param ordered whether results are passed on in input order, holding early ones back,
+     *                or as soon as they complete
+     * @throws InterruptedException  if interrupted while waiting for the stages
+     * @throws IllegalStateException if a stage failed; results not yet written are lost
+     */
+    public void run(BatchSource source, BatchSink sink, boolean ordered) throws InterruptedException {
+        InFlightBytes inFlight = new InFlightBytes(maxInFlightBytes);
+        BlockingQueue<LoadedInput> work = new LinkedBlockingQueue<>();
+        currentWork = work;
+        BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> write(results, sink, ordered, failure), "batch-writer");
+        writer.start();
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            Thread reader = new Thread(() -> read(source, inFlight, work, results, failure),
+                    "batch-reader-" + i);
+            reader.start();
+            readerThreads.add(reader);
+        }
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(() -> validate(work, inFlight, results, failure), "batch-worker-" + i);
+            worker.start();
+            workerThreads.add(worker);
+        }
+
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+        for (int i = 0; i < workers; i++) {
+            work.put(END_OF_WORK);
+        }
+        for (Thread worker : workerThreads) {
+            worker.join();
+        }
+        results.put(END_OF_RESULTS);
+        writer.join();
+        currentWork = null;
+
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Batch pipeline failed", cause);
+        }
+    }
+
+    /**
+     * Returns the number of loaded inputs waiting for a worker.
+     *
+     * @return the depth of the work queue, 0 between runs
+     */
+    public int getQueueDepth() {
+        BlockingQueue<LoadedInput> work = currentWork;
+        return work != null ? work.size() : 0;
+    }
+
+    /**
+     * The reader loop: claims the next input, waits for room in the byte limit, and loads it.
+     * Any other failure of the source or of a read fails the pipeline, so no input goes missing
+     * unnoticed.
+     *
+     * @param source   the inputs of the batch
+     * @param inFlight the byte limit
+     * @param work     the queue of loaded inputs
+     * @param results  the queue of results, receiving inputs that cannot be read
+     * @param failure  the first failure of the pipeline
+     */
+    private void read(BatchSource source, InFlightBytes inFlight, BlockingQueue<LoadedInput> work,
+                      BlockingQueue<BatchResult> results, AtomicReference<Throwable> failure) {
+        try {
+            BatchInput input;
+            while (failure.get() == null && (input = source.next()) != null) {
+                long reserved = input.getSize();
+                inFlight.acquire(reserved);
+                long start = System.nanoTime();
+                try {
+                    byte[] content = input.read();
+                    work.put(new LoadedInput(input, content, reserved, System.nanoTime() - start));
+                } catch (IOException e) {
+                    inFlight.release(reserved);
+                    results.put(new BatchResult(input.getIndex(), input.getName(), new ValidationResult(
+                            Verdict.IO_ERROR, e.getClass().getSimpleName(), e.getMessage(), null),
+                            reserved, 0));
+                } catch (RuntimeException | Error e) {
+                    inFlight.release(reserved);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException | RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * The worker loop: validates loaded inputs until the end marker.
+     * Once the pipeline has failed, remaining inputs are released without being validated.
+     *
+     * @param work     the queue of loaded inputs
+     * @param inFlight the byte limit
+     * @param results  the queue of results
+     * @param failure  the first failure of the pipeline
+     */
+    private void validate(BlockingQueue<LoadedInput> work, InFlightBytes inFlight,
+                          BlockingQueue<BatchResult> results, AtomicReference<Throwable> failure) {
+        StageHistograms workerLatencies = latencies != null ? new StageHistograms() : null;
+        try {
+            LoadedInput loaded;
+            while ((loaded = work.take()) != END_OF_WORK) {
+                try {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    BatchInput input = loaded.input;
+                    long start = System.nanoTime();
+                    ValidationResult result = validator.check(input.getName(), loaded.content);
+                    long elapsed = System.nanoTime() - start;
+                    if (result.getTimings() != null) {
+                        result.getTimings().add(Stage.READ, loaded.readNanos);
+                        if (workerLatencies != null) {
+                            workerLatencies.record(result.getTimings());
+                        }
+                    }
+                    results.put(new BatchResult(input.getIndex(), input.getName(), result,
+                            loaded.content.length, elapsed));
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release(loaded.reserved);
+                }
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (workerLatencies != null) {
+                latencies.merge(workerLatencies);
+            }
+        }
+    }
+
+    /**
+     * The writer loop: passes results on as they arrive, or, when ordered, holds early results in a
+     * reorder buffer and passes them on in input order. At the end marker, whatever is left is
+     * passed on in order, skipping inputs that never completed. The sink is told whenever the
+     * queue runs dry.
+     *
+     * @param results the queue of results
+     * @param sink    receives the results
+     * @param ordered whether to pass results on in input order
+     * @param failure the first failure of the pipeline
+     */
+    private static void write(BlockingQueue<BatchResult> results, BatchSink sink, boolean ordered,
+                              AtomicReference<Throwable> failure) {
+        TreeMap<Integer, BatchResult> pending = new TreeMap<>();
+        int next = 0;
+        try {
+            while (true) {
+                BatchResult result = results.poll();
+                if (result == null) {
+                    sink.drained();
+                    result = results.take();
+                }
+                if (result == END_OF_RESULTS) {
+                    break;
+                }
+                if (!ordered) {
+                    sink.accept(result);
+                    continue;
+                }
+                pending.put(result.getIndex(), result);
+                while (!pending.isEmpty() && pending.firstKey() == next) {
+                    sink.accept(pending.pollFirstEntry().getValue());
+                    next++;
+                }
+            }
+            for (BatchResult remaining : pending.values()) {
+                sink.accept(remaining);
+            }
+            sink.drained();
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+}
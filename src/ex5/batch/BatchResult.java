@@ -0,0 +1,97 @@
+package ex5.batch;
+
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+/**
+ * The outcome reached for one input of a batch.
+ */
+public final class BatchResult {
+    private final int index;
+    private final String name;
+    private final ValidationResult result;
+    private final long size;
+    private final long validationNanos;
+
+    /**
+     * Constructs a new {@code BatchResult} of unknown size and cost.
+     *
+     * @param index  the position of the input in the batch
+     * @param name   the name of the input
+     * @param result the outcome reached for it
+     */
+    public BatchResult(int index, String name, ValidationResult result) {
+        this(index, name, result, 0, 0);
+    }
+
+    /**
+     * Constructs a new {@code BatchResult}.
+     *
+     * @param index           the position of the input in the batch
+     * @param name            the name of the input
+     * @param result          the outcome reached for it
+     * @param size            the size of the input in bytes
+     * @param validationNanos the wall time a worker spent on the input, in nanoseconds
+     */
+    public BatchResult(int index, String name, ValidationResult result, long size, long validationNanos) {
+        this.index = index;
+        this.name = name;
+        this.result = result;
+        this.size = size;
+        this.validationNanos = validationNanos;
+    }
+
+    /**
+     * Returns the position of the input in the batch.
+     *
+     * @return the position of the input in the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name of the input.
+     *
+     * @return the name of the input
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the verdict reached for the input.
+     *
+     * @return the verdict reached for the input
+     */
+    public Verdict getVerdict() {
+        return result.getVerdict();
+    }
+
+    /**
+     * Returns the full outcome reached for the input.
+     *
+     * @return the verdict, error and stage timings of the input
+     */
+    public ValidationResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the size of the input.
+     *
+     * @return the size of the input in bytes, or 0 if unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the wall time a worker spent on the input.
+     *
+     * @return the wall time in nanoseconds, or 0 if the input never reached a worker
+     */
+    public long getValidationNanos() {
+        return validationNanos;
+    }
+}
@@ -0,0 +1,26 @@
+package ex5.batch;
+
+import java.io.IOException;
+
+/**
+ * Receives the results of a {@link BatchPipeline}, one at a time, on the pipeline's writer thread.
+ */
+@FunctionalInterface
+public interface BatchSink {
+    /**
+     * Receives one result.
+     *
+     * @param result the result
+     * @throws IOException if the result cannot be written
+     */
+    void accept(BatchResult result) throws IOException;
+
+    /**
+     * Called whenever the writer has passed on every result available so far, so buffered output
+     * can be flushed while the pipeline waits for more, and not after every result.
+     *
+     * @throws IOException if the output cannot be flushed
+     */
+    default void drained() throws IOException {
+    }
+}
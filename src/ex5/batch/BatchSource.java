@@ -0,0 +1,38 @@
+package ex5.batch;
+
+import java.util.List;
+
+/**
+ * Hands out the inputs of a batch, one at a time, to the reader threads of a {@link BatchPipeline}.
+ *
+ * <p>Implementations must be safe to call from several threads at once, and must number the
+ * inputs they hand out 0, 1, 2, ... without gaps. The order inputs are handed out in is the order
+ * they are scheduled in, and need not follow their numbers; results are still written in number
+ * order when the run is ordered.</p>
+ */
+@FunctionalInterface
+public interface BatchSource {
+    /**
+     * Returns the next input.
+     *
+     * @return the next input, or {@code null} once every input was handed out
+     */
+    BatchInput next();
+
+    /**
+     * Creates a source over a list of inputs already numbered in list order.
+     *
+     * @param inputs the inputs
+     * @return the source
+     */
+    static BatchSource of(List<BatchInput> inputs) {
+        return new BatchSource() {
+            private int next;
+
+            @Override
+            public synchronized BatchInput next() {
+                return next < inputs.size() ? inputs.get(next++) : null;
+            }
+        };
+    }
+}
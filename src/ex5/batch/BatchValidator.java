@@ -0,0 +1,511 @@
+package ex5.batch;
+
+import Methods.MethodMemo;
+import ex5.main.FileValidator;
+import ex5.main.JsonLinesWriter;
+import ex5.main.ShadowValidator;
+import ex5.main.Sjavac;
+import ex5.main.ValidationResult;
+import ex5.metrics.MetricsEndpoint;
+import ex5.metrics.StageHistograms;
+import ex5.metrics.ValidatorMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import parser.LineMatchers;
+import parser.ParallelParsePolicy;
+
+/**
+ * Validates many s-Java files in one JVM through a {@link BatchPipeline}.
+ *
+ * <p>Inputs are files, directories (searched recursively for {@value #SOURCE_SUFFIX} files and
+ * archives) or {@code -} to read one path per line from standard input. Zip and tar.gz archives
+ * are streamed and every {@value #SOURCE_SUFFIX} entry in them is validated, without extracting
+ * anything to disk (see {@link ArchiveReader}). One line is printed per file or entry, in input
+ * order: the path, or {@code archive!/entry}, and the verdict code. With {@code --format=jsonl},
+ * each line is instead a JSON object with the verdict, the error and the stage timings (see
+ * {@link JsonLinesWriter}); {@code --unordered} prints each line as soon as its input completes.
+ * Output is flushed whenever the pipeline has nothing more to print.</p>
+ *
+ * <p>With {@code --processes=N}, inputs are validated in N worker JVMs instead of in this one
+ * (see {@link ProcessWorkerPool}); {@code --timeout-ms} then bounds the wall time of each attempt
+ * and {@code --attempts} the number of attempts per input.</p>
+ *
+ * <p>Inputs with byte-identical content are validated once and share the verdict (see
+ * {@link DeduplicatingValidator}); {@code --no-dedup} validates every input on its own. Methods
+ * that already validated in an earlier input are skipped (see {@link MethodMemo}), with a memo of
+ * {@code --method-cache-mb} megabytes per JVM; 0 turns the memo off.</p>
+ *
+ * <p>Files are parsed in parallel from {@link parser.VariablesAndMethodsParser#PARALLEL_THRESHOLD}
+ * lines on. With {@code --parse-calibration=FILE}, the threshold is read from FILE instead,
+ * calibrating it for this machine and writing FILE first if it does not exist (see
+ * {@link ParallelParsePolicy}).</p>
+ *
+ * <p>{@code --jmx} publishes the metrics of the run as MXBeans, and {@code --metrics-port=N}
+ * serves them in the Prometheus text format at {@code http://127.0.0.1:N/metrics} while the batch
+ * runs (see {@link ValidatorMetrics}); 0 picks a free port.</p>
+ *
+ * <p>With {@code --checkpoint=FILE}, every completed input is appended to FILE (see
+ * {@link CheckpointLog}). A run given {@code --resume} as well keeps the records already in FILE
+ * and reports their outcome for inputs whose content is unchanged, instead of validating them
+ * again; without it, FILE starts empty.</p>
+ *
+ * <p>With {@code --schedule=lpt}, every file is sized before the run and the largest are
+ * dispatched first, so a large file met last does not leave one worker busy after the others are
+ * done (see {@link LargestFirstSource}); the default, {@code fifo}, dispatches in input order.
+ * Archive entries cannot be sized before they are read, so LPT dispatches them after every plain
+ * file, and ordered output then lists the plain files first, in input order, and the archive
+ * entries after them.
+ * {@code --stats} prints the wall time of the run and the makespans FIFO and LPT dispatch would
+ * have had, simulated from the measured validation times (see {@link ScheduleStats}), and the
+ * p50, p90, p99, p99.9 and maximum latency of each stage and of whole files (see
+ * {@link StageHistograms}).</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java ex5.batch.BatchValidator [--readers=N] [--workers=N] [--max-in-flight-mb=N]
+ *                               [--cpu-budget-ms=N] [--prescan] [--shadow=DIR]
+ *                               [--processes=N] [--timeout-ms=N] [--attempts=N] [--no-dedup]
+ *                               [--method-cache-mb=N] [--format=text|jsonl] [--unordered]
+ *                               [--schedule=fifo|lpt] [--stats] [--parse-calibration=FILE]
+ *                               [--checkpoint=FILE [--resume]] [--jmx] [--metrics-port=N]
+ *                               input...
+ * </pre>
+ */
+public class BatchValidator {
+    /** Suffix of the source files picked up from directories. */
+    public static final String SOURCE_SUFFIX = ".sjava";
+    private static final String STDIN_INPUT = "-";
+    private static final int DEFAULT_READERS = 2;
+    private static final long DEFAULT_MAX_IN_FLIGHT_MB = 64;
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    private static final int DEFAULT_ATTEMPTS = 2;
+    private static final String TEXT_FORMAT = "text";
+    private static final String JSON_LINES_FORMAT = "jsonl";
+    private static final String FIFO_SCHEDULE = "fifo";
+    private static final String LPT_SCHEDULE = "lpt";
+    private static final long DEFAULT_METHOD_CACHE_MB = MethodMemo.DEFAULT_MAX_CHARS * Character.BYTES / BYTES_PER_MB;
+
+    /**
+     * Expands the command line inputs into the list of files and archives to validate.
+     *
+     * @param arguments the files, directories and {@code -} given on the command line
+     * @return the files and archives, in order
+     * @throws IOException if a directory or standard input cannot be read
+     */
+    static List<Path> collectPaths(List<String> arguments) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String argument : arguments) {
+            if (STDIN_INPUT.equals(argument)) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        paths.add(Paths.get(line.trim()));
+                    }
+                }
+            } else if (Files.isDirectory(Paths.get(argument))) {
+                try (Stream<Path> walk = Files.walk(Paths.get(argument))) {
+                    paths.addAll(walk.filter(path -> path.toString().endsWith(SOURCE_SUFFIX)
+                                    || ArchiveReader.isArchive(path))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                paths.add(Paths.get(argument));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Runs a batch from the command line.
+     *
+     * @param args the options, followed by the inputs
+     * @throws Exception if the inputs cannot be listed or the pipeline fails
+     */
+    public static void main(String[] args) throws Exception {
+        int readers = DEFAULT_READERS;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_MB * BYTES_PER_MB;
+        long cpuBudgetMillis = 0;
+        boolean preScan = false;
+        Path shadowDirectory = null;
+        int processes = 0;
+        long timeoutMillis = 0;
+        int attempts = DEFAULT_ATTEMPTS;
+        boolean dedup = true;
+        long methodCacheMb = DEFAULT_METHOD_CACHE_MB;
+        boolean json = false;
+        boolean ordered = true;
+        boolean largestFirst = false;
+        boolean stats = false;
+        Path calibrationFile = null;
+        Path checkpointFile = null;
+        boolean resume = false;
+        boolean jmx = false;
+        int metricsPort = -1;
+        List<String> arguments = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--readers=")) {
+                readers = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--max-in-flight-mb=")) {
+                maxInFlightBytes = Long.parseLong(valueOf(arg)) * BYTES_PER_MB;
+            } else if (arg.startsWith("--cpu-budget-ms=")) {
+                cpuBudgetMillis = Long.parseLong(valueOf(arg));
+            } else if (arg.equals("--prescan")) {
+                preScan = true;
+            } else if (arg.startsWith("--shadow=")) {
+                shadowDirectory = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--processes=")) {
+                processes = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--timeout-ms=")) {
+                timeoutMillis = Long.parseLong(valueOf(arg));
+            } else if (arg.startsWith("--attempts=")) {
+                attempts = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith(Sjavac.METHOD_CACHE_OPTION)) {
+                methodCacheMb = Long.parseLong(valueOf(arg));
+            } else if (arg.startsWith("--format=")) {
+                String format = valueOf(arg);
+                if (!format.equals(TEXT_FORMAT) && !format.equals(JSON_LINES_FORMAT)) {
+                    throw new IllegalArgumentException("Unknown format: " + format);
+                }
+                json = format.equals(JSON_LINES_FORMAT);
+            } else if (arg.startsWith("--schedule=")) {
+                String schedule = valueOf(arg);
+                if (!schedule.equals(FIFO_SCHEDULE) && !schedule.equals(LPT_SCHEDULE)) {
+                    throw new IllegalArgumentException("Unknown schedule: " + schedule);
+                }
+                largestFirst = schedule.equals(LPT_SCHEDULE);
+            } else if (arg.startsWith(Sjavac.PARSE_CALIBRATION_OPTION)) {
+                calibrationFile = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--checkpoint=")) {
+                checkpointFile = Paths.get(valueOf(arg));
+            } else if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.equals("--jmx")) {
+                jmx = true;
+            } else if (arg.startsWith("--metrics-port=")) {
+                metricsPort = Integer.parseInt(valueOf(arg));
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--unordered")) {
+                ordered = false;
+            } else if (arg.equals("--no-dedup")) {
+                dedup = false;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                arguments.add(arg);
+            }
+        }
+
+        if (resume && checkpointFile == null) {
+            throw new IllegalArgumentException("--resume needs --checkpoint=FILE");
+        }
+        List<Path> paths = collectPaths(arguments);
+        // Calibrated here, once, so worker processes only read the stored result
+        ParallelParsePolicy parsePolicy = calibrationFile != null
+                ? ParallelParsePolicy.loadOrCalibrate(calibrationFile)
+                : ParallelParsePolicy.defaultPolicy();
+        ValidatorMetrics metrics = jmx || metricsPort >= 0 ? new ValidatorMetrics() : null;
+        if (jmx) {
+            metrics.registerMBeans();
+        }
+        try (CheckpointLog checkpoint = checkpointFile != null ? CheckpointLog.open(checkpointFile, resume) : null;
+             MetricsEndpoint endpoint = metricsPort >= 0 ? new MetricsEndpoint(metrics, metricsPort) : null) {
+            if (endpoint != null) {
+                System.err.println("metrics at http://127.0.0.1:" + endpoint.getPort() + MetricsEndpoint.PATH);
+            }
+            if (processes > 0) {
+                List<String> workerArguments = new ArrayList<>();
+                if (preScan) {
+                    workerArguments.add("--prescan");
+                }
+                if (cpuBudgetMillis > 0) {
+                    workerArguments.add("--cpu-budget-ms=" + cpuBudgetMillis);
+                }
+                if (shadowDirectory != null) {
+                    workerArguments.add("--shadow=" + shadowDirectory);
+                }
+                // Always passed, so 0 turns the memo off in the workers too
+                workerArguments.add(Sjavac.METHOD_CACHE_OPTION + Math.max(0, methodCacheMb));
+                if (calibrationFile != null) {
+                    workerArguments.add(Sjavac.PARSE_CALIBRATION_OPTION + calibrationFile);
+                }
+                try (ProcessWorkerPool pool = new ProcessWorkerPool(processes, workerArguments, timeoutMillis, attempts)) {
+                    ContentValidator validator = deduplicated(pool, dedup);
+                    ScheduleStats schedule = stats ? new ScheduleStats() : null;
+                    StageHistograms latencies = stats ? new StageHistograms() : null;
+                    BatchPipeline pipeline = new BatchPipeline(checkpointed(metered(validator, metrics), checkpoint),
+                            readers, processes, maxInFlightBytes, latencies);
+                    publish(metrics, pipeline, validator, null, checkpoint);
+                    run(pipeline, paths, largestFirst, json, ordered, observer(schedule, metrics));
+                    System.err.println("worker restarts: " + pool.getRestarts());
+                    if (schedule != null) {
+                        System.err.println(schedule.summary(processes));
+                        System.err.print(latencies.summary());
+                    }
+                    reportDuplicates(validator);
+                    reportResumed(checkpoint);
+                }
+                return;
+            }
+
+            // Shadow mode compares full validations, so it runs without the memo
+            MethodMemo methodMemo = methodCacheMb > 0 && shadowDirectory == null
+                    ? new MethodMemo(methodCacheMb * BYTES_PER_MB / Character.BYTES)
+                    : null;
+            FileValidator validator = shadowDirectory != null
+                    ? new ShadowValidator(preScan, shadowDirectory)
+                    : new FileValidator(preScan, LineMatchers.SYNTAX, methodMemo, parsePolicy);
+            long budget = cpuBudgetMillis;
+            ContentValidator contentValidator = deduplicated(
+                    (name, content) -> validator.report(name, content, budget), dedup);
+            ScheduleStats schedule = stats ? new ScheduleStats() : null;
+            StageHistograms latencies = stats ? new StageHistograms() : null;
+            BatchPipeline pipeline = new BatchPipeline(checkpointed(metered(contentValidator, metrics), checkpoint),
+                    readers, workers, maxInFlightBytes, latencies);
+            publish(metrics, pipeline, contentValidator, methodMemo, checkpoint);
+            run(pipeline, paths, largestFirst, json, ordered, observer(schedule, metrics));
+            reportDuplicates(contentValidator);
+            reportResumed(checkpoint);
+            if (methodMemo != null) {
+                System.err.println("method memo hits: " + methodMemo.getHits()
+                        + " of " + (methodMemo.getHits() + methodMemo.getMisses()));
+            }
+            if (validator instanceof ShadowValidator) {
+                System.err.println(((ShadowValidator) validator).summary());
+            }
+            if (schedule != null) {
+                System.err.println(schedule.summary(workers));
+                System.err.print(latencies.summary());
+            }
+        }
+    }
+
+    /**
+     * Runs the pipeline, printing one line per result to standard output.
+     *
+     * @param pipeline     the pipeline
+     * @param paths        the files and archives to validate
+     * @param largestFirst whether to dispatch the largest files first instead of in input order
+     * @param json         whether to print JSON Lines instead of path and code
+     * @param ordered      whether to print in input order instead of completion order
+     * @param observer     also receives every result, or {@code null}
+     * @throws Exception if the pipeline fails or the results cannot be written
+     */
+    private static void run(BatchPipeline pipeline, List<Path> paths, boolean largestFirst, boolean json,
+                            boolean ordered, BatchSink observer) throws Exception {
+        BatchSink sink;
+        if (json) {
+            JsonLinesWriter out = new JsonLinesWriter(System.out);
+            sink = new BatchSink() {
+                @Override
+                public void accept(BatchResult result) throws IOException {
+                    out.write(result.getName(), result.getResult());
+                    if (observer != null) {
+                        observer.accept(result);
+                    }
+                }
+
+                @Override
+                public void drained() throws IOException {
+                    out.flush();
+                }
+            };
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            sink = new BatchSink() {
+                @Override
+                public void accept(BatchResult result) throws IOException {
+                    out.write(result.getName() + " " + result.getVerdict().getCode() + System.lineSeparator());
+                    if (observer != null) {
+                        observer.accept(result);
+                    }
+                }
+
+                @Override
+                public void drained() throws IOException {
+                    out.flush();
+                }
+            };
+        }
+        if (largestFirst) {
+            try (LargestFirstSource inputs = new LargestFirstSource(paths)) {
+                pipeline.run(inputs, sink, ordered);
+            }
+        } else {
+            try (PathSource inputs = new PathSource(paths)) {
+                pipeline.run(inputs, sink, ordered);
+            }
+        }
+    }
+
+    /**
+     * Wraps a validator so identical contents are validated once.
+     *
+     * @param validator the validator
+     * @param dedup     whether to deduplicate
+     * @return the validator to run
+     */
+    private static ContentValidator deduplicated(ContentValidator validator, boolean dedup) {
+        return dedup ? new DeduplicatingValidator(validator) : validator;
+    }
+
+    /**
+     * Wraps a validator so the metrics count the validations in flight. A content hash computed
+     * above is passed through.
+     *
+     * @param validator the validator
+     * @param metrics   the metrics of the run, or {@code null} for none
+     * @return the validator to run
+     */
+    private static ContentValidator metered(ContentValidator validator, ValidatorMetrics metrics) {
+        if (metrics == null) {
+            return validator;
+        }
+        return new ContentValidator() {
+            @Override
+            public ValidationResult check(String name, byte[] content) {
+                metrics.begin();
+                try {
+                    return validator.check(name, content);
+                } finally {
+                    metrics.end();
+                }
+            }
+
+            @Override
+            public ValidationResult check(String name, byte[] content, ContentHash hash) {
+                metrics.begin();
+                try {
+                    return validator.check(name, content, hash);
+                } finally {
+                    metrics.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Points the metrics at the queue of the pipeline and at the caches of the run.
+     *
+     * @param metrics    the metrics of the run, or {@code null} for none
+     * @param pipeline   the pipeline
+     * @param validator  the validator, deduplicating or not
+     * @param methodMemo the method memo, or {@code null} if the run has none in this JVM
+     * @param checkpoint the checkpoint log, or {@code null} for none
+     */
+    private static void publish(ValidatorMetrics metrics, BatchPipeline pipeline, ContentValidator validator,
+                                MethodMemo methodMemo, CheckpointLog checkpoint) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.setQueueDepth(pipeline::getQueueDepth);
+        if (validator instanceof DeduplicatingValidator) {
+            DeduplicatingValidator deduplicating = (DeduplicatingValidator) validator;
+            metrics.addHitRatio("dedup", () -> ratio(deduplicating.getShared(), deduplicating.getChecked()));
+        }
+        if (methodMemo != null) {
+            metrics.addHitRatio("method_memo", () -> ratio(
+                    methodMemo.getHits(), methodMemo.getHits() + methodMemo.getMisses()));
+        }
+        if (checkpoint != null) {
+            metrics.addHitRatio("checkpoint", () -> ratio(checkpoint.getResumed(), metrics.getFilesValidated()));
+        }
+    }
+
+    /**
+     * Divides hits by lookups.
+     *
+     * @param hits    the hits
+     * @param lookups the lookups
+     * @return the ratio, 0 before any lookup
+     */
+    private static double ratio(long hits, long lookups) {
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Combines what else receives every result: the schedule statistics and the metrics.
+     *
+     * @param schedule the schedule statistics, or {@code null}
+     * @param metrics  the metrics, or {@code null}
+     * @return the observer, or {@code null} if there is neither
+     */
+    private static BatchSink observer(ScheduleStats schedule, ValidatorMetrics metrics) {
+        if (schedule == null && metrics == null) {
+            return null;
+        }
+        return result -> {
+            if (schedule != null) {
+                schedule.record(result);
+            }
+            if (metrics != null) {
+                metrics.record(result.getResult());
+            }
+        };
+    }
+
+    /**
+     * Wraps a validator so completed inputs are recorded in, and resumed from, a checkpoint log.
+     *
+     * @param validator  the validator
+     * @param checkpoint the checkpoint log, or {@code null} for none
+     * @return the validator to run
+     */
+    private static ContentValidator checkpointed(ContentValidator validator, CheckpointLog checkpoint) {
+        return checkpoint != null ? new CheckpointingValidator(validator, checkpoint) : validator;
+    }
+
+    /**
+     * Prints how many inputs the checkpoint log let the batch skip, if it was resumed.
+     *
+     * @param checkpoint the checkpoint log, or {@code null} for none
+     */
+    private static void reportResumed(CheckpointLog checkpoint) {
+        if (checkpoint != null && checkpoint.getResumable() > 0) {
+            System.err.println("resumed from checkpoint: " + checkpoint.getResumed()
+                    + " of " + checkpoint.getResumable() + " recorded inputs");
+        }
+    }
+
+    /**
+     * Prints how many inputs deduplication saved, if it was on.
+     *
+     * @param validator the validator the batch ran
+     */
+    private static void reportDuplicates(ContentValidator validator) {
+        if (validator instanceof DeduplicatingValidator) {
+            DeduplicatingValidator deduplicating = (DeduplicatingValidator) validator;
+            System.err.println("distinct contents: " + deduplicating.getDistinct()
+                    + " of " + deduplicating.getChecked());
+        }
+    }
+
+    /**
+     * Returns the value of a {@code --name=value} option.
+     *
+     * @param option the option
+     * @return the text after the first {@code '='}
+     */
+    private static String valueOf(String option) {
+        return option.substring(option.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,368 @@
+package ex5.batch;
+
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An append-only log of the inputs a batch has completed, so a batch that stopped part way can be
+ * resumed without validating them again.
+ *
+ * <p>Each record is one line of tab-separated fields: the content hash, the verdict name, the
+ * error kind, the message and the input name. Tabs, line breaks and backslashes inside a field are
+ * escaped with a backslash, and a missing field is written as {@code \N}.</p>
+ *
+ * <p>Records are buffered and written out, then forced to the disk, every {@value #SYNC_RECORDS}
+ * records or once a second, whichever comes first, and on {@link #close()}. The once-a-second sync
+ * is driven by a timer thread, so records are synced even while no new record is appended. A sync
+ * failure on the timer thread is thrown by the next {@link #append} or by {@link #close()}. A crash
+ * loses at most the records since the last sync; those inputs are simply validated again. A record
+ * cut short by a crash is dropped when the log is reopened. One log is safe to share between
+ * threads.</p>
+ */
+public final class CheckpointLog implements Closeable {
+    /** Number of buffered records that triggers a sync. */
+    private static final int SYNC_RECORDS = 512;
+    /** Age of the oldest buffered record that triggers a sync, in nanoseconds. */
+    private static final long SYNC_INTERVAL_NANOS = 1_000_000_000L;
+    /** How often the timer looks for records that have waited long enough, in nanoseconds. */
+    private static final long SYNC_CHECK_NANOS = SYNC_INTERVAL_NANOS / 10;
+    private static final char SEPARATOR = '\t';
+    private static final String ABSENT = "\\N";
+    private static final int FIELDS = 5;
+    /** Size of the blocks read backwards to find the end of the last whole record. */
+    private static final int TAIL_BLOCK = 4096;
+
+    /** A completed input, as read back from the log. */
+    private static final class Completed {
+        private final ContentHash hash;
+        private final ValidationResult result;
+
+        private Completed(ContentHash hash, ValidationResult result) {
+            this.hash = hash;
+            this.result = result;
+        }
+    }
+
+    private final FileChannel channel;
+    private final Map<String, Completed> completed;
+    private final AtomicInteger resumed = new AtomicInteger();
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingRecords;
+    private long oldestPendingNanos;
+    /** The first failure of a sync run by the timer, not reported yet. */
+    private IOException timerFailure;
+    private final ScheduledExecutorService syncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CheckpointLog(FileChannel channel, Map<String, Completed> completed) {
+        this.channel = channel;
+        this.completed = completed;
+        syncTimer.scheduleWithFixedDelay(this::syncOnTimer, SYNC_CHECK_NANOS, SYNC_CHECK_NANOS,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Opens a log, either starting it afresh or resuming from what it already holds.
+     *
+     * @param file   the log file
+     * @param resume whether to keep the records already in the file and append after them,
+     *               instead of emptying it
+     * @return the log
+     * @throws IOException if the file cannot be opened or read
+     */
+    public static CheckpointLog open(Path file, boolean resume) throws IOException {
+        if (!resume) {
+            return new CheckpointLog(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING), new HashMap<>());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            // Drop a record cut short by a crash, so new records start on a line of their own
+            channel.truncate(endOfLastRecord(channel));
+            Map<String, Completed> completed = new HashMap<>();
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(channel.position(0)), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                readRecord(line, completed);
+            }
+            channel.position(channel.size());
+            return new CheckpointLog(channel, completed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the end of the last line break in the file.
+     *
+     * @param channel the file
+     * @return the length of the file up to and including its last line break, 0 if it has none
+     * @throws IOException if the file cannot be read
+     */
+    private static long endOfLastRecord(FileChannel channel) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(TAIL_BLOCK);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - TAIL_BLOCK);
+            block.clear().limit((int) (end - start));
+            while (block.hasRemaining()) {
+                if (channel.read(block, start + block.position()) < 0) {
+                    throw new IOException("Checkpoint log shrank while being read");
+                }
+            }
+            for (int i = block.limit() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * Parses one record into the map of completed inputs; a malformed record is skipped.
+     * A later record for the same input replaces an earlier one.
+     *
+     * @param line      the record
+     * @param completed the completed inputs, by name
+     */
+    private static void readRecord(String line, Map<String, Completed> completed) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length != FIELDS) {
+            return;
+        }
+        try {
+            ContentHash hash = ContentHash.parse(fields[0]);
+            Verdict verdict = Verdict.valueOf(fields[1]);
+            completed.put(unescape(fields[4]), new Completed(hash,
+                    new ValidationResult(verdict, unescape(fields[2]), unescape(fields[3]), null)));
+        } catch (IllegalArgumentException e) {
+            // Not a record this log wrote; the input is validated again
+        }
+    }
+
+    /**
+     * Returns the outcome recorded for an input, if its content is unchanged since.
+     *
+     * @param name the name of the input
+     * @param hash the hash of its current content
+     * @return the recorded outcome, without stage timings, or {@code null} if the input must be
+     * validated
+     */
+    public ValidationResult lookup(String name, ContentHash hash) {
+        Completed entry = completed.get(name);
+        if (entry == null || !entry.hash.equals(hash)) {
+            return null;
+        }
+        resumed.incrementAndGet();
+        return entry.result;
+    }
+
+    /**
+     * Returns the number of completed inputs the log was resumed with.
+     *
+     * @return the number of records read back
+     */
+    public int getResumable() {
+        return completed.size();
+    }
+
+    /**
+     * Returns the number of inputs found completed with unchanged content so far.
+     *
+     * @return the number of successful lookups
+     */
+    public int getResumed() {
+        return resumed.get();
+    }
+
+    /**
+     * Appends the record of a completed input, syncing if enough records are buffered or the
+     * oldest has waited long enough.
+     *
+     * @param name   the name of the input
+     * @param hash   the hash of its content
+     * @param result the outcome reached for it
+     * @throws IOException if the buffered records cannot be written, or a sync by the timer failed
+     */
+    public synchronized void append(String name, ContentHash hash, ValidationResult result) throws IOException {
+        throwTimerFailure();
+        if (pendingRecords == 0) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.append(hash).append(SEPARATOR)
+                .append(result.getVerdict().name()).append(SEPARATOR);
+        appendEscaped(result.getError());
+        pending.append(SEPARATOR);
+        appendEscaped(result.getMessage());
+        pending.append(SEPARATOR);
+        appendEscaped(name);
+        pending.append('\n');
+        pendingRecords++;
+        if (pendingRecords >= SYNC_RECORDS || System.nanoTime() - oldestPendingNanos >= SYNC_INTERVAL_NANOS) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes out the buffered records and forces them to the disk.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (pendingRecords == 0) {
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(pending.toString());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+        pending.setLength(0);
+        pendingRecords = 0;
+    }
+
+    /**
+     * Syncs the records that have waited a second or more, on the timer thread. A failure is kept
+     * for the next caller.
+     */
+    private synchronized void syncOnTimer() {
+        if (pendingRecords == 0 || timerFailure != null || !channel.isOpen()
+                || System.nanoTime() - oldestPendingNanos < SYNC_INTERVAL_NANOS) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            timerFailure = e;
+        }
+    }
+
+    /**
+     * Throws the failure of a sync run by the timer, once.
+     *
+     * @throws IOException if a sync by the timer failed since the last call
+     */
+    private void throwTimerFailure() throws IOException {
+        IOException failure = timerFailure;
+        if (failure != null) {
+            timerFailure = null;
+            throw new IOException("Cannot sync checkpoint log", failure);
+        }
+    }
+
+    /**
+     * Stops the timer, syncs the buffered records and closes the log.
+     *
+     * @throws IOException if the records cannot be written, or a sync by the timer failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        syncTimer.shutdownNow();
+        try {
+            sync();
+            throwTimerFailure();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a field, escaped, or the marker of a missing field.
+     *
+     * @param text the field, or {@code null}
+     */
+    private void appendEscaped(String text) {
+        if (text == null) {
+            pending.append(ABSENT);
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    pending.append("\\\\");
+                    break;
+                case '\t':
+                    pending.append("\\t");
+                    break;
+                case '\n':
+                    pending.append("\\n");
+                    break;
+                case '\r':
+                    pending.append("\\r");
+                    break;
+                default:
+                    pending.append(c);
+            }
+        }
+    }
+
+    /**
+     * Reverses {@link #appendEscaped(String)}.
+     *
+     * @param field the escaped field
+     * @return the text, or {@code null} for the marker of a missing field
+     * @throws IllegalArgumentException if the field holds an unknown escape
+     */
+    private static String unescape(String field) {
+        if (field.equals(ABSENT)) {
+            return null;
+        }
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder text = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if (++i >= field.length()) {
+                throw new IllegalArgumentException("Dangling escape in checkpoint field");
+            }
+            switch (field.charAt(i)) {
+                case '\\':
+                    text.append('\\');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown escape in checkpoint field");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package ex5.batch;
+
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Records every completed input in a {@link CheckpointLog}, and skips inputs the log already holds
+ * with unchanged content.
+ *
+ * <p>An input is skipped when the log has a record under its name with the same SHA-256 hash; the
+ * recorded outcome is reported for it, without stage timings. Only valid and invalid verdicts are
+ * recorded: read errors, timeouts and crashes may not recur, so those inputs are tried again on
+ * resume.</p>
+ *
+ * <p>The hash is passed on to the wrapped validator, so a {@link DeduplicatingValidator} below
+ * does not hash the content again.</p>
+ */
+public class CheckpointingValidator implements ContentValidator {
+    private final ContentValidator validator;
+    private final CheckpointLog log;
+
+    /**
+     * Constructs a new {@code CheckpointingValidator}.
+     *
+     * @param validator the validator run on inputs not completed yet
+     * @param log       the log of completed inputs
+     */
+    public CheckpointingValidator(ContentValidator validator, CheckpointLog log) {
+        this.validator = validator;
+        this.log = log;
+    }
+
+    /**
+     * Reports the recorded outcome of an input completed earlier, or validates it and records it.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @return the outcome for the input
+     * @throws UncheckedIOException if the record cannot be written to the log
+     */
+    @Override
+    public ValidationResult check(String name, byte[] content) {
+        ContentHash hash = ContentHash.of(content);
+        ValidationResult recorded = log.lookup(name, hash);
+        if (recorded != null) {
+            return recorded;
+        }
+        ValidationResult result = validator.check(name, content, hash);
+        if (result.getVerdict() == Verdict.VALID || result.getVerdict() == Verdict.INVALID) {
+            try {
+                log.append(name, hash, result);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write checkpoint log", e);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package ex5.batch;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The SHA-256 hash of an input's content, usable as a map key.
+ */
+public final class ContentHash {
+    private static final String ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /** Length of a SHA-256 digest in hexadecimal digits. */
+    private static final int HEX_LENGTH = 64;
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    private ContentHash(byte[] digest) {
+        this.digest = digest;
+        this.hashCode = Arrays.hashCode(digest);
+    }
+
+    /**
+     * Hashes content.
+     *
+     * @param content the raw bytes of an input
+     * @return the hash of the content
+     */
+    public static ContentHash of(byte[] content) {
+        try {
+            return new ContentHash(MessageDigest.getInstance(ALGORITHM).digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Reads a hash back from its hexadecimal form.
+     *
+     * @param hex the hash, as returned by {@link #toString()}
+     * @return the hash
+     * @throws IllegalArgumentException if the text is not a hexadecimal SHA-256 hash
+     */
+    public static ContentHash parse(String hex) {
+        if (hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("Not a " + ALGORITHM + " hash: " + hex);
+        }
+        byte[] digest = new byte[hex.length() / 2];
+        for (int i = 0; i < digest.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not a " + ALGORITHM + " hash: " + hex);
+            }
+            digest[i] = (byte) (high << 4 | low);
+        }
+        return new ContentHash(digest);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ContentHash && Arrays.equals(digest, ((ContentHash) other).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Returns the hash in lower-case hexadecimal.
+     *
+     * @return the hash in lower-case hexadecimal
+     */
+    @Override
+    public String toString() {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
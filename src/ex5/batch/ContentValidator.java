@@ -0,0 +1,34 @@
+package ex5.batch;
+
+import ex5.main.ValidationResult;
+
+/**
+ * Validates one input whose content is already in memory.
+ * Implementations are called from several batch workers at once, and report every failure of the
+ * input, including a stack overflow on deeply nested code, in the result rather than by throwing.
+ */
+@FunctionalInterface
+public interface ContentValidator {
+    /**
+     * Validates one input.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @return the outcome for the input
+     */
+    ValidationResult check(String name, byte[] content);
+
+    /**
+     * Validates one input whose SHA-256 hash a wrapping validator has already computed, so a
+     * validator that keys on the content can use it instead of hashing the content again.
+     * By default the hash is ignored.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @param hash    the hash of {@code content}
+     * @return the outcome for the input
+     */
+    default ValidationResult check(String name, byte[] content, ContentHash hash) {
+        return check(name, content);
+    }
+}
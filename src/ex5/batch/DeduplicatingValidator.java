@@ -0,0 +1,128 @@
+package ex5.batch;
+
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates each distinct content once per batch, however many inputs share it.
+ *
+ * <p>Inputs are hashed with SHA-256 before parsing, unless a wrapping validator passes the hash
+ * in (see {@link ContentValidator#check(String, byte[], ContentHash)}). The first input with a given hash is validated
+ * by the wrapped validator; every later input with the same hash gets the same outcome, without
+ * stage timings since no stage ran for it. A duplicate arriving while the first is still being
+ * validated waits for that result instead of validating the content a second time.</p>
+ *
+ * <p>Only valid and invalid verdicts are shared, as {@link CheckpointingValidator} only records
+ * those: a read error, timeout or crash may not recur, so a duplicate of such an input is
+ * validated on its own.</p>
+ */
+public class DeduplicatingValidator implements ContentValidator {
+    private final ContentValidator validator;
+    private final ConcurrentMap<ContentHash, CompletableFuture<ValidationResult>> results =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger shared = new AtomicInteger();
+
+    /**
+     * Constructs a new {@code DeduplicatingValidator}.
+     *
+     * @param validator the validator run on each distinct content
+     */
+    public DeduplicatingValidator(ContentValidator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Validates an input, or reuses the outcome of an earlier input with the same content.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @return the outcome for the input
+     */
+    @Override
+    public ValidationResult check(String name, byte[] content) {
+        return check(name, content, ContentHash.of(content));
+    }
+
+    /**
+     * Validates an input whose hash is already known, or reuses the outcome of an earlier input
+     * with the same content.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @param hash    the hash of {@code content}
+     * @return the outcome for the input
+     */
+    @Override
+    public ValidationResult check(String name, byte[] content, ContentHash hash) {
+        checked.incrementAndGet();
+        CompletableFuture<ValidationResult> outcome = new CompletableFuture<>();
+        CompletableFuture<ValidationResult> first = results.putIfAbsent(hash, outcome);
+        if (first != null) {
+            ValidationResult result;
+            try {
+                result = first.join();
+            } catch (CompletionException e) {
+                // The first validation failed; this one reports the failure on its own
+                return validator.check(name, content);
+            }
+            if (!isFinal(result)) {
+                return validator.check(name, content);
+            }
+            shared.incrementAndGet();
+            return result.withoutTimings();
+        }
+        try {
+            ValidationResult result = validator.check(name, content);
+            outcome.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            results.remove(hash, outcome);
+            outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether an outcome holds for any input with the same content.
+     *
+     * @param result the outcome of one input
+     * @return {@code true} for a valid or invalid verdict
+     */
+    private static boolean isFinal(ValidationResult result) {
+        return result.getVerdict() == Verdict.VALID || result.getVerdict() == Verdict.INVALID;
+    }
+
+    /**
+     * Returns the number of inputs checked so far.
+     *
+     * @return the number of inputs checked so far
+     */
+    public int getChecked() {
+        return checked.get();
+    }
+
+    /**
+     * Returns the number of distinct contents seen so far.
+     *
+     * @return the number of distinct contents seen so far
+     */
+    public int getDistinct() {
+        return results.size();
+    }
+
+    /**
+     * Returns the number of inputs that reused the outcome of an earlier input.
+     *
+     * @return the number of inputs not validated again
+     */
+    public int getShared() {
+        return shared.get();
+    }
+}
@@ -0,0 +1,57 @@
+package ex5.batch;
+
+/**
+ * Bounds the number of file bytes held in memory between reading a file and finishing its validation.
+ *
+ * <p>A reader acquires the size of a file before reading it, and the worker releases it once the
+ * file is validated. A file larger than the whole limit is still admitted when nothing else is in
+ * flight, so no file can block the pipeline forever.</p>
+ */
+public final class InFlightBytes {
+    private final long limit;
+    private long used;
+
+    /**
+     * Constructs a new {@code InFlightBytes}.
+     *
+     * @param limit the maximum number of bytes in flight
+     */
+    public InFlightBytes(long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("In-flight limit must be positive: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Waits until the given number of bytes fits under the limit, then takes them.
+     *
+     * @param bytes the number of bytes to take
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        while (used > 0 && used + bytes > limit) {
+            wait();
+        }
+        used += bytes;
+    }
+
+    /**
+     * Gives back bytes taken by {@link #acquire(long)}.
+     *
+     * @param bytes the number of bytes to give back
+     */
+    public synchronized void release(long bytes) {
+        used -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of bytes currently in flight.
+     *
+     * @return the bytes taken and not yet given back
+     */
+    public synchronized long getUsed() {
+        return used;
+    }
+}
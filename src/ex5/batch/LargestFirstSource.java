@@ -0,0 +1,67 @@
+package ex5.batch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hands out the plain files of a batch largest first, so the longest validations start early and
+ * the small files fill the workers' tail (longest-processing-time-first scheduling).
+ *
+ * <p>Every file is sized up front. Archives are streamed and the number and sizes of their entries
+ * are unknown until they are read, so archive entries are handed out after every plain file, in
+ * archive order. Inputs are therefore renumbered: the plain files are numbered 0 to n-1 in command
+ * line order, and the archive entries from n on. Ordered output follows these numbers, so it lists
+ * every plain file before any archive entry; without archives it is in command line order.</p>
+ *
+ * <p>The batch workers take inputs from one shared queue, so a worker that finishes early takes
+ * the next file at once; no file waits behind a busy worker.</p>
+ */
+final class LargestFirstSource implements BatchSource, AutoCloseable {
+    private final List<BatchInput> files;
+    private final PathSource archives;
+    private int next;
+
+    /**
+     * Constructs a new {@code LargestFirstSource}, reading the size of every plain file.
+     *
+     * @param paths the files and archives, in order
+     */
+    LargestFirstSource(List<Path> paths) {
+        List<BatchInput> files = new ArrayList<>();
+        List<Path> archivePaths = new ArrayList<>();
+        for (Path path : paths) {
+            if (ArchiveReader.isArchive(path)) {
+                archivePaths.add(path);
+            } else {
+                files.add(BatchInput.of(files.size(), path));
+            }
+        }
+        // Stable, so files of equal size keep their order
+        files.sort(Comparator.comparingLong(BatchInput::getSize).reversed());
+        this.files = files;
+        this.archives = new PathSource(archivePaths, files.size());
+    }
+
+    /**
+     * Returns the largest file not handed out yet, then the archive entries.
+     *
+     * @return the next input, or {@code null} once every input was handed out
+     */
+    @Override
+    public synchronized BatchInput next() {
+        if (next < files.size()) {
+            return files.get(next++);
+        }
+        return archives.next();
+    }
+
+    /**
+     * Closes the archive being read, if the batch stopped part way through it.
+     */
+    @Override
+    public void close() {
+        archives.close();
+    }
+}
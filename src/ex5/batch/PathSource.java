@@ -0,0 +1,101 @@
+package ex5.batch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The inputs named on the command line: plain files as they are, and archives expanded into their
+ * source entries while the batch runs.
+ *
+ * <p>Archives are read sequentially, so an entry is decompressed into memory while the source is
+ * handed the next input, before the reader takes its size from the in-flight limit. Each reader
+ * thus holds at most one entry over the limit. An archive that cannot be opened, or turns out to
+ * be corrupt part way, gives one input reporting the error under the name of the archive.</p>
+ */
+final class PathSource implements BatchSource, AutoCloseable {
+    private final List<Path> paths;
+    private int nextPath;
+    private int nextIndex;
+    private ArchiveReader archive;
+
+    /**
+     * Constructs a new {@code PathSource}.
+     *
+     * @param paths the files and archives, in order
+     */
+    PathSource(List<Path> paths) {
+        this(paths, 0);
+    }
+
+    /**
+     * Constructs a new {@code PathSource} numbering its inputs from the given index, so it can
+     * follow inputs handed out by another source.
+     *
+     * @param paths      the files and archives, in order
+     * @param firstIndex the index of the first input
+     */
+    PathSource(List<Path> paths, int firstIndex) {
+        this.paths = paths;
+        this.nextIndex = firstIndex;
+    }
+
+    /**
+     * Returns the next file or archive entry.
+     *
+     * @return the next input, or {@code null} once every path was handed out
+     */
+    @Override
+    public synchronized BatchInput next() {
+        while (true) {
+            if (archive != null) {
+                try {
+                    BatchInput entry = archive.next(nextIndex);
+                    if (entry != null) {
+                        nextIndex++;
+                        return entry;
+                    }
+                } catch (IOException e) {
+                    String name = archive.getName();
+                    closeArchive();
+                    return BatchInput.failed(nextIndex++, name, e);
+                }
+                closeArchive();
+            }
+            if (nextPath >= paths.size()) {
+                return null;
+            }
+            Path path = paths.get(nextPath++);
+            if (!ArchiveReader.isArchive(path)) {
+                return BatchInput.of(nextIndex++, path);
+            }
+            try {
+                archive = ArchiveReader.open(path);
+            } catch (IOException e) {
+                return BatchInput.failed(nextIndex++, path.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Closes the archive being read, if any.
+     */
+    private void closeArchive() {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            // Every entry needed was already read
+        }
+        archive = null;
+    }
+
+    /**
+     * Closes the archive being read, if the batch stopped part way through it.
+     */
+    @Override
+    public synchronized void close() {
+        if (archive != null) {
+            closeArchive();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ex5.batch;
+
+import ex5.main.Sjavac;
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates inputs in a pool of long-lived worker JVMs, so a crash or a runaway input cannot
+ * take the whole batch down.
+ *
+ * <p>Every worker runs {@link Sjavac} with {@value Sjavac#WORKER_OPTION} and talks
+ * {@link WorkerProtocol} over its standard input and output. A batch thread checks a worker out,
+ * sends it one input and waits for the verdict. A worker that dies, or does not answer within the
+ * timeout, is killed and replaced by a fresh one, and the input is sent again, up to the attempt
+ * limit. An input that never gets an answer is reported as {@link Verdict#TIMEOUT} if its last
+ * attempt timed out, and as {@link Verdict#CRASHED} otherwise.</p>
+ *
+ * <p>A worker whose replacement JVM cannot be started leaves the pool, and the input it was
+ * checking is reported as {@link Verdict#CRASHED}; the other workers carry on. Once no worker is
+ * left, every input is reported as {@link Verdict#CRASHED} at once.</p>
+ */
+public class ProcessWorkerPool implements ContentValidator, AutoCloseable {
+    /** How long {@link #close()} waits for a worker to exit after its input is closed. */
+    private static final long EXIT_WAIT_MILLIS = 2_000L;
+    /** Error reported for an input whose every attempt was killed by the watchdog. */
+    private static final String TIMEOUT_ERROR = "WorkerTimeout";
+    /** Error reported for an input whose every attempt ended with the worker dying. */
+    private static final String CRASH_ERROR = "WorkerCrash";
+    /** Error reported for an input whose worker could not be restarted, or that found no worker. */
+    private static final String START_ERROR = "WorkerStart";
+
+    /**
+     * One worker JVM and the streams to it.
+     */
+    private final class WorkerProcess {
+        private Process process;
+        private DataOutputStream requests;
+        private DataInputStream responses;
+
+        /**
+         * Starts the worker JVM.
+         *
+         * @throws IOException if the JVM cannot be started
+         */
+        private void start() throws IOException {
+            process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        /**
+         * Kills the worker JVM and starts a fresh one.
+         *
+         * @throws IOException if the new JVM cannot be started
+         */
+        private void restart() throws IOException {
+            process.destroyForcibly();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            restarts.incrementAndGet();
+            start();
+        }
+    }
+
+    private final List<String> command;
+    private final long timeoutMillis;
+    private final int maxAttempts;
+    private final List<WorkerProcess> workers = new ArrayList<>();
+    private final BlockingQueue<WorkerProcess> idle = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final AtomicInteger restarts = new AtomicInteger();
+    /** Workers still in the pool, not yet dropped for failing to restart. */
+    private final AtomicInteger live = new AtomicInteger();
+    /** Put in {@link #idle} once the last worker is dropped, so no caller waits forever. */
+    private final WorkerProcess noWorkers = new WorkerProcess();
+
+    /**
+     * Starts a pool of worker JVMs.
+     *
+     * @param processes       the number of worker JVMs
+     * @param workerArguments extra {@link Sjavac} options passed to every worker, e.g. {@code --prescan}
+     * @param timeoutMillis   the wall time allowed per input and attempt, in milliseconds, or 0 for no limit
+     * @param maxAttempts     the number of times an input is sent before giving up on it
+     * @throws IOException if a worker JVM cannot be started
+     */
+    public ProcessWorkerPool(int processes, List<String> workerArguments, long timeoutMillis, int maxAttempts)
+            throws IOException {
+        this.command = workerCommand(workerArguments);
+        this.timeoutMillis = timeoutMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        for (int i = 0; i < processes; i++) {
+            WorkerProcess worker = new WorkerProcess();
+            workers.add(worker);
+            worker.start();
+            idle.add(worker);
+            live.incrementAndGet();
+        }
+    }
+
+    /**
+     * Builds the command line starting a worker: the current JVM and class path running {@link Sjavac}.
+     *
+     * @param workerArguments extra {@link Sjavac} options
+     * @return the command line
+     */
+    private static List<String> workerCommand(List<String> workerArguments) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Sjavac.class.getName());
+        command.add(Sjavac.WORKER_OPTION);
+        command.addAll(workerArguments);
+        return command;
+    }
+
+    /**
+     * Validates one input on a worker JVM, replacing the worker and retrying if it crashes or times out.
+     *
+     * @param name    the name the input is reported under
+     * @param content the raw bytes of the input
+     * @return the outcome for the input
+     */
+    @Override
+    public ValidationResult check(String name, byte[] content) {
+        WorkerProcess worker;
+        try {
+            worker = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a worker", e);
+        }
+        if (worker == noWorkers) {
+            idle.add(noWorkers);
+            return new ValidationResult(Verdict.CRASHED, START_ERROR, "No worker left in the pool", null);
+        }
+        boolean dropped = false;
+        try {
+            boolean lastTimedOut = false;
+            for (int attempt = 0; attempt < maxAttempts; attempt++) {
+                int id = nextRequestId.incrementAndGet();
+                AtomicBoolean timedOut = new AtomicBoolean();
+                Process process = worker.process;
+                ScheduledFuture<?> kill = timeoutMillis <= 0 ? null : watchdog.schedule(() -> {
+                    timedOut.set(true);
+                    process.destroyForcibly();
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+                ValidationResult result;
+                try {
+                    WorkerProtocol.writeRequest(worker.requests, id, name, content);
+                    result = WorkerProtocol.readResponse(worker.responses, id);
+                } catch (IOException e) {
+                    if (kill != null) {
+                        kill.cancel(false);
+                    }
+                    lastTimedOut = timedOut.get();
+                    worker.restart();
+                    continue;
+                }
+                if (kill != null && !kill.cancel(false)) {
+                    // Answered just as the watchdog fired: the answer stands, the worker is gone
+                    try {
+                        worker.restart();
+                    } catch (IOException e) {
+                        dropped = true;
+                    }
+                }
+                return result;
+            }
+            return lastTimedOut
+                    ? new ValidationResult(Verdict.TIMEOUT, TIMEOUT_ERROR,
+                            "No answer within " + timeoutMillis + " ms, " + maxAttempts + " attempts", null)
+                    : new ValidationResult(Verdict.CRASHED, CRASH_ERROR,
+                            "Worker exited without answering, " + maxAttempts + " attempts", null);
+        } catch (IOException e) {
+            dropped = true;
+            return new ValidationResult(Verdict.CRASHED, START_ERROR,
+                    "Cannot restart a worker: " + e.getMessage(), null);
+        } finally {
+            if (dropped) {
+                drop();
+            } else {
+                idle.add(worker);
+            }
+        }
+    }
+
+    /**
+     * Takes a worker whose process failed to start out of the pool for good. Once the last one
+     * is gone, callers waiting for a worker are woken to report their inputs as crashed.
+     */
+    private void drop() {
+        if (live.decrementAndGet() == 0) {
+            idle.add(noWorkers);
+        }
+    }
+
+    /**
+     * Returns the number of workers replaced so far.
+     *
+     * @return the number of restarts
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Closes the input of every worker, waits for it to exit, and kills it if it does not.
+     */
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        for (WorkerProcess worker : workers) {
+            try {
+                worker.requests.close();
+                if (!worker.process.waitFor(EXIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    worker.process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                worker.process.destroyForcibly();
+            } catch (InterruptedException e) {
+                worker.process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ex5.batch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the size and validation time of every input of a batch, and compares the makespan of
+ * dispatching them in input order (FIFO) with dispatching them largest first (LPT).
+ *
+ * <p>Both makespans are simulated from the measured times: each input in turn goes to the worker
+ * that frees up first, as the shared work queue of the {@link BatchPipeline} does. The measured
+ * wall time of the run is reported next to them. Results are recorded from the writer thread
+ * only.</p>
+ */
+final class ScheduleStats {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final long startNanos = System.nanoTime();
+    private final List<BatchResult> results = new ArrayList<>();
+
+    /**
+     * Records the result of one input.
+     *
+     * @param result the result
+     */
+    void record(BatchResult result) {
+        results.add(result);
+    }
+
+    /**
+     * Returns the makespan of running the inputs in the given order on the given number of workers.
+     *
+     * @param order   the inputs, in dispatch order
+     * @param workers the number of workers
+     * @return the time the last worker finishes, in nanoseconds
+     */
+    private static long makespan(List<BatchResult> order, int workers) {
+        PriorityQueue<Long> freeAt = new PriorityQueue<>();
+        for (int i = 0; i < workers; i++) {
+            freeAt.add(0L);
+        }
+        long makespan = 0;
+        for (BatchResult result : order) {
+            long finish = freeAt.poll() + result.getValidationNanos();
+            makespan = Math.max(makespan, finish);
+            freeAt.add(finish);
+        }
+        return makespan;
+    }
+
+    /**
+     * Describes the run: the wall time since these statistics were created, and the simulated
+     * FIFO and LPT makespans.
+     *
+     * @param workers the number of workers of the run
+     * @return a one-line summary
+     */
+    String summary(int workers) {
+        long wall = System.nanoTime() - startNanos;
+        List<BatchResult> fifo = new ArrayList<>(results);
+        fifo.sort(Comparator.comparingInt(BatchResult::getIndex));
+        List<BatchResult> lpt = new ArrayList<>(fifo);
+        lpt.sort(Comparator.comparingLong(BatchResult::getSize).reversed());
+        long fifoMakespan = makespan(fifo, workers);
+        long lptMakespan = makespan(lpt, workers);
+        long saved = fifoMakespan == 0 ? 0 : 100 * (fifoMakespan - lptMakespan) / fifoMakespan;
+        String change = saved >= 0 ? saved + "% shorter" : -saved + "% longer";
+        return "schedule: " + results.size() + " inputs on " + workers + " workers, wall "
+                + wall / NANOS_PER_MILLI + " ms; simulated makespan FIFO "
+                + fifoMakespan / NANOS_PER_MILLI + " ms, LPT " + lptMakespan / NANOS_PER_MILLI
+                + " ms (" + change + ")";
+    }
+}
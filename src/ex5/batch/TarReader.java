@@ -0,0 +1,307 @@
+package ex5.batch;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the entries of a tar stream, one after the other, without extracting them to disk.
+ *
+ * <p>Understands the POSIX ustar layout, including the name prefix, GNU long names ({@code L}
+ * entries) and the {@code path} record of PAX headers ({@code x} entries), which is what
+ * {@code tar} writes for long names. Other entry types, such as directories and links, are
+ * returned with {@link Entry#isFile()} false.</p>
+ */
+final class TarReader {
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    private static final char TYPE_FILE = '0';
+    private static final char TYPE_OLD_FILE = '\0';
+    private static final char TYPE_CONTIGUOUS_FILE = '7';
+    private static final char TYPE_GNU_LONG_NAME = 'L';
+    private static final char TYPE_PAX_HEADER = 'x';
+    private static final String PAX_PATH = "path";
+    /** Largest entry read into memory; larger ones would not fit in an array. */
+    private static final long MAX_ENTRY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * One entry of a tar stream.
+     */
+    static final class Entry {
+        private final String name;
+        private final long size;
+        private final boolean file;
+
+        private Entry(String name, long size, boolean file) {
+            this.name = name;
+            this.size = size;
+            this.file = file;
+        }
+
+        /**
+         * Returns the path of the entry inside the archive.
+         *
+         * @return the path of the entry inside the archive
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the size of the entry in bytes.
+         *
+         * @return the size of the entry in bytes
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns whether the entry is a regular file.
+         *
+         * @return whether the entry is a regular file
+         */
+        boolean isFile() {
+            return file;
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK_SIZE];
+    /** Bytes of the current entry, padding included, not yet read. */
+    private long remaining;
+
+    /**
+     * Constructs a new {@code TarReader}.
+     *
+     * @param in the uncompressed tar stream
+     */
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Skips whatever is left of the current entry and reads the header of the next one.
+     *
+     * @return the next entry, or {@code null} at the end of the archive
+     * @throws IOException if the stream cannot be read or is not a tar archive
+     */
+    Entry nextEntry() throws IOException {
+        skip(remaining);
+        remaining = 0;
+        String longName = null;
+        while (true) {
+            if (!readHeader()) {
+                return null;
+            }
+            long size = parseSize();
+            char type = (char) header[TYPE_OFFSET];
+            String name = longName != null ? longName : headerName();
+            if (type == TYPE_GNU_LONG_NAME) {
+                longName = trimNul(new String(readData(size), StandardCharsets.UTF_8));
+            } else if (type == TYPE_PAX_HEADER) {
+                String paxName = paxPath(readData(size));
+                if (paxName != null) {
+                    longName = paxName;
+                }
+            } else {
+                remaining = padded(size);
+                boolean file = type == TYPE_FILE || type == TYPE_OLD_FILE || type == TYPE_CONTIGUOUS_FILE;
+                return new Entry(name, size, file);
+            }
+        }
+    }
+
+    /**
+     * Reads the content of the entry just returned by {@link #nextEntry()}.
+     *
+     * @param entry the current entry
+     * @return the content of the entry
+     * @throws IOException if the stream cannot be read or ends inside the entry
+     */
+    byte[] readContent(Entry entry) throws IOException {
+        byte[] content = readData(entry.getSize());
+        remaining = 0;
+        return content;
+    }
+
+    /**
+     * Reads one header block.
+     *
+     * @return false at the end of the archive: an all-zero block, or the end of the stream
+     * @throws IOException if the stream cannot be read or ends inside a block
+     */
+    private boolean readHeader() throws IOException {
+        int read = in.readNBytes(header, 0, BLOCK_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK_SIZE) {
+            throw new EOFException("Truncated tar header");
+        }
+        for (byte b : header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads data of the given size, and the padding after it.
+     *
+     * @param size the size of the data
+     * @return the data
+     * @throws IOException if the stream cannot be read or ends inside the data
+     */
+    private byte[] readData(long size) throws IOException {
+        if (size > MAX_ENTRY_SIZE) {
+            throw new IOException("Tar entry too large: " + size + " bytes");
+        }
+        byte[] data = in.readNBytes((int) size);
+        if (data.length < size) {
+            throw new EOFException("Truncated tar entry");
+        }
+        skip(padded(size) - size);
+        return data;
+    }
+
+    /**
+     * Skips bytes of the stream.
+     *
+     * @param bytes the number of bytes to skip
+     * @throws IOException if the stream cannot be read or ends first
+     */
+    private void skip(long bytes) throws IOException {
+        in.skipNBytes(bytes);
+    }
+
+    /**
+     * Parses the size field of the header: octal, or base-256 when its high bit is set.
+     *
+     * @return the size of the entry
+     * @throws IOException if the field is malformed
+     */
+    private long parseSize() throws IOException {
+        if ((header[SIZE_OFFSET] & 0x80) != 0) {
+            long size = header[SIZE_OFFSET] & 0x7F;
+            for (int i = SIZE_OFFSET + 1; i < SIZE_OFFSET + SIZE_LENGTH; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        long size = 0;
+        for (int i = SIZE_OFFSET; i < SIZE_OFFSET + SIZE_LENGTH; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                // Padding before or terminator after the digits
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Not a tar archive: bad size field");
+            }
+            size = (size << 3) + (b - '0');
+        }
+        return size;
+    }
+
+    /**
+     * Returns the name of the header, joining the ustar prefix and name fields.
+     *
+     * @return the name
+     */
+    private String headerName() {
+        String name = field(NAME_OFFSET, NAME_LENGTH);
+        boolean ustar = header[MAGIC_OFFSET] == 'u' && header[MAGIC_OFFSET + 1] == 's'
+                && header[MAGIC_OFFSET + 2] == 't' && header[MAGIC_OFFSET + 3] == 'a'
+                && header[MAGIC_OFFSET + 4] == 'r';
+        if (ustar) {
+            String prefix = field(PREFIX_OFFSET, PREFIX_LENGTH);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Reads a NUL-terminated text field of the header.
+     *
+     * @param offset the offset of the field
+     * @param length the length of the field
+     * @return the text of the field
+     */
+    private String field(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the {@code path} record of a PAX header. Records read {@code "<length> <key>=<value>\n"}.
+     *
+     * @param data the content of the PAX header
+     * @return the path, or {@code null} if there is none
+     * @throws IOException if a record is malformed
+     */
+    private static String paxPath(byte[] data) throws IOException {
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            if (space == data.length) {
+                throw new IOException("Malformed PAX record");
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed PAX record", e);
+            }
+            // The length counts its own digits, the space and the closing line break
+            if (length < space - position + 2 || length > data.length - position) {
+                throw new IOException("Malformed PAX record");
+            }
+            String record = new String(data, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0 && PAX_PATH.equals(record.substring(0, equals))) {
+                return record.substring(equals + 1);
+            }
+            position += length;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the NUL characters ending a GNU long name.
+     *
+     * @param name the raw name
+     * @return the name
+     */
+    private static String trimNul(String name) {
+        int end = name.indexOf('\0');
+        return end >= 0 ? name.substring(0, end) : name;
+    }
+
+    /**
+     * Rounds a size up to a whole number of blocks.
+     *
+     * @param size the size
+     * @return the padded size
+     */
+    private static long padded(long size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+}
@@ -0,0 +1,378 @@
+package ex5.batch;
+
+import errors.ValidationBudget;
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates the inputs of a source publisher and publishes their results, for callers built on
+ * {@link Flow} pipelines.
+ *
+ * <p>Demand drives everything: the processor asks its source for no more inputs than its
+ * subscriber has requested results for, and never for more than {@code maxInFlight} at once, so
+ * a slow subscriber holds back the reading and validation of the inputs, not just their delivery.
+ * Each input is read and validated by a task on the given executor, and results are published as
+ * they complete, which need not be the order of the inputs; {@link BatchResult#getIndex()} tells
+ * them apart.</p>
+ *
+ * <p>Cancelling the subscription cancels the source and every validation in flight: each task
+ * runs under an unlimited {@link ValidationBudget}, which is cancelled so the validation stops at
+ * its next checkpoint, and its result is dropped. Validators that run elsewhere, such as a
+ * {@link ProcessWorkerPool}, finish their current input instead. An error of the source is passed
+ * on at once, cancelling the validations in flight likewise.</p>
+ *
+ * <p>A processor serves one source and one subscriber; a second subscriber is refused with
+ * {@link IllegalStateException}.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * FileValidator fileValidator = new FileValidator(false);
+ * ValidationProcessor processor = new ValidationProcessor(
+ *         (name, content) -&gt; fileValidator.report(name, content, 500), executor, 8);
+ * inputs.subscribe(processor);
+ * processor.subscribe(resultSubscriber);
+ * </pre>
+ */
+public final class ValidationProcessor implements Flow.Processor<BatchInput, BatchResult> {
+    private final ContentValidator validator;
+    private final Executor executor;
+    private final int maxInFlight;
+    /** The budgets of the validations running now, cancelled along with the subscription. */
+    private final Set<ValidationBudget> runningBudgets = ConcurrentHashMap.newKeySet();
+    /** Serializes the signals to the subscriber: only the thread raising it from 0 drains. */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    /** Results ready to be published, in completion order. */
+    private final Queue<BatchResult> ready = new ArrayDeque<>();
+
+    // The state below is read and written holding the lock of this processor
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super BatchResult> subscriber;
+    /** Results requested by the subscriber and not yet published. */
+    private long demand;
+    /** Inputs requested from the source and not yet received. */
+    private long requested;
+    /** Inputs received whose result is not yet published, including those in {@link #ready}. */
+    private int running;
+    private boolean sourceDone;
+    private Throwable failure;
+    private boolean terminated;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new {@code ValidationProcessor}.
+     *
+     * @param validator   the validator the inputs are checked with; called from the executor's threads
+     * @param executor    runs the reading and validation of each input
+     * @param maxInFlight the most inputs requested from the source or being validated at once
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     */
+    public ValidationProcessor(ContentValidator validator, Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.validator = validator;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Accepts the subscriber of the results. The source is only asked for inputs once the
+     * subscriber requests results.
+     *
+     * @param subscriber receives the results
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super BatchResult> subscriber) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = this.subscriber == null;
+            if (accepted) {
+                this.subscriber = subscriber;
+            }
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A ValidationProcessor has a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requestResults(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelAll();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Accepts the subscription to the source; a second one is cancelled.
+     *
+     * @param subscription the subscription to the source
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !cancelled;
+            if (accepted) {
+                upstream = subscription;
+            }
+        }
+        if (!accepted) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    /**
+     * Starts validating an input of the source on the executor.
+     *
+     * @param input the input
+     */
+    @Override
+    public void onNext(BatchInput input) {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            if (requested > 0) {
+                requested--;
+            }
+            running++;
+        }
+        try {
+            executor.execute(() -> validate(input));
+        } catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Passes an error of the source on to the subscriber and stops the validations in flight.
+     *
+     * @param throwable the error of the source
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    /**
+     * Notes the end of the source; the subscriber is completed once the last result is published.
+     */
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            sourceDone = true;
+            requested = 0;
+        }
+        drain();
+    }
+
+    /**
+     * Reads and validates one input, on an executor thread, under a budget that the cancellation
+     * of the subscription cancels.
+     *
+     * @param input the input
+     */
+    private void validate(BatchInput input) {
+        ValidationBudget budget = ValidationBudget.begin();
+        runningBudgets.add(budget);
+        try {
+            // Checked after registering the budget, so a concurrent cancel sees one or the other
+            if (cancelled) {
+                return;
+            }
+            long start = System.nanoTime();
+            ValidationResult result;
+            long size;
+            try {
+                byte[] content = input.read();
+                size = content.length;
+                result = validator.check(input.getName(), content);
+            } catch (IOException e) {
+                size = input.getSize();
+                result = new ValidationResult(Verdict.IO_ERROR, e.getClass().getSimpleName(), e.getMessage(), null);
+            }
+            complete(new BatchResult(input.getIndex(), input.getName(), result, size, System.nanoTime() - start));
+        } catch (RuntimeException | Error e) {
+            fail(e);
+        } finally {
+            runningBudgets.remove(budget);
+            budget.end();
+        }
+    }
+
+    /**
+     * Queues a result for the subscriber.
+     *
+     * @param result the result of one input
+     */
+    private void complete(BatchResult result) {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            ready.add(result);
+        }
+        drain();
+    }
+
+    /**
+     * Adds to the demand of the subscriber.
+     *
+     * @param n the number of further results requested
+     */
+    private void requestResults(long n) {
+        if (n <= 0) {
+            fail(new IllegalArgumentException("Requested a non-positive number of results: " + n));
+            return;
+        }
+        synchronized (this) {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+        drain();
+    }
+
+    /**
+     * Cancels the source and every validation in flight, and drops the results not yet published.
+     */
+    private void cancelAll() {
+        Flow.Subscription source;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            terminated = true;
+            source = upstream;
+            ready.clear();
+        }
+        if (source != null) {
+            source.cancel();
+        }
+        for (ValidationBudget budget : runningBudgets) {
+            budget.cancel();
+        }
+    }
+
+    /**
+     * Ends the stream with an error: cancels everything, then signals the error to the subscriber.
+     *
+     * @param error the error
+     */
+    private void fail(Throwable error) {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            failure = error;
+        }
+        cancelAll();
+        drain();
+    }
+
+    /**
+     * Publishes ready results as far as the demand allows, signals the end of the stream once
+     * reached, and asks the source for as many inputs as the demand leaves room for. Only one
+     * thread drains at a time; a thread arriving meanwhile has the draining thread go round again.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainOnce();
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * One round of {@link #drain()}.
+     */
+    private void drainOnce() {
+        while (true) {
+            Flow.Subscriber<? super BatchResult> target;
+            BatchResult next = null;
+            Throwable error = null;
+            boolean complete = false;
+            synchronized (this) {
+                target = subscriber;
+                if (target == null) {
+                    return;
+                }
+                if (failure != null) {
+                    error = failure;
+                    failure = null;
+                } else if (terminated) {
+                    return;
+                } else if (demand > 0 && !ready.isEmpty()) {
+                    next = ready.poll();
+                    demand--;
+                    running--;
+                } else if (sourceDone && running == 0) {
+                    terminated = true;
+                    complete = true;
+                }
+            }
+            if (error != null) {
+                target.onError(error);
+                return;
+            }
+            if (complete) {
+                target.onComplete();
+                return;
+            }
+            if (next == null) {
+                break;
+            }
+            target.onNext(next);
+        }
+        requestInputs();
+    }
+
+    /**
+     * Asks the source for more inputs, up to the demand of the subscriber and the in-flight limit.
+     */
+    private void requestInputs() {
+        Flow.Subscription source;
+        long n;
+        synchronized (this) {
+            source = upstream;
+            if (source == null || sourceDone || terminated) {
+                return;
+            }
+            n = Math.min(demand, maxInFlight) - requested - running;
+            if (n <= 0) {
+                return;
+            }
+            requested += n;
+        }
+        source.request(n);
+    }
+}
@@ -0,0 +1,221 @@
+package ex5.batch;
+
+import ex5.main.FileValidator;
+import ex5.main.Stage;
+import ex5.main.StageTimings;
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The framing protocol between the coordinator and its worker JVMs, and the worker loop itself.
+ *
+ * <p>Frames are length-prefixed and big-endian, over the worker's standard input and output:</p>
+ * <ul>
+ *   <li>Request: {@code int id, int nameLength, byte[nameLength] name (UTF-8),
+ *       int contentLength, byte[contentLength] content}.</li>
+ *   <li>Response: {@code int id, byte verdictCode, text error, text message,
+ *       byte stageCount, long[stageCount] stageNanos}, where a text is
+ *       {@code int length, byte[length] (UTF-8)} and a length of -1 stands for {@code null}.
+ *       A stage count of 0 means the timings were not measured.</li>
+ * </ul>
+ * <p>The worker answers every request in order and exits when its standard input is closed.</p>
+ */
+public final class WorkerProtocol {
+    /** Largest name accepted in a request, so a corrupt stream cannot trigger a huge allocation. */
+    private static final int MAX_NAME_LENGTH = 1 << 16;
+    /** Longest error message sent back; longer ones are cut. */
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final Stage[] STAGES = Stage.values();
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * A request read by the worker.
+     */
+    static final class Request {
+        private final int id;
+        private final String name;
+        private final byte[] content;
+
+        private Request(int id, String name, byte[] content) {
+            this.id = id;
+            this.name = name;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Writes a request frame.
+     *
+     * @param out     the worker's standard input
+     * @param id      the request ID, echoed in the response
+     * @param name    the name of the input
+     * @param content the raw bytes of the input
+     * @throws IOException if the frame cannot be written
+     */
+    static void writeRequest(DataOutputStream out, int id, String name, byte[] content) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(id);
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+        out.writeInt(content.length);
+        out.write(content);
+        out.flush();
+    }
+
+    /**
+     * Reads a request frame.
+     *
+     * @param in the worker's standard input
+     * @return the request, or {@code null} at the end of the stream
+     * @throws IOException if the stream ends inside a frame or the frame is malformed
+     */
+    static Request readRequest(DataInputStream in) throws IOException {
+        int id;
+        try {
+            id = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int nameLength = in.readInt();
+        if (nameLength < 0 || nameLength > MAX_NAME_LENGTH) {
+            throw new IOException("Malformed request: name length " + nameLength);
+        }
+        byte[] name = new byte[nameLength];
+        in.readFully(name);
+        int contentLength = in.readInt();
+        if (contentLength < 0) {
+            throw new IOException("Malformed request: content length " + contentLength);
+        }
+        byte[] content = new byte[contentLength];
+        in.readFully(content);
+        return new Request(id, new String(name, StandardCharsets.UTF_8), content);
+    }
+
+    /**
+     * Writes a response frame.
+     *
+     * @param out    the worker's standard output
+     * @param id     the ID of the request answered
+     * @param result the outcome reached
+     * @throws IOException if the frame cannot be written
+     */
+    static void writeResponse(DataOutputStream out, int id, ValidationResult result) throws IOException {
+        out.writeInt(id);
+        out.writeByte(result.getVerdict().getCode());
+        writeText(out, result.getError());
+        String message = result.getMessage();
+        writeText(out, message != null && message.length() > MAX_MESSAGE_LENGTH
+                ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+        StageTimings timings = result.getTimings();
+        out.writeByte(timings == null ? 0 : STAGES.length);
+        if (timings != null) {
+            for (Stage stage : STAGES) {
+                out.writeLong(timings.get(stage));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a response frame.
+     *
+     * @param in the worker's standard output
+     * @param id the ID of the request waited for
+     * @return the outcome of the response
+     * @throws IOException if the stream ends, or the response is malformed or does not match the request
+     */
+    static ValidationResult readResponse(DataInputStream in, int id) throws IOException {
+        int responseId = in.readInt();
+        int code = in.readUnsignedByte();
+        String error = readText(in);
+        String message = readText(in);
+        int stageCount = in.readUnsignedByte();
+        StageTimings timings = null;
+        if (stageCount > 0) {
+            timings = new StageTimings();
+            for (int i = 0; i < stageCount; i++) {
+                long nanos = in.readLong();
+                if (i < STAGES.length) {
+                    timings.add(STAGES[i], nanos);
+                }
+            }
+        }
+        if (responseId != id) {
+            throw new IOException("Response " + responseId + " does not match request " + id);
+        }
+        for (Verdict verdict : Verdict.values()) {
+            if (verdict.getCode() == code) {
+                return new ValidationResult(verdict, error, message, timings);
+            }
+        }
+        throw new IOException("Unknown verdict code " + code);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 text, or -1 for {@code null}.
+     *
+     * @param out  the stream
+     * @param text the text, or {@code null}
+     * @throws IOException if the text cannot be written
+     */
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a text written by {@link #writeText}.
+     *
+     * @param in the stream
+     * @return the text, or {@code null}
+     * @throws IOException if the stream ends or the length is malformed
+     */
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_NAME_LENGTH) {
+            throw new IOException("Malformed response: text length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The worker loop: answers requests until the input stream is closed.
+     *
+     * @param input           the worker's standard input
+     * @param output          the worker's standard output
+     * @param validator       the validator to run
+     * @param cpuBudgetMillis the CPU time allowed per input, in milliseconds, or 0 for no limit
+     * @throws IOException if a frame cannot be read or written
+     */
+    public static void serve(InputStream input, OutputStream output, FileValidator validator,
+                             long cpuBudgetMillis) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        Request request;
+        while ((request = readRequest(in)) != null) {
+            writeResponse(out, request.id, validator.report(request.name, request.content, cpuBudgetMillis));
+        }
+    }
+}
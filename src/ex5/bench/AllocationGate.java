@@ -0,0 +1,214 @@
+package ex5.bench;
+
+import ex5.main.FileValidator;
+import ex5.main.Stage;
+import ex5.main.StageTimings;
+import ex5.main.Verdict;
+import parser.LineMatchers;
+import parser.ParallelParsePolicy;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Measures the bytes allocated per source line by each validation stage and guards against growth.
+ * See {@link TestManifest} for the manifest format.
+ *
+ * <p>Each test is validated by a {@link FileValidator}, so the gate measures the path production
+ * runs: one validator graph per thread, reset between files. The bytes each {@link Stage}
+ * allocates on the current thread are counted by {@link StageTimings}, and divided by the lines of
+ * the files. The memo of validated methods is off and the top-level parse is kept sequential, so
+ * every line is validated and every allocation happens on the measuring thread.</p>
+ *
+ * <p>Only the tests expected to be valid are measured, since an invalid file stops part way.
+ * After the warm-up rounds, the lowest total of the measured rounds is kept for each stage,
+ * so that JIT compilation and escape analysis have settled. A stage fails the gate if it allocates
+ * more bytes per line than the baseline allows, plus the tolerance. The budgets of a manifest are
+ * stored under its path relative to the working directory.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java ex5.bench.AllocationGate [--baseline=FILE] [--tolerance=PERCENT] [--warmup=N]
+ *                               [--rounds=N] [--update] [manifest...]
+ * </pre>
+ * Exits with 0 when the gate passes, 1 when a valid test is rejected and 2 when a stage
+ * allocates more than its budget.</p>
+ */
+public class AllocationGate {
+    private static final String DEFAULT_BASELINE = "alloc-baseline.properties";
+    private static final double DEFAULT_TOLERANCE_PERCENT = 5.0;
+    private static final int DEFAULT_WARMUP_ROUNDS = 20;
+    private static final int DEFAULT_ROUNDS = 10;
+    private static final String BYTES_PER_LINE_KEY = ".bytesPerLine";
+
+    /** The measured stages, in the order they run. */
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final FileValidator fileValidator = new FileValidator(false, LineMatchers.SYNTAX, null,
+            new ParallelParsePolicy(ParallelParsePolicy.NEVER));
+
+    /**
+     * Validates every test once, adding the bytes allocated by each stage and the lines handled.
+     *
+     * @param tests the valid tests of a manifest
+     * @param bytes the bytes allocated per stage, added to
+     * @return the lines of the tests
+     * @throws Exception if a test is rejected
+     */
+    private long runRound(List<TestManifest.Entry> tests, long[] bytes) throws Exception {
+        long lines = 0;
+        for (TestManifest.Entry test : tests) {
+            StageTimings timings = new StageTimings(true);
+            fileValidator.validate(test.getPath(), null, timings);
+            for (Stage stage : STAGES) {
+                bytes[stage.ordinal()] += timings.getAllocatedBytes(stage);
+            }
+            lines += test.getLines();
+        }
+        return lines;
+    }
+
+    /**
+     * Measures the bytes allocated per line by each stage over the valid tests of a manifest.
+     *
+     * @param tests        the valid tests
+     * @param warmupRounds the number of unmeasured rounds
+     * @param rounds       the number of measured rounds
+     * @return the bytes per line of each stage, in the order of {@link #STAGES}
+     * @throws Exception if a test is rejected
+     */
+    private double[] measure(List<TestManifest.Entry> tests, int warmupRounds, int rounds) throws Exception {
+        for (int round = 0; round < warmupRounds; round++) {
+            runRound(tests, new long[STAGES.length]);
+        }
+        long[] best = new long[STAGES.length];
+        Arrays.fill(best, Long.MAX_VALUE);
+        long lines = 0;
+        for (int round = 0; round < rounds; round++) {
+            long[] bytes = new long[STAGES.length];
+            lines = runRound(tests, bytes);
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                best[stage] = Math.min(best[stage], bytes[stage]);
+            }
+        }
+        double[] bytesPerLine = new double[STAGES.length];
+        for (int stage = 0; stage < STAGES.length; stage++) {
+            bytesPerLine[stage] = lines == 0 ? 0 : (double) best[stage] / lines;
+        }
+        return bytesPerLine;
+    }
+
+    /**
+     * Runs the gate from the command line.
+     *
+     * @param args the options, followed by the manifests to run
+     * @throws Exception if a manifest, a test file or the baseline cannot be read or written
+     */
+    public static void main(String[] args) throws Exception {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("This JVM does not report thread allocations");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        Path baselineFile = Paths.get(DEFAULT_BASELINE);
+        double tolerancePercent = DEFAULT_TOLERANCE_PERCENT;
+        int warmupRounds = DEFAULT_WARMUP_ROUNDS;
+        int rounds = DEFAULT_ROUNDS;
+        boolean update = false;
+        List<Path> manifests = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerancePercent = Double.parseDouble(valueOf(arg));
+            } else if (arg.startsWith("--warmup=")) {
+                warmupRounds = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Math.max(1, Integer.parseInt(valueOf(arg)));
+            } else if (arg.equals("--update")) {
+                update = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                manifests.add(Paths.get(arg));
+            }
+        }
+        if (manifests.isEmpty()) {
+            manifests.add(Paths.get(TestManifest.DEFAULT_MANIFEST));
+        }
+
+        Properties baseline = Baselines.load(baselineFile);
+        AllocationGate gate = new AllocationGate();
+        int exitCode = RegressionGate.EXIT_PASSED;
+        boolean baselineChanged = false;
+        for (Path manifest : manifests) {
+            String name = Baselines.keyOf(manifest);
+            List<TestManifest.Entry> tests = new ArrayList<>();
+            for (TestManifest.Entry test : TestManifest.read(manifest)) {
+                if (test.getExpected() == Verdict.VALID) {
+                    tests.add(test);
+                }
+            }
+            double[] bytesPerLine;
+            try {
+                bytesPerLine = gate.measure(tests, warmupRounds, rounds);
+            } catch (Exception e) {
+                System.out.println("FAIL " + name + ": a valid test was rejected: " + e.getMessage());
+                exitCode = RegressionGate.EXIT_WRONG_VERDICT;
+                continue;
+            }
+            if (update) {
+                // Drop the budgets of stages no longer measured, such as those of older versions
+                for (String key : baseline.stringPropertyNames()) {
+                    if (key.startsWith(name + ".") && key.endsWith(BYTES_PER_LINE_KEY)) {
+                        baseline.remove(key);
+                    }
+                }
+            }
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                String key = name + "." + STAGES[stage].getKey() + BYTES_PER_LINE_KEY;
+                System.out.printf(Locale.ROOT, "%s %s: %.1f bytes/line%n", name, STAGES[stage].getKey(),
+                        bytesPerLine[stage]);
+                String stored = baseline.getProperty(key);
+                if (stored != null && !update) {
+                    double budget = Double.parseDouble(stored);
+                    if (bytesPerLine[stage] > budget * (1 + tolerancePercent / 100)) {
+                        System.out.printf(Locale.ROOT, "FAIL %s %s: %.1f bytes/line exceeds the budget of %.1f%n",
+                                name, STAGES[stage].getKey(), bytesPerLine[stage], budget);
+                        if (exitCode == RegressionGate.EXIT_PASSED) {
+                            exitCode = RegressionGate.EXIT_OVER_BASELINE;
+                        }
+                    }
+                    continue;
+                }
+                baseline.setProperty(key, String.format(Locale.ROOT, "%.1f", bytesPerLine[stage]));
+                baselineChanged = true;
+            }
+        }
+
+        if (baselineChanged && exitCode == RegressionGate.EXIT_PASSED) {
+            Baselines.store(baselineFile, baseline, "AllocationGate baseline: bytes allocated per line per stage");
+        }
+        System.out.println(exitCode == RegressionGate.EXIT_PASSED ? "PASS" : "FAIL");
+        System.exit(exitCode);
+    }
+
+    /**
+     * Returns the value of a {@code --name=value} option.
+     *
+     * @param option the option
+     * @return the text after the first {@code '='}
+     */
+    private static String valueOf(String option) {
+        return option.substring(option.indexOf('=') + 1);
+    }
+}
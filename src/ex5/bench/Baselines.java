@@ -0,0 +1,68 @@
+package ex5.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Reads and writes the local baseline files of the regression gates.
+ */
+final class Baselines {
+    private Baselines() {
+    }
+
+    /**
+     * Returns the name a manifest is stored under in a baseline file: its normalized path relative
+     * to the working directory, so two manifests sharing a file name do not share a baseline.
+     *
+     * @param manifest the manifest
+     * @return the path of the manifest, with {@code '/'} separating its elements
+     */
+    static String keyOf(Path manifest) {
+        Path absolute = manifest.toAbsolutePath().normalize();
+        Path key;
+        try {
+            key = Paths.get("").toAbsolutePath().relativize(absolute);
+        } catch (IllegalArgumentException e) {
+            // On another root, such as another drive, there is no relative path
+            key = absolute;
+        }
+        return key.toString().replace(key.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Loads a baseline file.
+     *
+     * @param file the baseline file
+     * @return the stored values, empty if the file does not exist yet
+     * @throws IOException if the file cannot be read
+     */
+    static Properties load(Path file) throws IOException {
+        Properties baseline = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                baseline.load(in);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Writes a baseline file.
+     *
+     * @param file     the baseline file
+     * @param baseline the values to store
+     * @param comment  the header comment of the file
+     * @throws IOException if the file cannot be written
+     */
+    static void store(Path file, Properties baseline, String comment) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            baseline.store(out, comment);
+        }
+        System.out.println("baseline written to " + file);
+    }
+}
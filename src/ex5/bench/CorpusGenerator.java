@@ -0,0 +1,176 @@
+package ex5.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a synthetic corpus of s-Java files together with a manifest of their expected verdicts.
+ *
+ * <p>The manifest has the format of {@code presubmission_sjavac_tests.txt}: one line per file with
+ * the file name, the expected verdict and a description, so {@link RegressionGate} can run it like
+ * the supplied tests. Roughly one file in four gets a single illegal line injected and is expected
+ * to be rejected. The same seed always produces the same corpus.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java ex5.bench.CorpusGenerator &lt;outDir&gt; &lt;files&gt; [methodsPerFile] [seed]
+ * </pre>
+ */
+public class CorpusGenerator {
+    /** Name of the manifest written next to the generated files. */
+    public static final String MANIFEST_NAME = "corpus.txt";
+
+    private static final int DEFAULT_METHODS_PER_FILE = 40;
+    private static final long DEFAULT_SEED = 5L;
+    private static final int STATEMENTS_PER_METHOD = 6;
+    private static final int INVALID_FILE_ONE_IN = 4;
+
+    /** Illegal lines injected into the files expected to be rejected. */
+    private static final String[] ILLEGAL_LINES = {
+            "int bad = \"text\";",
+            "undefinedMethod(1);",
+            "final int fixed;",
+            "boolean flag = 'c';",
+            "if (missing) {\n}",
+    };
+
+    private final Random random;
+    private final int methodsPerFile;
+
+    /**
+     * Constructs a new {@code CorpusGenerator}.
+     *
+     * @param methodsPerFile the number of methods written into each file
+     * @param seed           the seed of the generator
+     */
+    public CorpusGenerator(int methodsPerFile, long seed) {
+        this.methodsPerFile = methodsPerFile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Writes {@code files} s-Java files and the manifest into the given directory.
+     *
+     * @param outDir the directory to write into; created if missing
+     * @param files  the number of files to generate
+     * @return the path of the written manifest
+     * @throws IOException if a file cannot be written
+     */
+    public Path generate(Path outDir, int files) throws IOException {
+        Files.createDirectories(outDir);
+        Path manifest = outDir.resolve(MANIFEST_NAME);
+        try (BufferedWriter manifestWriter = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < files; i++) {
+                String name = String.format(Locale.ROOT, "gen%05d.sjava", i);
+                boolean valid = random.nextInt(INVALID_FILE_ONE_IN) != 0;
+                Files.write(outDir.resolve(name), generateFile(valid).getBytes(StandardCharsets.UTF_8));
+                manifestWriter.write(name + " " + (valid ? 0 : 1) + " generated "
+                        + (valid ? "legal" : "illegal") + " file");
+                manifestWriter.newLine();
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Generates the source of one file.
+     *
+     * @param valid whether the file should be a legal s-Java program
+     * @return the source text
+     */
+    private String generateFile(boolean valid) {
+        StringBuilder source = new StringBuilder();
+        source.append("int g = 1;\n");
+        source.append("final double RATE = 2.5;\n");
+        source.append("String name = \"corpus\";\n");
+        int illegalMethod = valid ? -1 : random.nextInt(methodsPerFile);
+        for (int m = 0; m < methodsPerFile; m++) {
+            if (random.nextInt(8) == 0) {
+                source.append("boolean gb").append(m).append(" = true;\n");
+            }
+            appendMethod(source, m, m == illegalMethod);
+        }
+        return source.toString();
+    }
+
+    /**
+     * Appends one method to the source.
+     *
+     * @param source  the source being built
+     * @param index   the index of the method, used in its name
+     * @param illegal whether to inject an illegal line into the body
+     */
+    private void appendMethod(StringBuilder source, int index, boolean illegal) {
+        source.append("void m").append(index).append("(int a, double b, String s) {\n");
+        int illegalAt = illegal ? random.nextInt(STATEMENTS_PER_METHOD) : -1;
+        for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+            if (i == illegalAt) {
+                source.append(ILLEGAL_LINES[random.nextInt(ILLEGAL_LINES.length)]).append('\n');
+            }
+            appendStatement(source, index, i);
+        }
+        source.append("return;\n}\n");
+    }
+
+    /**
+     * Appends one legal statement, or a small legal block, to a method body.
+     *
+     * @param source the source being built
+     * @param method the index of the enclosing method
+     * @param i      the index of the statement, used in the local names
+     */
+    private void appendStatement(StringBuilder source, int method, int i) {
+        switch (random.nextInt(6)) {
+            case 0:
+                source.append("int x").append(i).append(" = ").append(random.nextInt(1000)).append(";\n");
+                break;
+            case 1:
+                source.append("double d").append(i).append(" = g, e").append(i).append(" = 1.5;\n");
+                break;
+            case 2:
+                source.append("char c").append(i).append(" = 'q';\n");
+                source.append("String t").append(i).append(" = \"value ").append(i).append("\";\n");
+                break;
+            case 3:
+                source.append("if (g || true && RATE) {\n");
+                source.append("int y").append(i).append(" = g;\n");
+                source.append("y").append(i).append(" = 7;\n");
+                source.append("}\n");
+                break;
+            case 4:
+                source.append("while (false) {\n");
+                source.append("m").append(method).append("(g, RATE, name);\n");
+                source.append("}\n");
+                break;
+            default:
+                source.append("m").append(method).append("(").append(random.nextInt(50))
+                        .append(", 0.5, \"call\");\n");
+                break;
+        }
+    }
+
+    /**
+     * Generates a corpus from the command line.
+     *
+     * @param args the output directory, the number of files, and optionally
+     *             the number of methods per file and the seed
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CorpusGenerator <outDir> <files> [methodsPerFile] [seed]");
+            System.exit(2);
+        }
+        int methods = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_METHODS_PER_FILE;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        Path manifest = new CorpusGenerator(methods, seed)
+                .generate(Paths.get(args[0]), Integer.parseInt(args[1]));
+        System.out.println("wrote " + manifest);
+    }
+}
@@ -0,0 +1,501 @@
+package ex5.bench;
+
+import ex5.batch.BatchInput;
+import ex5.batch.BatchResult;
+import ex5.batch.ContentValidator;
+import ex5.batch.ValidationProcessor;
+import ex5.main.FileValidator;
+import ex5.main.Verdict;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that {@link ValidationProcessor} honours the demand of its subscriber and stops on
+ * cancellation, over the tests of a manifest. See {@link TestManifest} for the manifest format.
+ *
+ * <p>The checks:</p>
+ * <ul>
+ *   <li>{@code demand} - a subscriber requesting one result at a time gets the expected verdict
+ *       for every test, and the source is never more than one input ahead of it.</li>
+ *   <li>{@code bounded} - a subscriber requesting {@value #BOUNDED_DEMAND} results gets that many,
+ *       the source is asked for no more, and the stream does not complete.</li>
+ *   <li>{@code cancel} - cancelling while a large generated file is validated cancels the source,
+ *       stops the validation within {@value #CANCEL_LIMIT_MILLIS} ms and delivers nothing.</li>
+ *   <li>{@code budget} - a CPU budget given by the validator times the large file out inside the
+ *       budget the processor binds, and the stream then completes.</li>
+ *   <li>{@code source-error} - an error of the source reaches the subscriber.</li>
+ *   <li>{@code single-subscriber} - a second subscriber is refused.</li>
+ * </ul>
+ *
+ * <p>Usage:
+ * <pre>
+ * java ex5.bench.ProcessorCheck [--threads=N] [manifest]
+ * </pre>
+ * Exits with 0 when every check passes and 1 when one fails.</p>
+ */
+public class ProcessorCheck {
+    /** Results requested by the subscriber of the {@code bounded} check. */
+    private static final int BOUNDED_DEMAND = 5;
+    /** Time a cancelled validation may take to stop, in milliseconds. */
+    private static final long CANCEL_LIMIT_MILLIS = 1_000L;
+    /** Time the validation of the large file runs before it is cancelled, in milliseconds. */
+    private static final long CANCEL_AFTER_MILLIS = 50L;
+    /** CPU time allowed for the large file by the {@code budget} check, in milliseconds. */
+    private static final long SMALL_BUDGET_MILLIS = 20L;
+    /** Time the {@code bounded} check waits for inputs beyond the demand, in milliseconds. */
+    private static final long SETTLE_MILLIS = 500L;
+    /** Time any check waits for the stream to reach the state it expects, in seconds. */
+    private static final long WAIT_SECONDS = 30L;
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final int LARGE_FILE_METHODS = 4_000;
+    private static final int LARGE_FILE_BLOCKS = 5;
+
+    /**
+     * A source handing out its inputs only as requested, counting what it was asked for and what
+     * it emitted.
+     */
+    private static final class CountingSource implements Flow.Publisher<BatchInput> {
+        private final List<BatchInput> inputs;
+        private final Throwable failure;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger emitted = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        /**
+         * Constructs a new {@code CountingSource}.
+         *
+         * @param inputs  the inputs, handed out in order
+         * @param failure the error signalled on the first request instead of any input, or
+         *                {@code null}
+         */
+        private CountingSource(List<BatchInput> inputs, Throwable failure) {
+            this.inputs = inputs;
+            this.failure = failure;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super BatchInput> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                // Guarded by this subscription; only one thread emits at a time
+                private long pending;
+                private boolean emitting;
+                private boolean done;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    synchronized (this) {
+                        pending += n;
+                        if (emitting) {
+                            return;
+                        }
+                        emitting = true;
+                    }
+                    while (true) {
+                        BatchInput next = null;
+                        boolean complete = false;
+                        Throwable error = null;
+                        synchronized (this) {
+                            if (done || cancelled) {
+                                emitting = false;
+                                return;
+                            }
+                            if (failure != null) {
+                                done = true;
+                                error = failure;
+                            } else if (emitted.get() >= inputs.size()) {
+                                done = true;
+                                complete = true;
+                            } else if (pending > 0) {
+                                pending--;
+                                next = inputs.get(emitted.getAndIncrement());
+                            } else {
+                                emitting = false;
+                                return;
+                            }
+                        }
+                        if (error != null) {
+                            subscriber.onError(error);
+                        } else if (complete) {
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onNext(next);
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * A subscriber recording the results, requesting a fixed number up front and then, if asked
+     * to, one more per result.
+     */
+    private static final class Collector implements Flow.Subscriber<BatchResult> {
+        private final long initialDemand;
+        private final boolean requestPerResult;
+        private final CountingSource source;
+        private final Map<Integer, Verdict> verdicts = new ConcurrentHashMap<>();
+        private final AtomicLong maxAhead = new AtomicLong();
+        private final AtomicInteger received = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed;
+
+        /**
+         * Constructs a new {@code Collector}.
+         *
+         * @param initialDemand    the results requested on subscription
+         * @param requestPerResult whether to request one more result per result received
+         * @param source           the source of the stream, whose emitted inputs are compared with
+         *                         the results received, or {@code null}
+         */
+        private Collector(long initialDemand, boolean requestPerResult, CountingSource source) {
+            this.initialDemand = initialDemand;
+            this.requestPerResult = requestPerResult;
+            this.source = source;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(BatchResult result) {
+            verdicts.put(result.getIndex(), result.getVerdict());
+            int count = received.incrementAndGet();
+            if (source != null) {
+                maxAhead.accumulateAndGet(source.emitted.get() - count, Math::max);
+            }
+            if (requestPerResult) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        /**
+         * Waits for the stream to end.
+         *
+         * @return {@code true} if it ended in time
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private boolean awaitEnd() throws InterruptedException {
+            return done.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private final List<TestManifest.Entry> tests;
+    private final ExecutorService executor;
+    private final FileValidator fileValidator = new FileValidator(false);
+    private final byte[] largeFile = largeFile();
+
+    /**
+     * Constructs a new {@code ProcessorCheck}.
+     *
+     * @param tests    the tests run through the processor
+     * @param executor the pool the processor validates on
+     */
+    public ProcessorCheck(List<TestManifest.Entry> tests, ExecutorService executor) {
+        this.tests = tests;
+        this.executor = executor;
+    }
+
+    /**
+     * Generates a large valid s-Java file, whose validation takes long enough to be cancelled.
+     *
+     * @return the content of the file
+     */
+    private static byte[] largeFile() {
+        StringBuilder source = new StringBuilder("int g = 1;\n");
+        for (int method = 0; method < LARGE_FILE_METHODS; method++) {
+            source.append("void m").append(method).append("(int a, double b) {\n");
+            for (int block = 0; block < LARGE_FILE_BLOCKS; block++) {
+                source.append("int x").append(block).append(" = ").append(block).append(";\n")
+                        .append("if (g || true) {\n")
+                        .append("m").append(method).append("(x").append(block).append(", 2.5);\n")
+                        .append("}\n");
+            }
+            source.append("return;\n}\n");
+        }
+        return source.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the inputs of the tests, numbered in manifest order.
+     *
+     * @return the inputs
+     */
+    private List<BatchInput> inputs() {
+        List<BatchInput> inputs = new ArrayList<>(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            inputs.add(BatchInput.of(i, Paths.get(tests.get(i).getPath())));
+        }
+        return inputs;
+    }
+
+    /**
+     * Subscribes a processor to a source and a collector to the processor.
+     *
+     * @param validator the validator of the processor
+     * @param source    the source
+     * @param collector the subscriber of the results
+     * @return the processor
+     */
+    private ValidationProcessor connect(ContentValidator validator, CountingSource source, Collector collector) {
+        ValidationProcessor processor = new ValidationProcessor(validator, executor, MAX_IN_FLIGHT);
+        source.subscribe(processor);
+        processor.subscribe(collector);
+        return processor;
+    }
+
+    /**
+     * Runs every test requesting one result at a time.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the stream
+     */
+    private String checkDemand() throws InterruptedException {
+        CountingSource source = new CountingSource(inputs(), null);
+        Collector collector = new Collector(1, true, source);
+        connect((name, content) -> fileValidator.report(name, content, 0), source, collector);
+        if (!collector.awaitEnd() || !collector.completed) {
+            return "the stream did not complete: " + collector.error;
+        }
+        for (int i = 0; i < tests.size(); i++) {
+            Verdict verdict = collector.verdicts.get(i);
+            if (verdict != tests.get(i).getExpected()) {
+                return tests.get(i).getPath() + " expected " + tests.get(i).getExpected() + " got " + verdict;
+            }
+        }
+        if (collector.maxAhead.get() > 1) {
+            return "the source ran " + collector.maxAhead.get() + " inputs ahead of the subscriber";
+        }
+        return null;
+    }
+
+    /**
+     * Requests fewer results than there are tests, and checks nothing more is read.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the stream
+     */
+    private String checkBounded() throws InterruptedException {
+        if (tests.size() <= BOUNDED_DEMAND) {
+            return "the manifest needs more than " + BOUNDED_DEMAND + " tests";
+        }
+        CountingSource source = new CountingSource(inputs(), null);
+        Collector collector = new Collector(BOUNDED_DEMAND, false, source);
+        connect((name, content) -> fileValidator.report(name, content, 0), source, collector);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+        while (collector.received.get() < BOUNDED_DEMAND && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+        collector.subscription.cancel();
+        if (collector.received.get() != BOUNDED_DEMAND || collector.completed) {
+            return "received " + collector.received.get() + " results"
+                    + (collector.completed ? " and completion" : "");
+        }
+        if (source.requested.get() > BOUNDED_DEMAND || source.emitted.get() > BOUNDED_DEMAND) {
+            return "the source was asked for " + source.requested.get() + " inputs and emitted "
+                    + source.emitted.get();
+        }
+        return null;
+    }
+
+    /**
+     * Cancels the subscription while the large file is validated.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the validation
+     */
+    private String checkCancel() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicLong finishedNanos = new AtomicLong();
+        List<BatchInput> inputs = new ArrayList<>();
+        inputs.add(BatchInput.of(0, "large.sjava", largeFile));
+        CountingSource source = new CountingSource(inputs, null);
+        Collector collector = new Collector(1, false, source);
+        connect((name, content) -> {
+            started.countDown();
+            try {
+                return fileValidator.report(name, content, 0);
+            } finally {
+                finishedNanos.set(System.nanoTime());
+                finished.countDown();
+            }
+        }, source, collector);
+        if (!started.await(WAIT_SECONDS, TimeUnit.SECONDS)) {
+            return "the validation never started";
+        }
+        Thread.sleep(CANCEL_AFTER_MILLIS);
+        long cancelNanos = System.nanoTime();
+        collector.subscription.cancel();
+        if (!finished.await(WAIT_SECONDS, TimeUnit.SECONDS)) {
+            return "the validation did not stop";
+        }
+        long stopMillis = TimeUnit.NANOSECONDS.toMillis(finishedNanos.get() - cancelNanos);
+        if (stopMillis > CANCEL_LIMIT_MILLIS) {
+            return "the validation stopped " + stopMillis + " ms after the cancel";
+        }
+        if (!source.cancelled) {
+            return "the source was not cancelled";
+        }
+        // Give a result that escaped the cancel time to be delivered
+        Thread.sleep(SETTLE_MILLIS);
+        if (collector.received.get() != 0 || collector.completed || collector.error != null) {
+            return "the subscriber was signalled after the cancel";
+        }
+        return null;
+    }
+
+    /**
+     * Validates the large file with a small CPU budget of the validator's own.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the stream
+     */
+    private String checkBudget() throws InterruptedException {
+        List<BatchInput> inputs = new ArrayList<>();
+        inputs.add(BatchInput.of(0, "large.sjava", largeFile));
+        CountingSource source = new CountingSource(inputs, null);
+        Collector collector = new Collector(1, true, source);
+        connect((name, content) -> fileValidator.report(name, content, SMALL_BUDGET_MILLIS), source, collector);
+        if (!collector.awaitEnd() || !collector.completed) {
+            return "the stream did not complete: " + collector.error;
+        }
+        Verdict verdict = collector.verdicts.get(0);
+        return verdict == Verdict.TIMEOUT ? null : "the large file got " + verdict;
+    }
+
+    /**
+     * Fails the source, and checks the error reaches the subscriber.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the stream
+     */
+    private String checkSourceError() throws InterruptedException {
+        IOException failure = new IOException("source failed");
+        CountingSource source = new CountingSource(inputs(), failure);
+        Collector collector = new Collector(1, true, source);
+        connect((name, content) -> fileValidator.report(name, content, 0), source, collector);
+        if (!collector.awaitEnd()) {
+            return "the stream did not end";
+        }
+        return collector.error == failure ? null : "the subscriber got " + collector.error;
+    }
+
+    /**
+     * Subscribes twice to one processor.
+     *
+     * @return why the check failed, or {@code null} if it passed
+     * @throws InterruptedException if interrupted while waiting for the refusal
+     */
+    private String checkSingleSubscriber() throws InterruptedException {
+        CountingSource source = new CountingSource(inputs(), null);
+        Collector first = new Collector(0, false, source);
+        ValidationProcessor processor = connect((name, content) -> fileValidator.report(name, content, 0),
+                source, first);
+        Collector second = new Collector(1, false, null);
+        processor.subscribe(second);
+        first.subscription.cancel();
+        if (!second.awaitEnd()) {
+            return "the second subscriber was not refused";
+        }
+        return second.error instanceof IllegalStateException ? null : "the second subscriber got " + second.error;
+    }
+
+    /**
+     * Prints the outcome of one check.
+     *
+     * @param name   the name of the check
+     * @param reason why the check failed, or {@code null} if it passed
+     * @return {@code true} if the check passed
+     */
+    private static boolean report(String name, String reason) {
+        System.out.println(reason == null ? "PASS " + name : "FAIL " + name + ": " + reason);
+        return reason == null;
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @return {@code true} if every check passed
+     * @throws InterruptedException if interrupted while waiting for a stream
+     */
+    public boolean run() throws InterruptedException {
+        boolean passed = report("demand", checkDemand());
+        passed &= report("bounded", checkBounded());
+        passed &= report("cancel", checkCancel());
+        passed &= report("budget", checkBudget());
+        passed &= report("source-error", checkSourceError());
+        passed &= report("single-subscriber", checkSingleSubscriber());
+        return passed;
+    }
+
+    /**
+     * Runs the checks from the command line.
+     *
+     * @param args the options, optionally followed by the manifest to run
+     * @throws Exception if the manifest or a test file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path manifest = Paths.get(TestManifest.DEFAULT_MANIFEST);
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                manifest = Paths.get(arg);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        boolean passed;
+        try {
+            passed = new ProcessorCheck(TestManifest.read(manifest), executor).run();
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.println(passed ? "PASS" : "FAIL");
+        System.exit(passed ? RegressionGate.EXIT_PASSED : RegressionGate.EXIT_WRONG_VERDICT);
+    }
+}
@@ -0,0 +1,255 @@
+package ex5.bench;
+
+import ex5.main.FileValidator;
+import ex5.main.ShadowValidator;
+import ex5.main.Verdict;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs test manifests through the validator and guards against wrong verdicts and slowdowns.
+ * See {@link TestManifest} for the manifest format.
+ *
+ * <p>Each manifest is validated once to warm up and check the verdicts, then timed over several
+ * rounds on a thread pool; the fastest round is kept. Its wall time and throughput are compared
+ * with the baseline file, and the gate fails if the wall time grew by more than the tolerance.
+ * A manifest is stored under its path relative to the working directory, and is added to the
+ * baseline when missing from it.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java ex5.bench.RegressionGate [--baseline=FILE] [--tolerance=PERCENT] [--threads=N]
+ *                               [--rounds=N] [--cpu-budget-ms=N] [--prescan] [--shadow=DIR]
+ *                               [--update] [manifest...]
+ * </pre>
+ * With {@code --shadow}, every file is also compared with the legacy path (see {@link ShadowValidator});
+ * the timings then include both paths.
+ * Exits with 0 when the gate passes, 1 on a wrong verdict and 2 on a slowdown.</p>
+ */
+public class RegressionGate {
+    private static final String DEFAULT_BASELINE = "perf-baseline.properties";
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+    private static final int DEFAULT_ROUNDS = 5;
+
+    private static final String WALL_MICROS_KEY = ".wallMicros";
+    private static final String FILES_PER_SECOND_KEY = ".filesPerSecond";
+    private static final String LINES_PER_SECOND_KEY = ".linesPerSecond";
+
+    /** Exit code of a run whose verdicts and timings are all within the baseline. */
+    public static final int EXIT_PASSED = 0;
+    /** Exit code of a run in which some file got the wrong verdict. */
+    public static final int EXIT_WRONG_VERDICT = 1;
+    /** Exit code of a run that exceeds its baseline by more than the tolerance. */
+    public static final int EXIT_OVER_BASELINE = 2;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final long NANOS_PER_MICRO = 1_000L;
+
+    private final FileValidator validator;
+    private final ExecutorService executor;
+    private final int rounds;
+    private final long cpuBudgetMillis;
+
+    /**
+     * Constructs a new {@code RegressionGate}.
+     *
+     * @param validator       the validator to run the tests through
+     * @param executor        the pool the files of a round are validated on
+     * @param rounds          the number of timed rounds per manifest
+     * @param cpuBudgetMillis the CPU time allowed per file, in milliseconds, or 0 for no limit
+     */
+    public RegressionGate(FileValidator validator, ExecutorService executor, int rounds, long cpuBudgetMillis) {
+        this.validator = validator;
+        this.executor = executor;
+        this.rounds = rounds;
+        this.cpuBudgetMillis = cpuBudgetMillis;
+    }
+
+    /**
+     * Validates every test once on the pool.
+     *
+     * @param tests the tests to run
+     * @return the verdict of each test, in order
+     * @throws InterruptedException if interrupted while waiting for the pool
+     * @throws ExecutionException   if a validation failed unexpectedly
+     */
+    private Verdict[] runRound(List<TestManifest.Entry> tests) throws InterruptedException, ExecutionException {
+        List<Future<Verdict>> futures = new ArrayList<>(tests.size());
+        for (TestManifest.Entry test : tests) {
+            futures.add(executor.submit(() -> validator.check(test.getPath(), cpuBudgetMillis)));
+        }
+        Verdict[] verdicts = new Verdict[tests.size()];
+        for (int i = 0; i < verdicts.length; i++) {
+            verdicts[i] = futures.get(i).get();
+        }
+        return verdicts;
+    }
+
+    /**
+     * Reports every test whose verdict differs from the expected one.
+     *
+     * @param tests    the tests
+     * @param verdicts the verdicts they got
+     * @return the number of wrong verdicts
+     */
+    private static int reportMismatches(List<TestManifest.Entry> tests, Verdict[] verdicts) {
+        int mismatches = 0;
+        for (int i = 0; i < verdicts.length; i++) {
+            TestManifest.Entry test = tests.get(i);
+            if (verdicts[i] != test.getExpected()) {
+                System.out.println("WRONG " + test.getPath() + " expected " + test.getExpected() + " got " + verdicts[i]);
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Runs one manifest: a checked warm-up round, then the timed rounds.
+     *
+     * @param tests the tests of the manifest
+     * @return the wall time of the fastest round, in nanoseconds, or -1 on a wrong verdict
+     * @throws InterruptedException if interrupted while waiting for the pool
+     * @throws ExecutionException   if a validation failed unexpectedly
+     */
+    private long measure(List<TestManifest.Entry> tests) throws InterruptedException, ExecutionException {
+        if (reportMismatches(tests, runRound(tests)) > 0) {
+            return -1;
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            Verdict[] verdicts = runRound(tests);
+            long elapsed = System.nanoTime() - start;
+            if (reportMismatches(tests, verdicts) > 0) {
+                return -1;
+            }
+            best = Math.min(best, elapsed);
+        }
+        return best;
+    }
+
+    /**
+     * Runs the gate from the command line.
+     *
+     * @param args the options, followed by the manifests to run
+     * @throws Exception if a manifest, a test file or the baseline cannot be read or written
+     */
+    public static void main(String[] args) throws Exception {
+        Path baselineFile = Paths.get(DEFAULT_BASELINE);
+        double tolerancePercent = DEFAULT_TOLERANCE_PERCENT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int rounds = DEFAULT_ROUNDS;
+        long cpuBudgetMillis = 0;
+        boolean preScan = false;
+        boolean update = false;
+        Path shadowDirectory = null;
+        List<Path> manifests = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerancePercent = Double.parseDouble(valueOf(arg));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--cpu-budget-ms=")) {
+                cpuBudgetMillis = Long.parseLong(valueOf(arg));
+            } else if (arg.equals("--prescan")) {
+                preScan = true;
+            } else if (arg.startsWith("--shadow=")) {
+                shadowDirectory = Paths.get(valueOf(arg));
+            } else if (arg.equals("--update")) {
+                update = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                manifests.add(Paths.get(arg));
+            }
+        }
+        if (manifests.isEmpty()) {
+            manifests.add(Paths.get(TestManifest.DEFAULT_MANIFEST));
+        }
+
+        Properties baseline = Baselines.load(baselineFile);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        FileValidator validator = shadowDirectory != null
+                ? new ShadowValidator(preScan, shadowDirectory)
+                : new FileValidator(preScan);
+        RegressionGate gate = new RegressionGate(validator, executor, rounds, cpuBudgetMillis);
+        int exitCode = EXIT_PASSED;
+        boolean baselineChanged = false;
+        try {
+            for (Path manifest : manifests) {
+                String key = Baselines.keyOf(manifest);
+                List<TestManifest.Entry> tests = TestManifest.read(manifest);
+                long wallNanos = gate.measure(tests);
+                if (wallNanos < 0) {
+                    System.out.println("FAIL " + key + ": wrong verdicts");
+                    exitCode = EXIT_WRONG_VERDICT;
+                    continue;
+                }
+                long lines = 0;
+                for (TestManifest.Entry test : tests) {
+                    lines += test.getLines();
+                }
+                double filesPerSecond = tests.size() * NANOS_PER_SECOND / wallNanos;
+                double linesPerSecond = lines * NANOS_PER_SECOND / wallNanos;
+                long wallMicros = wallNanos / NANOS_PER_MICRO;
+                System.out.printf(Locale.ROOT, "%s: %d files, %d lines, %d us, %.1f files/s, %.0f lines/s%n",
+                        key, tests.size(), lines, wallMicros, filesPerSecond, linesPerSecond);
+
+                String stored = baseline.getProperty(key + WALL_MICROS_KEY);
+                if (stored != null && !update) {
+                    long baselineMicros = Long.parseLong(stored);
+                    double limit = baselineMicros * (1 + tolerancePercent / 100);
+                    if (wallMicros > limit) {
+                        System.out.printf(Locale.ROOT, "FAIL %s: %d us is %.1f%% slower than the baseline %d us%n",
+                                key, wallMicros, (wallMicros - baselineMicros) * 100.0 / baselineMicros,
+                                baselineMicros);
+                        if (exitCode == EXIT_PASSED) {
+                            exitCode = EXIT_OVER_BASELINE;
+                        }
+                    }
+                    continue;
+                }
+                baseline.setProperty(key + WALL_MICROS_KEY, Long.toString(wallMicros));
+                baseline.setProperty(key + FILES_PER_SECOND_KEY, String.format(Locale.ROOT, "%.1f", filesPerSecond));
+                baseline.setProperty(key + LINES_PER_SECOND_KEY, String.format(Locale.ROOT, "%.0f", linesPerSecond));
+                baselineChanged = true;
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (baselineChanged && exitCode == EXIT_PASSED) {
+            Baselines.store(baselineFile, baseline, "RegressionGate baseline: wall time and throughput per manifest");
+        }
+        if (validator instanceof ShadowValidator) {
+            System.out.println(((ShadowValidator) validator).summary());
+        }
+        System.out.println(exitCode == EXIT_PASSED ? "PASS" : "FAIL");
+        System.exit(exitCode);
+    }
+
+    /**
+     * Returns the value of a {@code --name=value} option.
+     *
+     * @param option the option
+     * @return the text after the first {@code '='}
+     */
+    private static String valueOf(String option) {
+        return option.substring(option.indexOf('=') + 1);
+    }
+}
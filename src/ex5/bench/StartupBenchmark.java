@@ -0,0 +1,257 @@
+package ex5.bench;
+
+import ex5.main.CdsArchive;
+import ex5.main.Sjavac;
+import ex5.main.Verdict;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Measures the time to first verdict of fresh {@link Sjavac} launches, with and without a
+ * class-data-sharing archive (see {@link CdsArchive}), and guards it against regressions.
+ * See {@link TestManifest} for the manifest format.
+ *
+ * <p>Each launch is a new JVM running the plain {@code Sjavac file} command on one test of the
+ * manifest, in turn, so the cold-start path is what gets timed. A plain run reports its verdict by
+ * exiting, so the time from starting the process to its exit is measured; the verdict is read
+ * from its output, in the legacy format: nothing for a valid file, the uncaught exception for an
+ * invalid one, and a verdict code for a usage error or a timeout. One untimed launch first warms
+ * the file cache. The median and fastest launch are reported per configuration, and the median
+ * is compared with the baseline file; the gate fails if it grew by more than the tolerance.
+ * Configurations missing from the baseline are added to it. With {@code --archive}, the archive is
+ * created first if missing; it needs the classes in a jar on the class path.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java -cp sjavac.jar ex5.bench.StartupBenchmark [--archive=FILE] [--runs=N] [--baseline=FILE]
+ *                                                [--tolerance=PERCENT] [--update] [manifest]
+ * </pre>
+ * Exits with 0 when the gate passes, 1 on a wrong verdict and 2 on a slowdown.</p>
+ */
+public class StartupBenchmark {
+    private static final String DEFAULT_BASELINE = "startup-baseline.properties";
+    private static final double DEFAULT_TOLERANCE_PERCENT = 20.0;
+    private static final int DEFAULT_RUNS = 20;
+
+    private static final String DEFAULT_CONFIGURATION = "default";
+    private static final String ARCHIVE_CONFIGURATION = "archive";
+    private static final String MEDIAN_MICROS_KEY = ".medianMicros";
+    private static final String MIN_MICROS_KEY = ".minMicros";
+    /** Start of the message the JVM prints for the uncaught exception of an invalid file. */
+    private static final String UNCAUGHT_EXCEPTION = "Exception in thread \"main\" ";
+
+    private static final long NANOS_PER_MICRO = 1_000L;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+
+    private final List<TestManifest.Entry> tests;
+    private final int runs;
+
+    /**
+     * Constructs a new {@code StartupBenchmark}.
+     *
+     * @param tests the tests the launches validate, in turn
+     * @param runs  the number of timed launches per configuration
+     */
+    public StartupBenchmark(List<TestManifest.Entry> tests, int runs) {
+        this.tests = tests;
+        this.runs = runs;
+    }
+
+    /**
+     * Launches {@link Sjavac} once per run with the given JVM options.
+     *
+     * @param jvmOptions the options given to each JVM before the class path
+     * @return the time to first verdict of each launch, in microseconds, sorted; or {@code null}
+     * if some launch reached the wrong verdict
+     * @throws IOException          if a JVM cannot be started or its output read
+     * @throws InterruptedException if interrupted while waiting for a JVM
+     */
+    public long[] measure(List<String> jvmOptions) throws IOException, InterruptedException {
+        launch(jvmOptions, tests.get(0));
+        long[] micros = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            TestManifest.Entry test = tests.get(i % tests.size());
+            long nanos = launch(jvmOptions, test);
+            if (nanos < 0) {
+                return null;
+            }
+            micros[i] = nanos / NANOS_PER_MICRO;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    /**
+     * Launches one JVM validating a test and waits for it to exit with its verdict.
+     *
+     * @param jvmOptions the options given to the JVM before the class path
+     * @param test       the test to validate
+     * @return the time from starting the process to its exit, in nanoseconds, or -1 if the verdict
+     * is wrong
+     * @throws IOException          if the JVM cannot be started or its output read
+     * @throws InterruptedException if interrupted while waiting for the JVM
+     */
+    private static long launch(List<String> jvmOptions, TestManifest.Entry test)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Sjavac.class.getName());
+        command.add(test.getPath());
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream out = process.getInputStream()) {
+            output = new String(out.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int exitCode = process.waitFor();
+        long nanos = System.nanoTime() - start;
+        Verdict verdict = verdictOf(exitCode, output);
+        if (verdict != test.getExpected()) {
+            System.out.println("WRONG " + test.getPath() + " expected " + test.getExpected() + " got " + verdict);
+            return -1;
+        }
+        return nanos;
+    }
+
+    /**
+     * Reads the verdict off the legacy output of a plain {@link Sjavac} run.
+     *
+     * @param exitCode the exit code of the run
+     * @param output   what the run printed, standard output and error together
+     * @return the verdict, or {@link Verdict#CRASHED} if the output is not one {@code Sjavac} prints
+     */
+    private static Verdict verdictOf(int exitCode, String output) {
+        String text = output.trim();
+        if (text.isEmpty()) {
+            return exitCode == 0 ? Verdict.VALID : Verdict.CRASHED;
+        }
+        if (text.startsWith(UNCAUGHT_EXCEPTION)) {
+            String exception = text.substring(UNCAUGHT_EXCEPTION.length());
+            return exception.startsWith("java.io.") || exception.startsWith("java.nio.file.")
+                    ? Verdict.IO_ERROR
+                    : Verdict.INVALID;
+        }
+        for (Verdict verdict : Verdict.values()) {
+            if (text.equals(Integer.toString(verdict.getCode()))) {
+                return verdict;
+            }
+        }
+        return Verdict.CRASHED;
+    }
+
+    /**
+     * Runs the benchmark from the command line.
+     *
+     * @param args the options, optionally followed by the manifest to run
+     * @throws Exception if the manifest, a test file, the archive or the baseline cannot be read
+     *                   or written, or a JVM cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        Path baselineFile = Paths.get(DEFAULT_BASELINE);
+        double tolerancePercent = DEFAULT_TOLERANCE_PERCENT;
+        int runs = DEFAULT_RUNS;
+        boolean update = false;
+        Path archive = null;
+        Path manifest = Paths.get(TestManifest.DEFAULT_MANIFEST);
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(valueOf(arg));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerancePercent = Double.parseDouble(valueOf(arg));
+            } else if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(valueOf(arg));
+            } else if (arg.startsWith("--archive=")) {
+                archive = Paths.get(valueOf(arg));
+            } else if (arg.equals("--update")) {
+                update = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                manifest = Paths.get(arg);
+            }
+        }
+        if (archive != null && !Files.exists(archive)) {
+            CdsArchive.create(archive);
+        }
+
+        Properties baseline = Baselines.load(baselineFile);
+        StartupBenchmark benchmark = new StartupBenchmark(TestManifest.read(manifest), runs);
+        List<String> configurations = new ArrayList<>();
+        configurations.add(DEFAULT_CONFIGURATION);
+        if (archive != null) {
+            configurations.add(ARCHIVE_CONFIGURATION);
+        }
+        int exitCode = RegressionGate.EXIT_PASSED;
+        boolean baselineChanged = false;
+        long defaultMedian = 0;
+        for (String key : configurations) {
+            List<String> jvmOptions = key.equals(ARCHIVE_CONFIGURATION)
+                    ? CdsArchive.launchOptions(archive)
+                    : Collections.emptyList();
+            long[] micros = benchmark.measure(jvmOptions);
+            if (micros == null) {
+                System.out.println("FAIL " + key + ": wrong verdicts");
+                exitCode = RegressionGate.EXIT_WRONG_VERDICT;
+                continue;
+            }
+            long median = micros[micros.length / 2];
+            long min = micros[0];
+            System.out.printf(Locale.ROOT, "%s: %d launches, time to first verdict median %.1f ms, min %.1f ms%n",
+                    key, micros.length, median / MICROS_PER_MILLI, min / MICROS_PER_MILLI);
+            if (key.equals(DEFAULT_CONFIGURATION)) {
+                defaultMedian = median;
+            } else if (defaultMedian > 0) {
+                System.out.printf(Locale.ROOT, "%s: median %.1f%% %s than without the archive%n", key,
+                        Math.abs(defaultMedian - median) * 100.0 / defaultMedian,
+                        median <= defaultMedian ? "shorter" : "longer");
+            }
+
+            String stored = baseline.getProperty(key + MEDIAN_MICROS_KEY);
+            if (stored != null && !update) {
+                long baselineMicros = Long.parseLong(stored);
+                double limit = baselineMicros * (1 + tolerancePercent / 100);
+                if (median > limit) {
+                    System.out.printf(Locale.ROOT, "FAIL %s: %d us is %.1f%% slower than the baseline %d us%n",
+                            key, median, (median - baselineMicros) * 100.0 / baselineMicros, baselineMicros);
+                    if (exitCode == RegressionGate.EXIT_PASSED) {
+                        exitCode = RegressionGate.EXIT_OVER_BASELINE;
+                    }
+                }
+                continue;
+            }
+            baseline.setProperty(key + MEDIAN_MICROS_KEY, Long.toString(median));
+            baseline.setProperty(key + MIN_MICROS_KEY, Long.toString(min));
+            baselineChanged = true;
+        }
+
+        if (baselineChanged && exitCode == RegressionGate.EXIT_PASSED) {
+            Baselines.store(baselineFile, baseline, "StartupBenchmark baseline: time to first verdict per configuration");
+        }
+        System.out.println(exitCode == RegressionGate.EXIT_PASSED ? "PASS" : "FAIL");
+        System.exit(exitCode);
+    }
+
+    /**
+     * Returns the value of a {@code --name=value} option.
+     *
+     * @param option the option
+     * @return the text after the first {@code '='}
+     */
+    private static String valueOf(String option) {
+        return option.substring(option.indexOf('=') + 1);
+    }
+}
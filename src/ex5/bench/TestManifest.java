@@ -0,0 +1,113 @@
+package ex5.bench;
+
+import ex5.main.Verdict;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of test files with their expected verdicts.
+ *
+ * <p>A manifest lists one test per line: the file name, the expected verdict and a description,
+ * as in {@code presubmission_sjavac_tests.txt}. Test files are looked up in a {@code tests}
+ * directory next to the manifest if there is one, and next to the manifest otherwise.</p>
+ */
+final class TestManifest {
+    /** Manifest run when none is given. */
+    static final String DEFAULT_MANIFEST =
+            "src/supplied_material/supplied_material/presubmission_sjavac_tests.txt";
+    private static final String TESTS_DIRECTORY = "tests";
+
+    /**
+     * One test of a manifest.
+     */
+    static final class Entry {
+        private final String path;
+        private final Verdict expected;
+        private final int lines;
+
+        private Entry(String path, Verdict expected, int lines) {
+            this.path = path;
+            this.expected = expected;
+            this.lines = lines;
+        }
+
+        /**
+         * Returns the path of the test file.
+         *
+         * @return the path of the test file
+         */
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the verdict the file should get.
+         *
+         * @return the verdict the file should get
+         */
+        Verdict getExpected() {
+            return expected;
+        }
+
+        /**
+         * Returns the number of lines of the file.
+         *
+         * @return the number of lines of the file
+         */
+        int getLines() {
+            return lines;
+        }
+    }
+
+    private TestManifest() {
+    }
+
+    /**
+     * Reads a manifest.
+     *
+     * @param manifest the manifest file
+     * @return the tests it lists
+     * @throws IOException if the manifest or one of its files cannot be read
+     */
+    static List<Entry> read(Path manifest) throws IOException {
+        Path directory = manifest.toAbsolutePath().getParent();
+        Path testsDirectory = directory.resolve(TESTS_DIRECTORY);
+        if (Files.isDirectory(testsDirectory)) {
+            directory = testsDirectory;
+        }
+        List<Entry> tests = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split("\\s+", 3);
+            if (fields.length < 2) {
+                continue;
+            }
+            Path file = directory.resolve(fields[0]);
+            Verdict expected = "0".equals(fields[1]) ? Verdict.VALID : Verdict.INVALID;
+            tests.add(new Entry(file.toString(), expected, countLines(file)));
+        }
+        return tests;
+    }
+
+    /**
+     * Counts the lines of a file.
+     *
+     * @param file the file
+     * @return the number of lines
+     * @throws IOException if the file cannot be read
+     */
+    private static int countLines(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        int lines = 0;
+        for (byte b : content) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return content.length > 0 && content[content.length - 1] != '\n' ? lines + 1 : lines;
+    }
+}
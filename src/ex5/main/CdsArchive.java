@@ -0,0 +1,215 @@
+package ex5.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes an application class-data-sharing (AppCDS) archive, so later launches of {@link Sjavac}
+ * map the classes it needs, already parsed and verified, instead of loading them one by one.
+ *
+ * <p>The archive is dumped by a child JVM started with {@code -XX:ArchiveClassesAtExit}, which
+ * validates a bundled warm-up corpus of legal and illegal files through every validation path, so
+ * the archive holds the classes of all of them. Later launches use it with
+ * {@code -XX:SharedArchiveFile}; see {@link #launchOptions(Path)}. The JVM only archives classes
+ * read from jar files, so the class path must not hold a directory of classes, and an archive only
+ * fits the JVM and class path it was dumped with.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * java -cp sjavac.jar ex5.main.Sjavac --create-cds-archive=sjavac.jsa
+ * java -XX:SharedArchiveFile=sjavac.jsa -cp sjavac.jar ex5.main.Sjavac file.sjava
+ * </pre>
+ */
+public final class CdsArchive {
+    /** Number of times the warm-up corpus is validated. */
+    private static final int WARM_UP_ROUNDS = 3;
+    /** CPU time allowed per warm-up file, in milliseconds; generous, only there to load the budget. */
+    private static final long WARM_UP_BUDGET_MILLIS = 10_000;
+
+    /** Legal files of the warm-up corpus, covering every kind of line. */
+    private static final String[] LEGAL_SOURCES = {
+            "// members of every type\n"
+                    + "final int a = 5;\n"
+                    + "int b = a, c;\n"
+                    + "double d = -2.5;\n"
+                    + "String s = \"text, with a comma\";\n"
+                    + "char ch = 'x';\n"
+                    + "boolean flag = true;\n"
+                    + "\n"
+                    + "void foo(int x, final double y, String t, char z, boolean w) {\n"
+                    + "    int local = a;\n"
+                    + "    double e = local, f = 1.5;\n"
+                    + "    local = 7;\n"
+                    + "    if (flag || local && 3.5) {\n"
+                    + "        while (false) {\n"
+                    + "            foo(1, 2, \"call\", 'c', flag);\n"
+                    + "        }\n"
+                    + "    }\n"
+                    + "    bar();\n"
+                    + "    return;\n"
+                    + "}\n"
+                    + "\n"
+                    + "void bar() {\n"
+                    + "    b = 3;\n"
+                    + "    return;\n"
+                    + "}\n",
+            "String s;\n"
+                    + "void boo(int a, int b, String s) {\n"
+                    + "\tif (true) {\n"
+                    + "\t\tboo(1,2,\"hello\");\n"
+                    + "\t\twhile (false) {\n"
+                    + "\t\t\tsoo(true);\n"
+                    + "\t\t}\n"
+                    + "\t}\n"
+                    + "\treturn;\n"
+                    + "}\n"
+                    + "void soo(boolean b) {\n"
+                    + "\treturn;\n"
+                    + "}\n",
+    };
+
+    /** Illegal files of the warm-up corpus, each failing in a different stage. */
+    private static final String[] ILLEGAL_SOURCES = {
+            "int a = \"text\";\n",
+            "final int fixed;\n",
+            "int a = 1;\nvoid foo() {\nif (a &&) {\n}\nreturn;\n}\n",
+            "void foo(int a) {\nfoo(1, 2);\nreturn;\n}\n",
+            "void foo(String a) {\nfoo(5);\nreturn;\n}\n",
+            "void foo() {\nundefined(1);\nreturn;\n}\n",
+            "void foo() {\nint x = 1;\n",
+            "void foo() {\nint x = 1\nreturn;\n}\n",
+            "/* not a comment */\n",
+            "void foo() {\nreturn;\n}\nvoid foo() {\nreturn;\n}\n",
+    };
+
+    private CdsArchive() {
+    }
+
+    /**
+     * Writes an archive by running the warm-up corpus in a child JVM with the current class path.
+     *
+     * @param archive the archive file to write; replaced if it exists
+     * @throws IOException          if the class path cannot be archived or the child JVM fails
+     * @throws InterruptedException if interrupted while waiting for the child JVM
+     */
+    public static void create(Path archive) throws IOException, InterruptedException {
+        String classPath = System.getProperty("java.class.path");
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (isNonEmptyDirectory(Paths.get(entry))) {
+                throw new IOException("Only classes in jar files can be archived, but the class path holds "
+                        + "the directory " + entry);
+            }
+        }
+        Path target = archive.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Files.deleteIfExists(target);
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:ArchiveClassesAtExit=" + target);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(Sjavac.class.getName());
+        command.add(Sjavac.CDS_WARM_UP_OPTION);
+        int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (exitCode != 0 || !Files.exists(target)) {
+            throw new IOException("The archive was not written; the dumping JVM exited with " + exitCode);
+        }
+        System.out.println("CDS archive written to " + target + "; launch with "
+                + String.join(" ", launchOptions(target)));
+    }
+
+    /**
+     * Returns the JVM options that launch with an archive written by {@link #create(Path)}.
+     *
+     * @param archive the archive file
+     * @return the options, to be given before the class path
+     */
+    public static List<String> launchOptions(Path archive) {
+        return Collections.singletonList("-XX:SharedArchiveFile=" + archive);
+    }
+
+    /**
+     * Validates the warm-up corpus through every validation path, so the running JVM loads the
+     * classes later launches need. Nothing is printed; the verdicts are not the point.
+     *
+     * @throws IOException if the corpus cannot be written to a temporary directory
+     */
+    static void warmUp() throws IOException {
+        Path directory = Files.createTempDirectory("sjavac-cds");
+        try {
+            List<String> files = new ArrayList<>();
+            int index = 0;
+            for (String source : LEGAL_SOURCES) {
+                files.add(writeSource(directory, index++, source));
+            }
+            for (String source : ILLEGAL_SOURCES) {
+                files.add(writeSource(directory, index++, source));
+            }
+            FileValidator plain = new FileValidator(false);
+            FileValidator preScanned = new FileValidator(true);
+            JsonLinesWriter json = new JsonLinesWriter(OutputStream.nullOutputStream());
+            for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                for (String file : files) {
+                    Sjavac.validFile(new String[]{file});
+                    try {
+                        plain.validate(file);
+                    } catch (Exception e) {
+                        // An illegal file of the corpus; its exception classes are loaded now
+                    }
+                    preScanned.check(file, WARM_UP_BUDGET_MILLIS);
+                    json.write(file, plain.report(file, null, WARM_UP_BUDGET_MILLIS));
+                }
+            }
+            json.flush();
+        } finally {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Writes one file of the warm-up corpus.
+     *
+     * @param directory the directory to write into
+     * @param index     the index of the file, used in its name
+     * @param source    the source text
+     * @return the path of the written file
+     * @throws IOException if the file cannot be written
+     */
+    private static String writeSource(Path directory, int index, String source) throws IOException {
+        Path file = directory.resolve("warmup" + index + ".sjava");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    /**
+     * Returns whether a class path entry is a directory holding anything.
+     *
+     * @param entry the class path entry
+     * @return {@code true} for a non-empty directory
+     * @throws IOException if the directory cannot be listed
+     */
+    private static boolean isNonEmptyDirectory(Path entry) throws IOException {
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(entry)) {
+            return entries.iterator().hasNext();
+        }
+    }
+}
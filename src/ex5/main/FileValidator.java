@@ -0,0 +1,257 @@
+package ex5.main;
+
+import Methods.MethodData;
+import Methods.MethodMemo;
+import errors.ValidationBudget;
+import errors.InvalidLinesException;
+import errors.ValidationTimeoutException;
+import parser.LineMatchers;
+import parser.LineSyntax;
+import parser.ParallelParsePolicy;
+import parser.SJavaFileParser;
+import parser.StructurePreScanner;
+import parser.VariablesAndMethodsParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs every validation stage over a single s-Java file.
+ *
+ * <p>A {@code FileValidator} holds no per-file state between files, so one instance can validate
+ * many files, from several threads at once. Each thread builds its symbol table and validators
+ * once (see {@link ValidationContext}) and reuses them for every later file.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * FileValidator validator = new FileValidator(false);
+ * Verdict verdict = validator.check("test001.sjava", 500);
+ * </pre>
+ */
+public class FileValidator {
+    private final boolean preScan;
+    private final LineSyntax syntax;
+    private final ParallelParsePolicy parsePolicy;
+    /** The validators of each thread, built on first use and reset after every file. */
+    private final ThreadLocal<ValidationContext> contexts;
+
+    /**
+     * Constructs a new {@code FileValidator} checking lines with the default, linear-time syntax.
+     *
+     * @param preScan whether to run the structural pre-scan over the raw bytes first
+     */
+    public FileValidator(boolean preScan) {
+        this(preScan, LineMatchers.SYNTAX);
+    }
+
+    /**
+     * Constructs a new {@code FileValidator} checking lines with the given syntax.
+     *
+     * @param preScan whether to run the structural pre-scan over the raw bytes first
+     * @param syntax  the line syntax every stage checks lines with
+     */
+    public FileValidator(boolean preScan, LineSyntax syntax) {
+        this(preScan, syntax, null);
+    }
+
+    /**
+     * Constructs a new {@code FileValidator} that skips methods already validated by earlier files.
+     *
+     * @param preScan    whether to run the structural pre-scan over the raw bytes first
+     * @param syntax     the line syntax every stage checks lines with
+     * @param methodMemo the memo of validated methods, shared by every file this instance validates,
+     *                   or {@code null} to validate every method
+     */
+    public FileValidator(boolean preScan, LineSyntax syntax, MethodMemo methodMemo) {
+        this(preScan, syntax, methodMemo, ParallelParsePolicy.defaultPolicy());
+    }
+
+    /**
+     * Constructs a new {@code FileValidator} choosing between the sequential and the parallel
+     * top-level parse of each file with the given policy.
+     *
+     * @param preScan     whether to run the structural pre-scan over the raw bytes first
+     * @param syntax      the line syntax every stage checks lines with
+     * @param methodMemo  the memo of validated methods, shared by every file this instance validates,
+     *                    or {@code null} to validate every method
+     * @param parsePolicy decides from the line count of each file whether to parse it in parallel
+     */
+    public FileValidator(boolean preScan, LineSyntax syntax, MethodMemo methodMemo,
+                         ParallelParsePolicy parsePolicy) {
+        this.preScan = preScan;
+        this.syntax = syntax;
+        this.parsePolicy = parsePolicy;
+        this.contexts = ThreadLocal.withInitial(() -> new ValidationContext(syntax, methodMemo));
+    }
+
+    /**
+     * Parses and validates a single s-Java file.
+     * A valid file returns normally; an invalid one is reported by the thrown exception.
+     *
+     * @param sourceFileName the path to the file
+     * @throws IOException if the file cannot be read
+     * @throws Exception   if the file is not a legal s-Java program
+     */
+    public void validate(String sourceFileName) throws Exception {
+        validate(sourceFileName, null);
+    }
+
+    /**
+     * Parses and validates a single s-Java file whose content may already be in memory.
+     * A valid file returns normally; an invalid one is reported by the thrown exception.
+     *
+     * @param sourceFileName the path to the file
+     * @param content        the raw bytes of the file, or {@code null} to read them from the path
+     * @throws IOException if the file cannot be read
+     * @throws Exception   if the file is not a legal s-Java program
+     */
+    public void validate(String sourceFileName, byte[] content) throws Exception {
+        validate(sourceFileName, content, null);
+    }
+
+    /**
+     * Parses and validates a single s-Java file whose content may already be in memory,
+     * adding the time spent in each {@link Stage} to the given timings.
+     * A valid file returns normally; an invalid one is reported by the thrown exception.
+     *
+     * @param sourceFileName the path to the file
+     * @param content        the raw bytes of the file, or {@code null} to read them from the path
+     * @param timings        receives the time spent per stage, or {@code null} to skip measuring
+     * @throws IOException if the file cannot be read
+     * @throws Exception   if the file is not a legal s-Java program
+     */
+    public void validate(String sourceFileName, byte[] content, StageTimings timings) throws Exception {
+        List<String> lines;
+        if (content == null && !preScan && timings == null) {
+            lines = SJavaFileParser.readFileToList(sourceFileName, syntax);
+        } else {
+            if (content == null) {
+                if (timings != null) {
+                    timings.enter(Stage.READ);
+                }
+                content = Files.readAllBytes(Paths.get(sourceFileName));
+            }
+            if (timings != null) {
+                timings.enter(Stage.FILTER);
+            }
+            if (preScan) {
+                // Reject structurally broken files before any line-level parsing
+                new StructurePreScanner().scan(content);
+            }
+            lines = SJavaFileParser.readBytesToList(content, syntax);
+        }
+        int invalidLines = SJavaFileParser.getInvalidLines();
+        if (invalidLines > 0) {
+            throw new InvalidLinesException(invalidLines);
+        }
+
+        if (timings != null) {
+            timings.enter(Stage.PARSE);
+        }
+        VariablesAndMethodsParser variablesAndMethodsParser = new VariablesAndMethodsParser(syntax);
+        if (parsePolicy.isParallel(lines.size())) {
+            variablesAndMethodsParser.parseLinesParallel(lines, ForkJoinPool.commonPool());
+        } else {
+            variablesAndMethodsParser.parseLines(lines);
+        }
+        List<String> globalVariables = variablesAndMethodsParser.getGlobalVariables();
+        Map<String, MethodData> methods = variablesAndMethodsParser.getMethods();
+        if (timings != null) {
+            timings.enter(Stage.GLOBALS);
+        }
+        ValidationContext context = contexts.get();
+        try {
+            context.validateGlobals(globalVariables, variablesAndMethodsParser.getSignatureTable());
+            if (timings != null) {
+                timings.enter(Stage.METHODS);
+            }
+            context.validateMethods(methods);
+        } finally {
+            context.reset();
+        }
+        if (timings != null) {
+            timings.exit();
+        }
+    }
+
+    /**
+     * Validates a single s-Java file and maps the outcome to a {@link Verdict}.
+     *
+     * @param sourceFileName  the path to the file
+     * @param cpuBudgetMillis the CPU time allowed for the file, in milliseconds, or 0 for no limit
+     * @return the verdict for the file
+     */
+    public Verdict check(String sourceFileName, long cpuBudgetMillis) {
+        return check(sourceFileName, null, cpuBudgetMillis);
+    }
+
+    /**
+     * Validates a single s-Java file whose content may already be in memory,
+     * and maps the outcome to a {@link Verdict}.
+     *
+     * @param sourceFileName  the path to the file
+     * @param content         the raw bytes of the file, or {@code null} to read them from the path
+     * @param cpuBudgetMillis the CPU time allowed for the file, in milliseconds, or 0 for no limit
+     * @return the verdict for the file
+     */
+    public Verdict check(String sourceFileName, byte[] content, long cpuBudgetMillis) {
+        ValidationBudget budget = cpuBudgetMillis > 0 ? ValidationBudget.begin(cpuBudgetMillis) : null;
+        try {
+            validate(sourceFileName, content);
+            return Verdict.VALID;
+        } catch (Exception e) {
+            return verdictOf(e);
+        } finally {
+            if (budget != null) {
+                budget.end();
+            }
+        }
+    }
+
+    /**
+     * Validates a single s-Java file whose content may already be in memory, and reports the full
+     * outcome: the verdict, the error behind it and the time spent per stage.
+     *
+     * @param sourceFileName  the path to the file
+     * @param content         the raw bytes of the file, or {@code null} to read them from the path
+     * @param cpuBudgetMillis the CPU time allowed for the file, in milliseconds, or 0 for no limit
+     * @return the outcome for the file
+     */
+    public ValidationResult report(String sourceFileName, byte[] content, long cpuBudgetMillis) {
+        StageTimings timings = new StageTimings();
+        Throwable error = null;
+        ValidationBudget budget = cpuBudgetMillis > 0 ? ValidationBudget.begin(cpuBudgetMillis) : null;
+        try {
+            validate(sourceFileName, content, timings);
+        } catch (Exception | StackOverflowError e) {
+            // A deeply nested input overflows the stack: rejected, as the single-file run would
+            error = e;
+        } finally {
+            timings.exit();
+            if (budget != null) {
+                budget.end();
+            }
+        }
+        return ValidationResult.of(error, timings);
+    }
+
+    /**
+     * Maps an exception thrown by {@link #validate(String)} to a {@link Verdict}.
+     *
+     * @param e the thrown exception
+     * @return the verdict it stands for
+     */
+    static Verdict verdictOf(Exception e) {
+        if (e instanceof ValidationTimeoutException) {
+            return Verdict.TIMEOUT;
+        }
+        if (e instanceof IOException) {
+            return Verdict.IO_ERROR;
+        }
+        return Verdict.INVALID;
+    }
+}
@@ -0,0 +1,136 @@
+package ex5.main;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes validation results as JSON Lines: one JSON object per file, one file per line.
+ *
+ * <p>Each line holds the path, the verdict name and code, the error kind and message
+ * ({@code null} for a valid file), and the time spent per {@link Stage} in nanoseconds
+ * ({@code null} if not measured), for example:</p>
+ * <pre>
+ * {"path":"a.sjava","verdict":"INVALID","code":1,"error":"ValidationException","message":"...",
+ *  "stages_ns":{"read":41000,"filter":52000,"parse":8000,"globals":3000,"methods":0}}
+ * </pre>
+ *
+ * <p>Output is buffered; call {@link #flush()} to push out what was written. One writer may be
+ * shared by several threads, each line being written whole.</p>
+ */
+public class JsonLinesWriter implements Flushable, Closeable {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Constructs a new {@code JsonLinesWriter}.
+     *
+     * @param out the stream the lines are written to, in UTF-8
+     */
+    public JsonLinesWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the line of one file.
+     *
+     * @param path   the path the file is reported under
+     * @param result the outcome for the file
+     * @throws IOException if the line cannot be written
+     */
+    public synchronized void write(String path, ValidationResult result) throws IOException {
+        line.setLength(0);
+        line.append("{\"path\":");
+        appendString(path);
+        line.append(",\"verdict\":\"").append(result.getVerdict().name())
+                .append("\",\"code\":").append(result.getVerdict().getCode())
+                .append(",\"error\":");
+        appendString(result.getError());
+        line.append(",\"message\":");
+        appendString(result.getMessage());
+        line.append(",\"stages_ns\":");
+        StageTimings timings = result.getTimings();
+        if (timings == null) {
+            line.append("null");
+        } else {
+            line.append('{');
+            for (Stage stage : STAGES) {
+                if (stage.ordinal() > 0) {
+                    line.append(',');
+                }
+                line.append('"').append(stage.getKey()).append("\":").append(timings.get(stage));
+            }
+            line.append('}');
+        }
+        line.append("}\n");
+        out.append(line);
+    }
+
+    /**
+     * Appends a JSON string, or {@code null}.
+     *
+     * @param text the text, or {@code null}
+     */
+    private void appendString(String text) {
+        if (text == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        line.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Writes out the buffered lines.
+     *
+     * @throws IOException if the lines cannot be written
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes out the buffered lines and closes the stream.
+     *
+     * @throws IOException if the lines cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
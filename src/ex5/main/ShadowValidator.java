@@ -0,0 +1,226 @@
+package ex5.main;
+
+import errors.ValidationBudget;
+import errors.ValidationTimeoutException;
+import parser.RegexLineSyntax;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FileValidator} that also runs every file through the legacy, regex-based line syntax
+ * and records where the two disagree.
+ *
+ * <p>Only the line syntax is shadowed: the legacy path is a second {@link FileValidator} with
+ * {@link RegexLineSyntax} and the same pre-scan setting, and shares every other component with the optimized path, such as the
+ * tokenizer, the variable storage, the method signature table and the condition cache. A
+ * regression in one of those shows on both paths alike, so the comparison cannot catch it.</p>
+ *
+ * <p>The optimized path stays authoritative: {@link #validate(String, byte[], StageTimings)} returns
+ * or throws exactly as {@link FileValidator#validate(String, byte[], StageTimings)} would. After it, the same file is validated again with
+ * {@link RegexLineSyntax}, and the outcome of both paths is compared by verdict and by error kind
+ * (the class of the thrown exception). The legacy path gets a CPU budget of its own, with the
+ * limit of the optimized one (see {@link ValidationBudget#beginAgain()}), so a file close to the
+ * limit is not cut short on the second run. When the optimized path runs out of its budget the
+ * legacy path is skipped.</p>
+ *
+ * <p>Every file adds one line to {@value #LOG_NAME} in the log directory, with the outcome and the
+ * time of each path. A disagreement also copies the input into {@value #DISAGREEMENTS_DIRECTORY},
+ * next to a note holding both error messages. A log that cannot be written never changes the
+ * outcome; the failures are counted in the {@link #summary()}.</p>
+ */
+public class ShadowValidator extends FileValidator {
+    /** Name of the per-file log in the log directory. */
+    public static final String LOG_NAME = "shadow.log";
+    /** Name of the directory holding the inputs the two paths disagreed on. */
+    public static final String DISAGREEMENTS_DIRECTORY = "disagreements";
+
+    private static final String VALID_KIND = "VALID";
+    private static final long NANOS_PER_MICRO = 1_000L;
+
+    private final FileValidator legacy;
+    private final Path logDirectory;
+
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong disagreements = new AtomicLong();
+    private final AtomicLong optimizedNanos = new AtomicLong();
+    private final AtomicLong legacyNanos = new AtomicLong();
+    private final AtomicLong logFailures = new AtomicLong();
+
+    /**
+     * Constructs a new {@code ShadowValidator}.
+     *
+     * @param preScan      whether both paths run the structural pre-scan first
+     * @param logDirectory the directory receiving the log and the disagreeing inputs
+     * @throws IOException if the log directory cannot be created
+     */
+    public ShadowValidator(boolean preScan, Path logDirectory) throws IOException {
+        super(preScan);
+        this.legacy = new FileValidator(preScan, RegexLineSyntax.INSTANCE);
+        this.logDirectory = logDirectory;
+        Files.createDirectories(logDirectory.resolve(DISAGREEMENTS_DIRECTORY));
+    }
+
+    /**
+     * Validates the file on both paths, records the comparison, and reports the optimized outcome.
+     *
+     * @param sourceFileName the path to the file
+     * @param content        the raw bytes of the file, or {@code null} to read them from the path
+     * @param timings        receives the time the optimized path spent per stage, or {@code null}
+     * @throws Exception the exception the optimized path threw, if any
+     */
+    @Override
+    public void validate(String sourceFileName, byte[] content, StageTimings timings) throws Exception {
+        long start = System.nanoTime();
+        Exception optimizedError = null;
+        try {
+            super.validate(sourceFileName, content, timings);
+        } catch (Exception e) {
+            optimizedError = e;
+        }
+        if (timings != null) {
+            // Close the stage the optimized path failed in, so the legacy run is not counted in it
+            timings.exit();
+        }
+        long optimized = System.nanoTime() - start;
+        optimizedNanos.addAndGet(optimized);
+        files.incrementAndGet();
+        if (optimizedError instanceof ValidationTimeoutException) {
+            throw optimizedError;
+        }
+
+        start = System.nanoTime();
+        Exception legacyError = null;
+        ValidationBudget legacyBudget = ValidationBudget.beginAgain();
+        try {
+            legacy.validate(sourceFileName, content);
+        } catch (Exception e) {
+            legacyError = e;
+        } finally {
+            if (legacyBudget != null) {
+                legacyBudget.end();
+            }
+        }
+        long legacyElapsed = System.nanoTime() - start;
+        legacyNanos.addAndGet(legacyElapsed);
+
+        String optimizedKind = kindOf(optimizedError);
+        String legacyKind = kindOf(legacyError);
+        boolean agree = optimizedKind.equals(legacyKind);
+        if (!agree) {
+            disagreements.incrementAndGet();
+        }
+        try {
+            record(String.format(Locale.ROOT, "%s\t%s\t%d\t%s\t%d\t%s%n", sourceFileName,
+                    optimizedKind, optimized / NANOS_PER_MICRO, legacyKind, legacyElapsed / NANOS_PER_MICRO,
+                    agree ? "AGREE" : "DISAGREE"));
+            if (!agree) {
+                saveDisagreement(sourceFileName, content, optimizedError, legacyError);
+            }
+        } catch (IOException | InvalidPathException e) {
+            // The log is a side channel; the optimized outcome is reported regardless
+            logFailures.incrementAndGet();
+        }
+
+        if (optimizedError != null) {
+            throw optimizedError;
+        }
+    }
+
+    /**
+     * Returns the kind of an outcome: the verdict, refined by the exception class for invalid files.
+     *
+     * @param error the exception a path threw, or {@code null} if the file was valid
+     * @return the kind of the outcome
+     */
+    private static String kindOf(Exception error) {
+        if (error == null) {
+            return VALID_KIND;
+        }
+        Verdict verdict = verdictOf(error);
+        if (verdict != Verdict.INVALID) {
+            return verdict.name();
+        }
+        return verdict.name() + ":" + error.getClass().getSimpleName();
+    }
+
+    /**
+     * Appends a line to the shadow log.
+     *
+     * @param line the line to append
+     * @throws IOException if the log cannot be written
+     */
+    private synchronized void record(String line) throws IOException {
+        Files.write(logDirectory.resolve(LOG_NAME), line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Copies a file the two paths disagreed on into the disagreements directory, with a note.
+     *
+     * @param sourceFileName the file
+     * @param content        the raw bytes of the file, or {@code null} to copy them from the path
+     * @param optimizedError the exception of the optimized path, or {@code null}
+     * @param legacyError    the exception of the legacy path, or {@code null}
+     * @throws IOException          if the copy or the note cannot be written
+     * @throws InvalidPathException if the content must be copied from a name that is not a path
+     */
+    private void saveDisagreement(String sourceFileName, byte[] content,
+                                  Exception optimizedError, Exception legacyError) throws IOException {
+        Path copy = Files.createTempFile(logDirectory.resolve(DISAGREEMENTS_DIRECTORY),
+                "input-", "-" + baseNameOf(sourceFileName));
+        if (content != null) {
+            Files.write(copy, content);
+        } else {
+            Files.copy(Paths.get(sourceFileName), copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        String note = "source: " + sourceFileName + System.lineSeparator()
+                + "optimized: " + describe(optimizedError) + System.lineSeparator()
+                + "legacy: " + describe(legacyError) + System.lineSeparator();
+        Files.write(Paths.get(copy + ".txt"), note.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the last element of a file name, keeping only the characters safe in a file name.
+     * The name is not parsed as a {@link Path}, since an entry of an archive need not be one.
+     *
+     * @param sourceFileName the file
+     * @return the part after the last separator
+     */
+    private static String baseNameOf(String sourceFileName) {
+        String baseName = sourceFileName.substring(
+                Math.max(sourceFileName.lastIndexOf('/'), sourceFileName.lastIndexOf('\\')) + 1);
+        return baseName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Describes an outcome for the disagreement note.
+     *
+     * @param error the exception a path threw, or {@code null}
+     * @return the kind and message of the outcome
+     */
+    private static String describe(Exception error) {
+        return error == null ? VALID_KIND : kindOf(error) + " - " + error.getMessage();
+    }
+
+    /**
+     * Returns a one-line summary of the files compared so far.
+     *
+     * @return the number of files and disagreements, the time spent on each path, and the number
+     * of files whose log could not be written
+     */
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "shadow (line syntax): %d files, %d disagreements, optimized %d ms, legacy %d ms, %d log failures",
+                files.get(), disagreements.get(), optimizedNanos.get() / 1_000_000L, legacyNanos.get() / 1_000_000L,
+                logFailures.get());
+    }
+}
@@ -1,16 +1,8 @@
 package ex5.main;
 
-import Conditions.ConditionValidator;
-import Methods.FunctionCallValidator;
-import Methods.MethodData;
-import Methods.MethodValidator;
-import VariablesManegment.SymbolsTable;
-import VariablesManegment.VariableValidator;
-import parser.SJavaFileParser;
-import java.util.List;
-import java.util.Map;
+import errors.InvalidLinesException;
+
 import java.util.regex.Pattern;
-import parser.VariablesAndMethodsParser;
 
 /**
  * The main class of the Sjavac program.
@@ -20,79 +12,82 @@ import parser.VariablesAndMethodsParser;
 public class Sjavac {
     private static final String VALID_PATH =
             "^([a-zA-Z]:\\\\|/)?([^<>:\"|?*\\r\\n]+/)*([^<>:\"|?*\\r\\n]+)?$";
+    /** Prefix shared by the options given before the file name. */
+    static final String OPTION_PREFIX = "--";
+    /** Option enabling the structural pre-scan of the raw file. */
+    static final String PRESCAN_OPTION = "--prescan";
+    /** Option limiting the CPU time spent validating the file, e.g. {@code --cpu-budget-ms=500}. */
+    static final String CPU_BUDGET_OPTION = "--cpu-budget-ms=";
+    /** Option comparing every file with the legacy path and logging into a directory, e.g. {@code --shadow=logs}. */
+    static final String SHADOW_OPTION = "--shadow=";
+    /** Option running a long-lived batch worker over standard input and output instead of one file. */
+    public static final String WORKER_OPTION = "--worker";
+    /**
+     * Option sizing the memo of validated methods a worker keeps across files, e.g. {@code --method-cache-mb=16};
+     * 0 turns it off.
+     */
+    public static final String METHOD_CACHE_OPTION = "--method-cache-mb=";
+    /** Option printing the outcome as one JSON line (see {@link JsonLinesWriter}) instead of the legacy output. */
+    static final String JSON_OPTION = "--json";
+    /**
+     * Option reading the parallel parse threshold from a calibration file, calibrating and writing
+     * it first if missing, e.g. {@code --parse-calibration=parse.properties}.
+     */
+    public static final String PARSE_CALIBRATION_OPTION = "--parse-calibration=";
+    /**
+     * Command writing a class-data-sharing archive for later launches (see {@link CdsArchive}),
+     * e.g. {@code --create-cds-archive=sjavac.jsa}.
+     */
+    public static final String CREATE_CDS_ARCHIVE_OPTION = "--create-cds-archive=";
+    /** Option validating the bundled warm-up corpus, run by the JVM dumping the archive. */
+    static final String CDS_WARM_UP_OPTION = "--cds-warm-up";
 
     /**
      * The main method of the Sjavac program.
      * This method is responsible for parsing the input file, validating the syntax and semantics of the
      * code, and reporting any errors found.
      *
+     * <p>A plain run, with the file name alone, takes the cold-start path: it touches only the
+     * classes validating that file, and every option is handled by {@link SjavacCommand}, which
+     * is not even loaded otherwise.</p>
+     *
      * @param args The command line arguments passed to the program.
      * @throws Exception if an error occurs during the parsing or validation of the input file.
      */
     public static void main(String[] args) throws Exception {
-        if (!validFile(args)) {
-            System.out.println(1);
-            System.exit(0);
+        if (args.length > 0 && args[0].startsWith(OPTION_PREFIX)) {
+            SjavacCommand.run(args);
+            return;
         }
-
-        String sourceFileName = args[0];
-        List<String> lines = SJavaFileParser.readFileToList(sourceFileName);
-        if (SJavaFileParser.INVALID_LINES > 0) {
-            System.out.println("Nums invalid lines: " + SJavaFileParser.INVALID_LINES);
-            System.out.println("invalid line");
+        if (!validFile(args)) {
+            printVerdict(Verdict.INVALID);
             System.exit(0);
         }
-
-        VariablesAndMethodsParser variablesAndMethodsParser = new VariablesAndMethodsParser();
-        variablesAndMethodsParser.parseLines(lines);
-        List<String> globalVariables = variablesAndMethodsParser.getGlobalVariables();
-        Map<String, MethodData> methods = variablesAndMethodsParser.getMethods();
-        SymbolsTable symbolsTable = new SymbolsTable();
-
-        VariableValidator variableValidator = new VariableValidator(globalVariables,symbolsTable);
-        FunctionCallValidator functionCallValidator = new FunctionCallValidator(methods, variableValidator);
-        ConditionValidator conditionValidator = new ConditionValidator(symbolsTable);
-
-        MethodValidator methodValidator = new MethodValidator(methods,
-                symbolsTable,
-                functionCallValidator,
-                conditionValidator,
-                variableValidator);
-        //try {
-            methodValidator.validateAllMethods();
-        //} catch (Exception e) {
-        //    System.out.println(e.getMessage());
-        //    System.out.println("1");
-        //}
-
-
+        try {
+            new FileValidator(false).validate(args[0]);
+        } catch (InvalidLinesException e) {
+            printInvalidLines(e);
         }
+    }
 
-        //TEST
-        /**
-        SymbolsTable symbolsTable = variableValidator.getSymbolsTable();
-        for (Map<String, Variable> scope : symbolsTable) {
-
-            System.out.println("scope: ");
-            for (Map.Entry<String, Variable> entry : scope.entrySet()) {
-                String varName = entry.getKey();
-                Variable var = entry.getValue();
-                System.out.println("  " + varName + " = " + var.toString());
-
-            }
-        }
-         */
-
-
-        /*
-        Variables variables = new Variables();
-        if (!variables.Variables(lines)) {
-            System.out.println(3);
-            System.exit(0);
-        }
-        System.out.println(0);
+    /**
+     * Prints a file rejected for its invalid lines, in the legacy output format.
+     *
+     * @param e the exception reporting the invalid lines
+     */
+    static void printInvalidLines(InvalidLinesException e) {
+        System.out.println(e.getMessage());
+        System.out.println("invalid line");
+    }
 
-         */
+    /**
+     * Prints the code of a verdict reached without a full validation, in the legacy output format.
+     *
+     * @param verdict the verdict
+     */
+    static void printVerdict(Verdict verdict) {
+        System.out.println(verdict.getCode());
+    }
 
     /**
      * Validates the input file path.
@@ -0,0 +1,167 @@
+package ex5.main;
+
+import errors.InvalidLinesException;
+import errors.ValidationBudget;
+import errors.ValidationTimeoutException;
+import Methods.MethodMemo;
+import ex5.batch.WorkerProtocol;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import parser.LineMatchers;
+import parser.ParallelParsePolicy;
+
+/**
+ * Runs {@link Sjavac} with options: a single file checked with a budget, a pre-scan, the shadow
+ * comparison or JSON output, a batch worker, or the class-data-sharing archive commands.
+ *
+ * <p>Kept apart from {@link Sjavac} so that a plain run never loads the classes these modes need.</p>
+ */
+final class SjavacCommand {
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private SjavacCommand() {
+    }
+
+    /**
+     * Runs Sjavac with the given options, followed by the file name unless the options make it a
+     * command of its own.
+     *
+     * @param args the command line arguments, starting with an option
+     * @throws Exception if an error occurs during the parsing or validation of the input file
+     */
+    static void run(String[] args) throws Exception {
+        if (args.length == 1 && args[0].startsWith(Sjavac.CREATE_CDS_ARCHIVE_OPTION)
+                && args[0].length() > Sjavac.CREATE_CDS_ARCHIVE_OPTION.length()) {
+            CdsArchive.create(Paths.get(args[0].substring(Sjavac.CREATE_CDS_ARCHIVE_OPTION.length())));
+            return;
+        }
+        if (args.length == 1 && Sjavac.CDS_WARM_UP_OPTION.equals(args[0])) {
+            CdsArchive.warmUp();
+            return;
+        }
+        boolean preScan = false;
+        long cpuBudgetMillis = 0;
+        String shadowDirectory = null;
+        boolean worker = false;
+        boolean json = false;
+        long methodCacheChars = MethodMemo.DEFAULT_MAX_CHARS;
+        String calibrationFile = null;
+        int firstArg = 0;
+        while (firstArg < args.length && args[firstArg].startsWith(Sjavac.OPTION_PREFIX)) {
+            String option = args[firstArg++];
+            boolean badOption = false;
+            if (Sjavac.PRESCAN_OPTION.equals(option)) {
+                preScan = true;
+            } else if (option.startsWith(Sjavac.CPU_BUDGET_OPTION)) {
+                cpuBudgetMillis = parsePositive(option.substring(Sjavac.CPU_BUDGET_OPTION.length()));
+                badOption = cpuBudgetMillis < 0;
+            } else if (option.startsWith(Sjavac.SHADOW_OPTION) && option.length() > Sjavac.SHADOW_OPTION.length()) {
+                shadowDirectory = option.substring(Sjavac.SHADOW_OPTION.length());
+            } else if (Sjavac.WORKER_OPTION.equals(option)) {
+                worker = true;
+            } else if (Sjavac.JSON_OPTION.equals(option)) {
+                json = true;
+            } else if (option.startsWith(Sjavac.PARSE_CALIBRATION_OPTION)
+                    && option.length() > Sjavac.PARSE_CALIBRATION_OPTION.length()) {
+                calibrationFile = option.substring(Sjavac.PARSE_CALIBRATION_OPTION.length());
+            } else if (option.startsWith(Sjavac.METHOD_CACHE_OPTION)) {
+                long megabytes = parseNonNegative(option.substring(Sjavac.METHOD_CACHE_OPTION.length()));
+                methodCacheChars = megabytes * BYTES_PER_MB / Character.BYTES;
+                badOption = megabytes < 0;
+            } else {
+                badOption = true;
+            }
+            if (badOption) {
+                Sjavac.printVerdict(Verdict.INVALID);
+                System.exit(0);
+            }
+        }
+        args = Arrays.copyOfRange(args, firstArg, args.length);
+        ParallelParsePolicy parsePolicy = calibrationFile != null
+                ? parsePolicy(calibrationFile)
+                : ParallelParsePolicy.defaultPolicy();
+        if (worker) {
+            // Keep standard output for the protocol; stray prints go to standard error
+            OutputStream protocolOut = new FileOutputStream(FileDescriptor.out);
+            System.setOut(System.err);
+            WorkerProtocol.serve(System.in, protocolOut, shadowDirectory != null
+                    ? new ShadowValidator(preScan, Paths.get(shadowDirectory))
+                    : new FileValidator(preScan, LineMatchers.SYNTAX,
+                            methodCacheChars > 0 ? new MethodMemo(methodCacheChars) : null, parsePolicy),
+                    cpuBudgetMillis);
+            return;
+        }
+        if (!Sjavac.validFile(args)) {
+            Sjavac.printVerdict(Verdict.INVALID);
+            System.exit(0);
+        }
+
+        String sourceFileName = args[0];
+        FileValidator fileValidator = shadowDirectory != null
+                ? new ShadowValidator(preScan, Paths.get(shadowDirectory))
+                : new FileValidator(preScan, LineMatchers.SYNTAX, null, parsePolicy);
+        if (json) {
+            JsonLinesWriter out = new JsonLinesWriter(System.out);
+            out.write(sourceFileName, fileValidator.report(sourceFileName, null, cpuBudgetMillis));
+            out.flush();
+            return;
+        }
+        ValidationBudget budget = cpuBudgetMillis > 0 ? ValidationBudget.begin(cpuBudgetMillis) : null;
+        try {
+            fileValidator.validate(sourceFileName);
+        } catch (InvalidLinesException e) {
+            Sjavac.printInvalidLines(e);
+        } catch (ValidationTimeoutException e) {
+            Sjavac.printVerdict(Verdict.TIMEOUT);
+        } finally {
+            if (budget != null) {
+                budget.end();
+            }
+        }
+    }
+
+    /**
+     * Reads the parallel parse policy from a calibration file, calibrating first if needed.
+     * The calibration only affects speed, so if the file cannot be used the default policy is.
+     *
+     * @param calibrationFile the calibration file
+     * @return the policy
+     */
+    private static ParallelParsePolicy parsePolicy(String calibrationFile) {
+        try {
+            return ParallelParsePolicy.loadOrCalibrate(Paths.get(calibrationFile));
+        } catch (IOException e) {
+            System.err.println("Parse calibration unavailable, using the default: " + e.getMessage());
+            return ParallelParsePolicy.defaultPolicy();
+        }
+    }
+
+    /**
+     * Parses the value of a numeric option that may be 0.
+     *
+     * @param value the option value
+     * @return the number, or -1 if the value is not a number of at least 0
+     */
+    private static long parseNonNegative(String value) {
+        return "0".equals(value) ? 0 : parsePositive(value);
+    }
+
+    /**
+     * Parses the value of a numeric option.
+     *
+     * @param value the option value
+     * @return the number, or -1 if the value is not a positive number
+     */
+    private static long parsePositive(String value) {
+        try {
+            long number = Long.parseLong(value);
+            return number > 0 ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ex5.main;
+
+import java.util.Locale;
+
+/**
+ * The stages a file goes through while it is validated, in order.
+ */
+public enum Stage {
+    /** Reading the raw bytes of the file. */
+    READ,
+    /** Filtering the bytes into the list of meaningful lines. */
+    FILTER,
+    /** Splitting the lines into global variables and method bodies. */
+    PARSE,
+    /** Validating the global variables. */
+    GLOBALS,
+    /** Validating the method bodies. */
+    METHODS;
+
+    private final String key = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * Returns the name of the stage in reports.
+     *
+     * @return the lower-case name of the stage
+     */
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,111 @@
+package ex5.main;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The time one file spent in each {@link Stage} of its validation, and optionally the bytes
+ * it allocated in each.
+ * Stages a file never reached, or skipped, stay at zero.
+ * An instance times one file on one thread at a time.
+ */
+public final class StageTimings {
+    private static final Stage[] STAGES = Stage.values();
+
+    /** Holds the thread bean, loaded only once allocations are counted. */
+    private static final class Threads {
+        private static final com.sun.management.ThreadMXBean BEAN =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    private final long[] nanos = new long[STAGES.length];
+    /** Bytes allocated per stage by the timing thread, or {@code null} if not counted. */
+    private final long[] allocatedBytes;
+    private Stage current;
+    private long since;
+    private long allocatedSince;
+
+    /**
+     * Constructs a new {@code StageTimings} that only measures time.
+     */
+    public StageTimings() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new {@code StageTimings}.
+     *
+     * @param countAllocations whether to also count the bytes the timing thread allocates per
+     *                         stage; needs a JVM that reports thread allocations
+     * @throws UnsupportedOperationException if allocations are to be counted and the JVM does not
+     *                                       report them
+     */
+    public StageTimings(boolean countAllocations) {
+        if (countAllocations && !Threads.BEAN.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("This JVM does not report thread allocations");
+        }
+        this.allocatedBytes = countAllocations ? new long[STAGES.length] : null;
+    }
+
+    /**
+     * Adds time to a stage.
+     *
+     * @param stage the stage
+     * @param nanos the time spent, in nanoseconds
+     */
+    public void add(Stage stage, long nanos) {
+        this.nanos[stage.ordinal()] += nanos;
+    }
+
+    /**
+     * Returns the time spent in a stage.
+     *
+     * @param stage the stage
+     * @return the time spent, in nanoseconds
+     */
+    public long get(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * Returns the bytes allocated in a stage by the thread that timed it.
+     *
+     * @param stage the stage
+     * @return the bytes allocated, or 0 if allocations are not counted
+     */
+    public long getAllocatedBytes(Stage stage) {
+        return allocatedBytes == null ? 0 : allocatedBytes[stage.ordinal()];
+    }
+
+    /**
+     * Ends the current stage, if any, and starts timing the given one.
+     *
+     * @param stage the stage starting now
+     */
+    public void enter(Stage stage) {
+        long allocated = allocatedBytes != null ? Threads.BEAN.getCurrentThreadAllocatedBytes() : 0;
+        long now = System.nanoTime();
+        if (current != null) {
+            add(current, now - since);
+            if (allocatedBytes != null) {
+                allocatedBytes[current.ordinal()] += allocated - allocatedSince;
+            }
+        }
+        current = stage;
+        since = now;
+        allocatedSince = allocated;
+    }
+
+    /**
+     * Ends the current stage, if any. A stage cut short by an error is thus still counted.
+     */
+    public void exit() {
+        if (current != null) {
+            long allocated = allocatedBytes != null ? Threads.BEAN.getCurrentThreadAllocatedBytes() : 0;
+            add(current, System.nanoTime() - since);
+            if (allocatedBytes != null) {
+                allocatedBytes[current.ordinal()] += allocated - allocatedSince;
+            }
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ex5.main;
+
+import Conditions.ConditionValidator;
+import Methods.FunctionCallValidator;
+import Methods.MethodData;
+import Methods.MethodMemo;
+import Methods.MethodParser;
+import Methods.MethodSignatureTable;
+import Methods.MethodValidator;
+import VariablesManegment.SymbolsTable;
+import VariablesManegment.VariableValidator;
+import parser.LineSyntax;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The symbol table and validators that check the globals and methods of a file, wired together
+ * once and reset between files.
+ *
+ * <p>A {@link FileValidator} keeps one context per thread, so a warm batch worker or daemon
+ * validates file after file without rebuilding the scaffolding; the scope maps, tokenizers and
+ * condition cache keep the capacity they grew to. A context is used by one file at a time.</p>
+ */
+final class ValidationContext {
+    private final SymbolsTable symbolsTable = new SymbolsTable();
+    private final VariableValidator variableValidator;
+    private final FunctionCallValidator functionCallValidator;
+    private final ConditionValidator conditionValidator;
+    private final MethodValidator methodValidator;
+
+    /**
+     * Constructs a new {@code ValidationContext}.
+     *
+     * @param syntax     the line syntax every validator checks lines with
+     * @param methodMemo the memo of validated methods, or {@code null} to validate every method
+     */
+    ValidationContext(LineSyntax syntax, MethodMemo methodMemo) {
+        variableValidator = new VariableValidator(symbolsTable, syntax);
+        functionCallValidator = new FunctionCallValidator((MethodSignatureTable) null, variableValidator);
+        conditionValidator = new ConditionValidator(symbolsTable);
+        methodValidator = new MethodValidator(Collections.emptyMap(),
+                symbolsTable,
+                functionCallValidator,
+                conditionValidator,
+                variableValidator,
+                new MethodParser(syntax),
+                methodMemo);
+    }
+
+    /**
+     * Declares the globals of a file, to be checked against the methods of that file.
+     *
+     * @param globalVariables the global variable declarations of the file
+     * @param signatures      the signatures of the methods of the file
+     * @throws Exception if any global declaration is invalid
+     */
+    void validateGlobals(List<String> globalVariables, MethodSignatureTable signatures) throws Exception {
+        functionCallValidator.reset(signatures);
+        variableValidator.declareGlobals(globalVariables);
+    }
+
+    /**
+     * Validates the methods of the file whose globals were declared.
+     *
+     * @param methods the methods of the file, by name
+     * @throws Exception if any method is invalid
+     */
+    void validateMethods(Map<String, MethodData> methods) throws Exception {
+        methodValidator.reset(methods);
+        methodValidator.validateAllMethods();
+    }
+
+    /**
+     * Drops everything the last file left behind, however its validation ended, so the context
+     * holds no reference into it and is ready for the next file.
+     */
+    void reset() {
+        symbolsTable.reset();
+        conditionValidator.reset();
+        functionCallValidator.reset(null);
+        methodValidator.reset(Collections.emptyMap());
+    }
+}
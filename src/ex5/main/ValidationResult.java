@@ -0,0 +1,88 @@
+package ex5.main;
+
+/**
+ * The full outcome of validating one file: the verdict, why the file was rejected, and where the
+ * time went.
+ */
+public final class ValidationResult {
+    private final Verdict verdict;
+    private final String error;
+    private final String message;
+    private final StageTimings timings;
+
+    /**
+     * Constructs a new {@code ValidationResult}.
+     *
+     * @param verdict the verdict
+     * @param error   the kind of error behind the verdict, such as the simple name of the exception,
+     *                or {@code null} for a valid file
+     * @param message the error message, or {@code null}
+     * @param timings the time spent per stage, or {@code null} if not measured
+     */
+    public ValidationResult(Verdict verdict, String error, String message, StageTimings timings) {
+        this.verdict = verdict;
+        this.error = error;
+        this.message = message;
+        this.timings = timings;
+    }
+
+    /**
+     * Creates the result of a validation that threw, or returned normally.
+     *
+     * @param error   the exception thrown, or {@code null} if the file is valid
+     * @param timings the time spent per stage, or {@code null} if not measured
+     * @return the result
+     */
+    static ValidationResult of(Throwable error, StageTimings timings) {
+        if (error == null) {
+            return new ValidationResult(Verdict.VALID, null, null, timings);
+        }
+        Verdict verdict = error instanceof Exception ? FileValidator.verdictOf((Exception) error) : Verdict.INVALID;
+        return new ValidationResult(verdict, error.getClass().getSimpleName(), error.getMessage(), timings);
+    }
+
+    /**
+     * Returns the same outcome without timings, for an input whose validation was reused.
+     *
+     * @return the result without timings
+     */
+    public ValidationResult withoutTimings() {
+        return timings == null ? this : new ValidationResult(verdict, error, message, null);
+    }
+
+    /**
+     * Returns the verdict.
+     *
+     * @return the verdict
+     */
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    /**
+     * Returns the kind of error behind the verdict.
+     *
+     * @return the simple name of the exception, or {@code null} for a valid file
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns the error message.
+     *
+     * @return the error message, or {@code null}
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the time spent per stage.
+     *
+     * @return the timings, or {@code null} if not measured
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+}
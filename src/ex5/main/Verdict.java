@@ -0,0 +1,32 @@
+package ex5.main;
+
+/**
+ * The outcome of validating one s-Java file, with the code printed for it.
+ */
+public enum Verdict {
+    /** The file is a legal s-Java program. */
+    VALID(0),
+    /** The file is not a legal s-Java program. */
+    INVALID(1),
+    /** The file could not be read. */
+    IO_ERROR(2),
+    /** Validation exceeded its CPU time budget and was cancelled. */
+    TIMEOUT(3),
+    /** Validation crashed the worker process on every attempt. */
+    CRASHED(4);
+
+    private final int code;
+
+    Verdict(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the code printed for this verdict.
+     *
+     * @return the verdict code
+     */
+    public int getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,83 @@
+package ex5.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves {@link ValidatorMetrics} in the Prometheus text format at {@code /metrics}, on the
+ * loopback interface only.
+ *
+ * <p>Each scrape renders the metrics afresh on the single server thread; the validators are never
+ * touched, only their counters read.</p>
+ */
+public final class MetricsEndpoint implements Closeable {
+    /** Path the metrics are served at. */
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int OK = 200;
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    private final HttpServer server;
+    private final ValidatorMetrics metrics;
+
+    /**
+     * Starts serving metrics.
+     *
+     * @param metrics the metrics to serve
+     * @param port    the port on the loopback interface, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(ValidatorMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Answers one scrape.
+     *
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            metrics.writePrometheus(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the port the metrics are served on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving metrics.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
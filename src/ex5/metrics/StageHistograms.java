@@ -0,0 +1,124 @@
+package ex5.metrics;
+
+import ex5.main.Stage;
+import ex5.main.StageTimings;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One {@link LatencyHistogram} per {@link Stage}, plus one for whole files, each file counting
+ * the sum of its stages.
+ *
+ * <p>Memory is fixed however many files are recorded. Parallel workers each fill their own
+ * {@code StageHistograms} and {@link #merge(StageHistograms)} them into a shared one when done,
+ * without locking.</p>
+ */
+public final class StageHistograms {
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String ROW_FORMAT = "%-8s %9s %9s %9s %9s %9s %9s%n";
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final LatencyHistogram files = new LatencyHistogram();
+
+    /**
+     * Constructs a new, empty {@code StageHistograms}.
+     */
+    public StageHistograms() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records the stage latencies of one file, and their sum as the latency of the file.
+     *
+     * @param timings the time the file spent per stage
+     */
+    public void record(StageTimings timings) {
+        long total = 0;
+        for (Map.Entry<Stage, LatencyHistogram> stage : stages.entrySet()) {
+            long nanos = timings.get(stage.getKey());
+            stage.getValue().record(nanos);
+            total += nanos;
+        }
+        files.record(total);
+    }
+
+    /**
+     * Adds every latency recorded by another set of histograms to this one.
+     *
+     * @param other the histograms to add
+     */
+    public void merge(StageHistograms other) {
+        for (Map.Entry<Stage, LatencyHistogram> stage : stages.entrySet()) {
+            stage.getValue().merge(other.stages.get(stage.getKey()));
+        }
+        files.merge(other.files);
+    }
+
+    /**
+     * Returns the histogram of a stage.
+     *
+     * @param stage the stage
+     * @return its histogram
+     */
+    public LatencyHistogram get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Returns the histogram of whole files.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getFiles() {
+        return files;
+    }
+
+    /**
+     * Describes the histograms as a table: one row per stage and one for whole files, with the
+     * count, p50, p90, p99, p99.9 and maximum in milliseconds.
+     *
+     * @return the table, one line per row
+     */
+    public String summary() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, ROW_FORMAT, "ms", "count", "p50", "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<Stage, LatencyHistogram> stage : stages.entrySet()) {
+            appendRow(table, stage.getKey().getKey(), stage.getValue());
+        }
+        appendRow(table, ValidatorMetrics.FILE_LATENCY, files);
+        return table.toString();
+    }
+
+    /**
+     * Appends the row of one histogram.
+     *
+     * @param table     the table
+     * @param name      the name of the row
+     * @param histogram the histogram
+     */
+    private static void appendRow(StringBuilder table, String name, LatencyHistogram histogram) {
+        Object[] cells = new Object[QUANTILES.length + 3];
+        cells[0] = name;
+        cells[1] = Long.toString(histogram.getCount());
+        for (int i = 0; i < QUANTILES.length; i++) {
+            cells[i + 2] = millis(histogram.getPercentile(QUANTILES[i]));
+        }
+        cells[cells.length - 1] = millis(histogram.getMax());
+        table.append(String.format(Locale.ROOT, ROW_FORMAT, cells));
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds.
+     *
+     * @param nanos the time in nanoseconds
+     * @return the time in milliseconds, to three decimals
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,49 @@
+package ex5.metrics;
+
+/**
+ * The latency distribution of one validation stage, or of whole files, as published over JMX.
+ * Every latency is in nanoseconds.
+ */
+public interface StageLatencyMXBean {
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the count
+     */
+    long getCount();
+
+    /**
+     * Returns the median latency.
+     *
+     * @return the 50th percentile
+     */
+    long getP50();
+
+    /**
+     * Returns the 90th percentile latency.
+     *
+     * @return the 90th percentile
+     */
+    long getP90();
+
+    /**
+     * Returns the 99th percentile latency.
+     *
+     * @return the 99th percentile
+     */
+    long getP99();
+
+    /**
+     * Returns the 99.9th percentile latency.
+     *
+     * @return the 99.9th percentile
+     */
+    long getP999();
+
+    /**
+     * Returns the largest latency recorded.
+     *
+     * @return the maximum
+     */
+    long getMax();
+}
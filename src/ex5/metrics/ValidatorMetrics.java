@@ -0,0 +1,313 @@
+package ex5.metrics;
+
+import ex5.main.Stage;
+import ex5.main.ValidationResult;
+import ex5.main.Verdict;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Operational metrics of a long-running validator: files validated, verdict and error counts,
+ * validations in flight, queue depth, cache hit ratios and per-stage latency percentiles.
+ *
+ * <p>Counters are {@link LongAdder}s, striped per thread under contention, and latencies go to
+ * lock-free {@link LatencyHistogram}s, so recording never blocks a worker. The metrics can be
+ * published as MXBeans (see {@link #registerMBeans()}) and written in the Prometheus text format
+ * (see {@link #writePrometheus(Appendable)}, served by {@link MetricsEndpoint}).</p>
+ */
+public final class ValidatorMetrics implements ValidatorMetricsMXBean {
+    /** JMX domain of the published MXBeans. */
+    public static final String DOMAIN = "ex5.sjavac";
+    /** Name of the histogram of whole-file latencies, next to the stage names. */
+    public static final String FILE_LATENCY = "file";
+    private static final String PREFIX = "sjavac_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final Verdict[] VERDICTS = Verdict.values();
+
+    /** A latency histogram published as an MXBean. */
+    private static final class StageLatency implements StageLatencyMXBean {
+        private final LatencyHistogram histogram;
+
+        private StageLatency(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public long getP50() {
+            return histogram.getPercentile(0.5);
+        }
+
+        @Override
+        public long getP90() {
+            return histogram.getPercentile(0.9);
+        }
+
+        @Override
+        public long getP99() {
+            return histogram.getPercentile(0.99);
+        }
+
+        @Override
+        public long getP999() {
+            return histogram.getPercentile(0.999);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMax();
+        }
+    }
+
+    private final LongAdder filesValidated = new LongAdder();
+    private final LongAdder[] verdicts = new LongAdder[VERDICTS.length];
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder inFlight = new LongAdder();
+    private final StageHistograms latencies = new StageHistograms();
+    private final Map<String, DoubleSupplier> hitRatios = new ConcurrentSkipListMap<>();
+    private volatile IntSupplier queueDepth = () -> 0;
+
+    /**
+     * Constructs a new {@code ValidatorMetrics} with every counter at zero.
+     */
+    public ValidatorMetrics() {
+        for (int i = 0; i < verdicts.length; i++) {
+            verdicts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Marks the start of a validation.
+     */
+    public void begin() {
+        inFlight.increment();
+    }
+
+    /**
+     * Marks the end of a validation started with {@link #begin()}.
+     */
+    public void end() {
+        inFlight.decrement();
+    }
+
+    /**
+     * Records the outcome of one file: its verdict, its error kind and its stage latencies.
+     * Files reported without timings, such as duplicates, only count towards the verdicts.
+     *
+     * @param result the outcome of the file
+     */
+    public void record(ValidationResult result) {
+        filesValidated.increment();
+        verdicts[result.getVerdict().ordinal()].increment();
+        if (result.getError() != null) {
+            errors.computeIfAbsent(result.getError(), kind -> new LongAdder()).increment();
+        }
+        if (result.getTimings() != null) {
+            latencies.record(result.getTimings());
+        }
+    }
+
+    /**
+     * Sets where the queue depth is read from.
+     *
+     * @param queueDepth returns the number of inputs waiting for a worker
+     */
+    public void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Publishes the hit ratio of a cache.
+     *
+     * @param cache    the name of the cache
+     * @param hitRatio returns the hit ratio, between 0 and 1
+     */
+    public void addHitRatio(String cache, DoubleSupplier hitRatio) {
+        hitRatios.put(cache, hitRatio);
+    }
+
+    /**
+     * Returns the latency histograms of the stages and of whole files.
+     *
+     * @return the histograms
+     */
+    public StageHistograms getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getFilesValidated() {
+        return filesValidated.sum();
+    }
+
+    @Override
+    public Map<String, Long> getVerdictCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Verdict verdict : VERDICTS) {
+            counts.put(verdict.name(), verdicts[verdict.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        errors.forEach((kind, count) -> counts.put(kind, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRatios() {
+        Map<String, Double> ratios = new LinkedHashMap<>();
+        hitRatios.forEach((cache, ratio) -> ratios.put(cache, ratio.getAsDouble()));
+        return ratios;
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server: one MXBean for the counters, and one
+     * per stage, plus one for whole files, for the latencies.
+     *
+     * @throws JMException if the MXBeans cannot be registered, e.g. because they already are
+     */
+    public void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(DOMAIN + ":type=Validator"));
+        for (Stage stage : Stage.values()) {
+            server.registerMBean(new StageLatency(latencies.get(stage)),
+                    new ObjectName(DOMAIN + ":type=StageLatency,name=" + stage.getKey()));
+        }
+        server.registerMBean(new StageLatency(latencies.getFiles()),
+                new ObjectName(DOMAIN + ":type=StageLatency,name=" + FILE_LATENCY));
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format, latencies in seconds.
+     *
+     * @param out receives the text
+     * @throws IOException if the text cannot be written
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        header(out, "files_validated_total", "counter", "Files that reached a verdict.");
+        out.append(PREFIX).append("files_validated_total ").append(Long.toString(getFilesValidated())).append('\n');
+
+        header(out, "verdicts_total", "counter", "Files per verdict.");
+        for (Map.Entry<String, Long> verdict : getVerdictCounts().entrySet()) {
+            sample(out, "verdicts_total", "verdict", verdict.getKey(), null, verdict.getValue());
+        }
+        header(out, "errors_total", "counter", "Files per error kind.");
+        for (Map.Entry<String, Long> error : getErrorCounts().entrySet()) {
+            sample(out, "errors_total", "error", error.getKey(), null, error.getValue());
+        }
+
+        header(out, "in_flight", "gauge", "Files being validated.");
+        out.append(PREFIX).append("in_flight ").append(Long.toString(getInFlight())).append('\n');
+        header(out, "queue_depth", "gauge", "Loaded files waiting for a worker.");
+        out.append(PREFIX).append("queue_depth ").append(Integer.toString(getQueueDepth())).append('\n');
+        header(out, "cache_hit_ratio", "gauge", "Hit ratio per cache.");
+        for (Map.Entry<String, Double> ratio : getCacheHitRatios().entrySet()) {
+            sample(out, "cache_hit_ratio", "cache", ratio.getKey(), null, ratio.getValue());
+        }
+
+        header(out, "latency_seconds", "summary", "Latency per stage, and of whole files.");
+        for (Stage stage : Stage.values()) {
+            summary(out, stage.getKey(), latencies.get(stage));
+        }
+        summary(out, FILE_LATENCY, latencies.getFiles());
+        header(out, "latency_seconds_max", "gauge", "Largest latency per stage, and of whole files.");
+        for (Stage stage : Stage.values()) {
+            sample(out, "latency_seconds_max", "stage", stage.getKey(), null,
+                    latencies.get(stage).getMax() / NANOS_PER_SECOND);
+        }
+        sample(out, "latency_seconds_max", "stage", FILE_LATENCY, null,
+                latencies.getFiles().getMax() / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Writes the help and type lines of a metric.
+     *
+     * @param out  receives the text
+     * @param name the metric name, without the prefix
+     * @param type the metric type
+     * @param help the description
+     * @throws IOException if the text cannot be written
+     */
+    private static void header(Appendable out, String name, String type, String help) throws IOException {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes one labelled sample.
+     *
+     * @param out      receives the text
+     * @param name     the metric name, without the prefix
+     * @param label    the label name
+     * @param value    the label value
+     * @param quantile the quantile label, or {@code null} for none
+     * @param sample   the sample value
+     * @throws IOException if the text cannot be written
+     */
+    private static void sample(Appendable out, String name, String label, String value, String quantile,
+                               Number sample) throws IOException {
+        out.append(PREFIX).append(name).append('{').append(label).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ").append(sample.toString()).append('\n');
+    }
+
+    /**
+     * Writes the quantiles, sum and count of one latency histogram.
+     *
+     * @param out       receives the text
+     * @param stage     the stage label
+     * @param histogram the histogram
+     * @throws IOException if the text cannot be written
+     */
+    private static void summary(Appendable out, String stage, LatencyHistogram histogram) throws IOException {
+        for (double quantile : QUANTILES) {
+            sample(out, "latency_seconds", "stage", stage, Double.toString(quantile),
+                    histogram.getPercentile(quantile) / NANOS_PER_SECOND);
+        }
+        sample(out, "latency_seconds_sum", "stage", stage, null, histogram.getSum() / NANOS_PER_SECOND);
+        sample(out, "latency_seconds_count", "stage", stage, null, histogram.getCount());
+    }
+}
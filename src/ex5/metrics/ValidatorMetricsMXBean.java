@@ -0,0 +1,50 @@
+package ex5.metrics;
+
+import java.util.Map;
+
+/**
+ * The counters of a validator process, as published over JMX under {@value ValidatorMetrics#DOMAIN}.
+ */
+public interface ValidatorMetricsMXBean {
+    /**
+     * Returns the number of files validated so far.
+     *
+     * @return the number of files with a verdict
+     */
+    long getFilesValidated();
+
+    /**
+     * Returns the number of files per verdict.
+     *
+     * @return the count of each verdict, by verdict name
+     */
+    Map<String, Long> getVerdictCounts();
+
+    /**
+     * Returns the number of files per error kind, for files that did not validate.
+     *
+     * @return the count of each error kind, by kind
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * Returns the number of files being validated right now.
+     *
+     * @return the number of validations in flight
+     */
+    long getInFlight();
+
+    /**
+     * Returns the number of loaded files waiting for a worker.
+     *
+     * @return the depth of the work queue
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the hit ratio of each cache.
+     *
+     * @return the hit ratio, between 0 and 1, by cache name
+     */
+    Map<String, Double> getCacheHitRatios();
+}
@@ -0,0 +1,631 @@
+package parser;
+
+/**
+ * Hand-coded, linear-time replacements for the line-level regular expressions of the parsers.
+ *
+ * <p>Every matcher makes a bounded number of passes over its input, so no line, however long or
+ * hostile, can trigger the backtracking of {@link java.util.regex.Pattern}. Each method documents
+ * the expression it replaces and accepts exactly the inputs {@link String#matches(String)} accepts
+ * for it, including how {@code \s} (ASCII whitespace) and {@code .} (anything but a line
+ * terminator) are defined there.</p>
+ */
+public final class LineMatchers {
+    /** The matchers as a {@link LineSyntax}; the syntax the parsers use by default. */
+    public static final LineSyntax SYNTAX = new Linear();
+
+    private LineMatchers() {
+    }
+
+    /**
+     * Exposes the static matchers through the {@link LineSyntax} interface.
+     */
+    private static final class Linear implements LineSyntax {
+        @Override
+        public boolean isEndLine(String line) {
+            return LineMatchers.isEndLine(line);
+        }
+
+        @Override
+        public boolean isInvalidComment(String line) {
+            return LineMatchers.isInvalidComment(line);
+        }
+
+        @Override
+        public String[] matchMethodDefinition(String line) {
+            return LineMatchers.matchMethodDefinition(line);
+        }
+
+        @Override
+        public boolean isConditionOrLoop(String line) {
+            return LineMatchers.isConditionOrLoop(line);
+        }
+
+        @Override
+        public boolean isEndBlock(String line) {
+            return LineMatchers.isEndBlock(line);
+        }
+
+        @Override
+        public String[] matchParameter(String param) {
+            return LineMatchers.matchParameter(param);
+        }
+
+        @Override
+        public boolean isVariableDeclaration(String line) {
+            return LineMatchers.isVariableDeclaration(line);
+        }
+
+        @Override
+        public boolean isVariableAssignment(String line) {
+            return LineMatchers.isVariableAssignment(line);
+        }
+
+        @Override
+        public boolean isFunctionCall(String line) {
+            return LineMatchers.isFunctionCall(line);
+        }
+
+        @Override
+        public boolean isCondition(String line) {
+            return LineMatchers.isCondition(line);
+        }
+
+        @Override
+        public boolean isClosingBrace(String line) {
+            return LineMatchers.isClosingBrace(line);
+        }
+
+        @Override
+        public boolean isVariableName(String name) {
+            return LineMatchers.isVariableName(name);
+        }
+
+        @Override
+        public boolean isIntLiteral(String value) {
+            return LineMatchers.isIntLiteral(value);
+        }
+
+        @Override
+        public boolean isDoubleLiteral(String value) {
+            return LineMatchers.isDoubleLiteral(value);
+        }
+
+        @Override
+        public boolean isBooleanLiteral(String value) {
+            return LineMatchers.isBooleanLiteral(value);
+        }
+
+        @Override
+        public boolean isCharLiteral(String value) {
+            return LineMatchers.isCharLiteral(value);
+        }
+
+        @Override
+        public boolean isStringLiteral(String value) {
+            return LineMatchers.isStringLiteral(value);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // File filter (SJavaFileParser)
+    // -----------------------------------------------------------
+
+    /**
+     * Replaces {@code ^(?!\s*\n)(?!.*\n.*[{};]).*[{};]\s*$}: the last non-whitespace character
+     * is one of {@code {};} and no line terminator comes before it.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line is a complete s-Java line
+     */
+    public static boolean isEndLine(String line) {
+        int last = lastNonWhitespace(line, line.length());
+        if (last < 0) {
+            return false;
+        }
+        char c = line.charAt(last);
+        return (c == '{' || c == '}' || c == ';') && !containsTerminator(line, 0, last);
+    }
+
+    /**
+     * Replaces {@code //(?!\s*$).*[^\w\s].*|/\*[^*]*\*+(?:[^/*][^*]*\*+)*\/|\/\*\*.*\*+\/}:
+     * a {@code //} comment holding a symbol, a single block comment, or a {@code /**} comment.
+     *
+     * @param line the line to check
+     * @return {@code true} if the whole line is such a comment
+     */
+    public static boolean isInvalidComment(String line) {
+        int length = line.length();
+        if (length < 2 || line.charAt(0) != '/') {
+            return false;
+        }
+        if (line.charAt(1) == '/') {
+            return isSymbolLineComment(line);
+        }
+        if (line.charAt(1) != '*' || length < 4 || !line.endsWith("*/")) {
+            return false;
+        }
+        // A single block comment: the first "*/" after the opening is the closing one
+        if (line.indexOf("*/", 2) == length - 2) {
+            return true;
+        }
+        // "/**" followed by anything on one line and closed by "*/"
+        return length >= 5 && line.charAt(2) == '*' && !containsTerminator(line, 3, length - 2);
+    }
+
+    // -----------------------------------------------------------
+    // Top-level structure (VariablesAndMethodsParser)
+    // -----------------------------------------------------------
+
+    /**
+     * Replaces {@code ^void\s+([a-zA-Z][a-zA-Z0-9_]*)\s*\((.*?)\)\s*\{\s*$}.
+     *
+     * @param line the line to match
+     * @return the method name and the parameter text, or {@code null} if the line is not a method definition
+     */
+    public static String[] matchMethodDefinition(String line) {
+        int length = line.length();
+        if (!line.startsWith("void")) {
+            return null;
+        }
+        int i = skipWhitespace(line, 4);
+        if (i == 4 || i >= length || !isLetter(line.charAt(i))) {
+            return null;
+        }
+        int nameStart = i;
+        i = skipWordChars(line, i + 1);
+        int nameEnd = i;
+        i = skipWhitespace(line, i);
+        if (i >= length || line.charAt(i) != '(') {
+            return null;
+        }
+        int close = closingParenBefore(line, '{', i);
+        if (close < 0) {
+            return null;
+        }
+        return new String[]{line.substring(nameStart, nameEnd), line.substring(i + 1, close)};
+    }
+
+    /**
+     * Replaces {@code ^\s*(if|while)\s*\(.*\)\s*\{\s*$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line opens an {@code if} or {@code while} block
+     */
+    public static boolean isConditionOrLoop(String line) {
+        int open = conditionOpenParen(line, skipWhitespace(line, 0));
+        return open >= 0 && closingParenBefore(line, '{', open) >= 0;
+    }
+
+    /**
+     * Replaces {@code \s*\}\s*$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line holds only a closing brace
+     */
+    public static boolean isEndBlock(String line) {
+        int first = skipWhitespace(line, 0);
+        return first < line.length() && line.charAt(first) == '}'
+                && skipWhitespace(line, first + 1) == line.length();
+    }
+
+    /**
+     * Replaces {@code ^(final\s+)?(int|double|String|boolean|char)\s+([a-zA-Z_][a-zA-Z0-9_]*)$}
+     * as used with {@link java.util.regex.Matcher#find()}.
+     *
+     * @param param the trimmed parameter text
+     * @return the {@code final} keyword (or {@code null}), the type and the name,
+     * or {@code null} if the text is not a parameter
+     */
+    public static String[] matchParameter(String param) {
+        String finalKeyword = null;
+        int i = 0;
+        if (param.startsWith("final")) {
+            int afterFinal = skipWhitespace(param, 5);
+            if (afterFinal > 5) {
+                finalKeyword = param.substring(0, afterFinal);
+                i = afterFinal;
+            }
+        }
+        int typeEnd = matchType(param, i);
+        if (typeEnd < 0) {
+            return null;
+        }
+        int nameStart = skipWhitespace(param, typeEnd);
+        if (nameStart == typeEnd || nameStart >= param.length() || !isIdentifierStart(param.charAt(nameStart))) {
+            return null;
+        }
+        int nameEnd = skipWordChars(param, nameStart + 1);
+        if (!isEndOfInput(param, nameEnd)) {
+            return null;
+        }
+        return new String[]{finalKeyword, param.substring(i, typeEnd),
+                param.substring(nameStart, nameEnd)};
+    }
+
+    // -----------------------------------------------------------
+    // Method body lines (MethodParser), applied to trimmed lines
+    // -----------------------------------------------------------
+
+    /**
+     * Replaces {@code ^(final\s+)?(int|double|String|boolean|char)\s+[a-zA-Z_][a-zA-Z0-9_]*(\s*=\s*.+)?;$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line is a variable declaration
+     */
+    public static boolean isVariableDeclaration(String line) {
+        int i = 0;
+        if (line.startsWith("final")) {
+            int afterFinal = skipWhitespace(line, 5);
+            if (afterFinal == 5) {
+                return false;
+            }
+            i = afterFinal;
+        }
+        int typeEnd = matchType(line, i);
+        if (typeEnd < 0) {
+            return false;
+        }
+        int nameStart = skipWhitespace(line, typeEnd);
+        if (nameStart == typeEnd || nameStart >= line.length() || !isIdentifierStart(line.charAt(nameStart))) {
+            return false;
+        }
+        int nameEnd = skipWordChars(line, nameStart + 1);
+        if (line.length() == nameEnd + 1 && line.charAt(nameEnd) == ';') {
+            return true;
+        }
+        return isAssignmentTail(line, nameEnd);
+    }
+
+    /**
+     * Replaces {@code ^[a-zA-Z_][a-zA-Z0-9_]*\s*=\s*.+;$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line is an assignment
+     */
+    public static boolean isVariableAssignment(String line) {
+        if (line.isEmpty() || !isIdentifierStart(line.charAt(0))) {
+            return false;
+        }
+        return isAssignmentTail(line, skipWordChars(line, 1));
+    }
+
+    /**
+     * Replaces {@code ^[a-zA-Z][a-zA-Z0-9_]*\s*\(.*\)\s*;$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line is a function call
+     */
+    public static boolean isFunctionCall(String line) {
+        if (line.isEmpty() || !isLetter(line.charAt(0))) {
+            return false;
+        }
+        int i = skipWhitespace(line, skipWordChars(line, 1));
+        if (i >= line.length() || line.charAt(i) != '(') {
+            return false;
+        }
+        return closingParenBefore(line, ';', i) >= 0;
+    }
+
+    /**
+     * Replaces {@code ^(if|while)\s*\(.*\)\s*\{?$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line starts a condition
+     */
+    public static boolean isCondition(String line) {
+        int open = conditionOpenParen(line, 0);
+        if (open < 0) {
+            return false;
+        }
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '{') {
+            end--;
+        }
+        int close = lastNonWhitespace(line, end);
+        return close > open && line.charAt(close) == ')' && !containsTerminator(line, open + 1, close);
+    }
+
+    /**
+     * Replaces {@code ^\}\s*$}.
+     *
+     * @param line the line to check
+     * @return {@code true} if the line starts with a closing brace followed only by whitespace
+     */
+    public static boolean isClosingBrace(String line) {
+        return !line.isEmpty() && line.charAt(0) == '}' && skipWhitespace(line, 1) == line.length();
+    }
+
+    // -----------------------------------------------------------
+    // Names and literals (VariableValidator)
+    // -----------------------------------------------------------
+
+    /**
+     * Replaces {@code ^[a-zA-Z]|^_[a-zA-Z][a-zA-Z0-9_]*|^[a-zA-Z][a-zA-Z0-9_]*$}:
+     * a letter followed by word characters, or an underscore, a letter and word characters.
+     *
+     * @param name the name to check
+     * @return {@code true} if the name is a legal variable name
+     */
+    public static boolean isVariableName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        int start = name.charAt(0) == '_' ? 1 : 0;
+        return start < name.length() && isLetter(name.charAt(start))
+                && skipWordChars(name, start + 1) == name.length();
+    }
+
+    /**
+     * Replaces {@code ^(-|\+)?\d+$}.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value is an int literal
+     */
+    public static boolean isIntLiteral(String value) {
+        int start = skipSign(value);
+        return start < value.length() && skipDigits(value, start) == value.length();
+    }
+
+    /**
+     * Replaces {@code ^(-|\+)?\d*\.?\d+$}.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value is a double literal
+     */
+    public static boolean isDoubleLiteral(String value) {
+        int start = skipSign(value);
+        int afterInteger = skipDigits(value, start);
+        if (afterInteger == value.length()) {
+            return afterInteger > start;
+        }
+        if (value.charAt(afterInteger) != '.') {
+            return false;
+        }
+        int fractionStart = afterInteger + 1;
+        return fractionStart < value.length() && skipDigits(value, fractionStart) == value.length();
+    }
+
+    /**
+     * Replaces {@code ^(false|true|[-+]?\d*\.?\d+)$}.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value is a boolean literal
+     */
+    public static boolean isBooleanLiteral(String value) {
+        return value.equals("true") || value.equals("false") || isDoubleLiteral(value);
+    }
+
+    /**
+     * Replaces {@code ^'.'$}.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value is a char literal
+     */
+    public static boolean isCharLiteral(String value) {
+        return value.length() == 3 && value.charAt(0) == '\'' && value.charAt(2) == '\''
+                && !isTerminator(value.charAt(1));
+    }
+
+    /**
+     * Replaces {@code ^".*"$}.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value is a string literal
+     */
+    public static boolean isStringLiteral(String value) {
+        int length = value.length();
+        return length >= 2 && value.charAt(0) == '"' && value.charAt(length - 1) == '"'
+                && !containsTerminator(value, 1, length - 1);
+    }
+
+    // -----------------------------------------------------------
+    // Helpers
+    // -----------------------------------------------------------
+
+    /**
+     * Checks a {@code //} line against {@code //(?!\s*$).*[^\w\s].*}.
+     *
+     * @param line a line starting with {@code //}
+     * @return {@code true} if the comment holds a symbol
+     */
+    private static boolean isSymbolLineComment(String line) {
+        int length = line.length();
+        int firstNonWhitespace = skipWhitespace(line, 2);
+        if (firstNonWhitespace == length
+                || (firstNonWhitespace == length - 1 && isTerminator(line.charAt(length - 1)))) {
+            return false; // (?!\s*$)
+        }
+        int terminators = 0;
+        int terminatorIndex = -1;
+        boolean symbol = false;
+        for (int i = 2; i < length; i++) {
+            char c = line.charAt(i);
+            if (isTerminator(c)) {
+                terminators++;
+                terminatorIndex = i;
+            } else if (!isWordChar(c) && !isWhitespace(c)) {
+                symbol = true;
+            }
+        }
+        if (terminators == 0) {
+            return symbol;
+        }
+        // Only [^\w\s] may consume a terminator, and only one; \n and \r are whitespace
+        char terminator = line.charAt(terminatorIndex);
+        return terminators == 1 && terminator != '\n' && terminator != '\r';
+    }
+
+    /**
+     * Matches {@code (if|while)\s*\(} at the given index.
+     *
+     * @param line  the line
+     * @param start the index of the keyword
+     * @return the index of the opening parenthesis, or {@code -1}
+     */
+    private static int conditionOpenParen(String line, int start) {
+        int i;
+        if (line.startsWith("if", start)) {
+            i = start + 2;
+        } else if (line.startsWith("while", start)) {
+            i = start + 5;
+        } else {
+            return -1;
+        }
+        i = skipWhitespace(line, i);
+        return i < line.length() && line.charAt(i) == '(' ? i : -1;
+    }
+
+    /**
+     * Matches {@code .*\)\s*X\s*$} after an opening parenthesis, where {@code X} is the given terminal
+     * character and the trailing whitespace is only allowed after a {@code {}.
+     *
+     * @param line     the line
+     * @param terminal the character closing the line ({@code {} or {@code ;})
+     * @param open     the index of the opening parenthesis
+     * @return the index of the closing parenthesis, or {@code -1}
+     */
+    private static int closingParenBefore(String line, char terminal, int open) {
+        int end = terminal == '{' ? lastNonWhitespace(line, line.length()) : line.length() - 1;
+        if (end <= open || line.charAt(end) != terminal) {
+            return -1;
+        }
+        int close = lastNonWhitespace(line, end);
+        if (close <= open || line.charAt(close) != ')' || containsTerminator(line, open + 1, close)) {
+            return -1;
+        }
+        return close;
+    }
+
+    /**
+     * Matches {@code \s*=\s*.+;$} from the given index.
+     *
+     * @param line the line
+     * @param from the index after the variable name
+     * @return {@code true} if the rest of the line is an assignment
+     */
+    private static boolean isAssignmentTail(String line, int from) {
+        int length = line.length();
+        int equals = skipWhitespace(line, from);
+        if (equals >= length || line.charAt(equals) != '=' || line.charAt(length - 1) != ';') {
+            return false;
+        }
+        // \s*.+ over the text between '=' and ';': whitespace may swallow terminators,
+        // but at least one character must follow the last of them
+        int valueStart = equals + 1;
+        int valueEnd = length - 1;
+        int lastTerminator = -1;
+        for (int i = valueStart; i < valueEnd; i++) {
+            if (isTerminator(line.charAt(i))) {
+                lastTerminator = i;
+            }
+        }
+        if (lastTerminator < 0) {
+            return valueEnd > valueStart;
+        }
+        return skipWhitespace(line, valueStart) > lastTerminator && lastTerminator + 1 < valueEnd;
+    }
+
+    /**
+     * Matches one of the s-Java type keywords at the given index.
+     *
+     * @param text the text
+     * @param from the index of the keyword
+     * @return the index after the keyword, or {@code -1}
+     */
+    private static int matchType(String text, int from) {
+        String[] types = {"int", "double", "String", "boolean", "char"};
+        for (String type : types) {
+            if (text.startsWith(type, from)) {
+                return from + type.length();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether {@code $} of a {@link java.util.regex.Matcher#find()} matches at the given index:
+     * at the end of input, or before a final line terminator.
+     *
+     * @param text  the text
+     * @param index the index
+     * @return {@code true} if the input ends at the index
+     */
+    private static boolean isEndOfInput(String text, int index) {
+        int length = text.length();
+        if (index == length) {
+            return true;
+        }
+        if (index == length - 1) {
+            return isTerminator(text.charAt(index));
+        }
+        return index == length - 2 && text.charAt(index) == '\r' && text.charAt(index + 1) == '\n';
+    }
+
+    private static int skipSign(String value) {
+        return !value.isEmpty() && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+    }
+
+    private static int skipDigits(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWordChars(String text, int from) {
+        int i = from;
+        while (i < text.length() && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int lastNonWhitespace(String text, int end) {
+        int i = end - 1;
+        while (i >= 0 && isWhitespace(text.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean containsTerminator(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isTerminator(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {@code \s}: space, tab, line feed, vertical tab, form feed or carriage return. */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /** The characters {@code .} does not match. */
+    private static boolean isTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return isLetter(c) || c == '_';
+    }
+
+    /** {@code \w}: a letter, a digit or an underscore. */
+    private static boolean isWordChar(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+}
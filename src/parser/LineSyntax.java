@@ -0,0 +1,114 @@
+package parser;
+
+/**
+ * The line-level syntax checks used by the parsers and validators.
+ *
+ * <p>Two implementations exist: {@link LineMatchers#SYNTAX}, the linear-time matchers used by
+ * default, and {@link RegexLineSyntax#INSTANCE}, the original regular expressions. Both accept
+ * exactly the same inputs; the regex one is kept so the two paths can be compared in shadow mode.</p>
+ */
+public interface LineSyntax {
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the last non-whitespace character is one of {@code {};}
+     */
+    boolean isEndLine(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the whole line is a comment s-Java does not allow
+     */
+    boolean isInvalidComment(String line);
+
+    /**
+     * @param line the line to match
+     * @return the method name and the parameter text, or {@code null} if the line is not a method definition
+     */
+    String[] matchMethodDefinition(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line opens an {@code if} or {@code while} block
+     */
+    boolean isConditionOrLoop(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line holds only a closing brace
+     */
+    boolean isEndBlock(String line);
+
+    /**
+     * @param param the trimmed parameter text
+     * @return the {@code final} keyword (or {@code null}), the type and the name,
+     * or {@code null} if the text is not a parameter
+     */
+    String[] matchParameter(String param);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line is a variable declaration
+     */
+    boolean isVariableDeclaration(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line is an assignment
+     */
+    boolean isVariableAssignment(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line is a function call
+     */
+    boolean isFunctionCall(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line starts a condition
+     */
+    boolean isCondition(String line);
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the line starts with a closing brace followed only by whitespace
+     */
+    boolean isClosingBrace(String line);
+
+    /**
+     * @param name the name to check
+     * @return {@code true} if the name is a legal variable name
+     */
+    boolean isVariableName(String name);
+
+    /**
+     * @param value the value to check
+     * @return {@code true} if the value is an int literal
+     */
+    boolean isIntLiteral(String value);
+
+    /**
+     * @param value the value to check
+     * @return {@code true} if the value is a double literal
+     */
+    boolean isDoubleLiteral(String value);
+
+    /**
+     * @param value the value to check
+     * @return {@code true} if the value is a boolean literal
+     */
+    boolean isBooleanLiteral(String value);
+
+    /**
+     * @param value the value to check
+     * @return {@code true} if the value is a char literal
+     */
+    boolean isCharLiteral(String value);
+
+    /**
+     * @param value the value to check
+     * @return {@code true} if the value is a string literal
+     */
+    boolean isStringLiteral(String value);
+}
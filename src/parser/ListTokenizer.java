@@ -0,0 +1,259 @@
+package parser;
+
+/**
+ * A reusable, quote-aware tokenizer for separated lists such as call arguments
+ * ({@code 1, "a,b", ','}), multi-variable declarations ({@code a = 1, b}) and
+ * conditions ({@code x && y || z}).
+ *
+ * <p>The tokenizer scans a {@link CharSequence} once and exposes each token as a span of the input,
+ * trimmed of surrounding whitespace. Separators inside string ({@code "..."}) or char ({@code '...'})
+ * literals are ignored. Unlike {@link String#split(String)}, empty tokens are always reported,
+ * including a trailing one, so callers can reject inputs such as {@code "a,"} or {@code "x &&"}.
+ * Substrings are only created when {@link #token()} is called.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * ListTokenizer tokenizer = new ListTokenizer();
+ * tokenizer.reset(arguments, ',');
+ * while (tokenizer.next()) {
+ *     String argument = tokenizer.token();
+ * }
+ * </pre>
+ */
+public final class ListTokenizer {
+    /** The logical operators separating the parts of a condition. */
+    public static final Operators LOGICAL_OPERATORS = Operators.compile("&&", "||");
+
+    private CharSequence input;
+    private char separator;
+    private Operators operators;
+    private int position;
+    private boolean finished;
+    private int tokenStart;
+    private int tokenEnd;
+
+    /**
+     * Prepares the tokenizer to split the input on a single separator character.
+     *
+     * @param input     the text to tokenize
+     * @param separator the separator character
+     * @return this tokenizer
+     */
+    public ListTokenizer reset(CharSequence input, char separator) {
+        this.input = input;
+        this.separator = separator;
+        this.operators = null;
+        this.position = 0;
+        this.finished = false;
+        return this;
+    }
+
+    /**
+     * Prepares the tokenizer to split a condition on the {@code &&} and {@code ||} operators.
+     *
+     * @param input the condition to tokenize
+     * @return this tokenizer
+     */
+    public ListTokenizer resetLogical(CharSequence input) {
+        return reset(input, LOGICAL_OPERATORS);
+    }
+
+    /**
+     * Prepares the tokenizer to split the input on a compiled set of operators.
+     *
+     * @param input     the text to tokenize
+     * @param operators the compiled separator operators
+     * @return this tokenizer
+     */
+    public ListTokenizer reset(CharSequence input, Operators operators) {
+        reset(input, '\0');
+        this.operators = operators;
+        return this;
+    }
+
+    /**
+     * Advances to the next token.
+     *
+     * @return {@code true} if a token is available; {@code false} once the input is exhausted
+     */
+    public boolean next() {
+        if (finished) {
+            return false;
+        }
+        int length = input.length();
+        int start = position;
+        char quote = 0;
+        int i = start;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else {
+                int separatorLength = separatorLengthAt(i, c);
+                if (separatorLength > 0) {
+                    setToken(start, i);
+                    position = i + separatorLength;
+                    return true;
+                }
+            }
+            i++;
+        }
+        setToken(start, length);
+        finished = true;
+        return true;
+    }
+
+    /**
+     * Counts the tokens of the current input without consuming them.
+     *
+     * @return the number of tokens the input splits into
+     */
+    public int countTokens() {
+        int savedPosition = position;
+        boolean savedFinished = finished;
+        int savedStart = tokenStart;
+        int savedEnd = tokenEnd;
+        int count = 0;
+        while (next()) {
+            count++;
+        }
+        position = savedPosition;
+        finished = savedFinished;
+        tokenStart = savedStart;
+        tokenEnd = savedEnd;
+        return count;
+    }
+
+    /**
+     * Returns the start index (inclusive) of the current token in the input.
+     *
+     * @return the start of the trimmed token
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Returns the end index (exclusive) of the current token in the input.
+     *
+     * @return the end of the trimmed token
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * Checks whether the current token is empty after trimming.
+     *
+     * @return {@code true} if the token holds no characters
+     */
+    public boolean isTokenEmpty() {
+        return tokenStart == tokenEnd;
+    }
+
+    /**
+     * Returns the current token as a string, trimmed of surrounding whitespace.
+     *
+     * @return the current token
+     */
+    public String token() {
+        return input.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Returns the length of the separator starting at the given index, if any.
+     *
+     * @param index the index in the input
+     * @param c     the character at that index
+     * @return the separator length, or {@code 0} if no separator starts there
+     */
+    private int separatorLengthAt(int index, char c) {
+        if (operators == null) {
+            return c == separator ? 1 : 0;
+        }
+        String operator = operators.startingWith(c);
+        return operator != null && regionMatches(index, operator) ? operator.length() : 0;
+    }
+
+    /**
+     * Checks whether the input contains the given text at the given index.
+     *
+     * @param index the index in the input
+     * @param text  the text to look for
+     * @return {@code true} if the text occurs at the index
+     */
+    private boolean regionMatches(int index, String text) {
+        if (index + text.length() > input.length()) {
+            return false;
+        }
+        for (int j = 1; j < text.length(); j++) {
+            if (input.charAt(index + j) != text.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records the current token, trimming whitespace on both ends.
+     *
+     * @param start the raw start index (inclusive)
+     * @param end   the raw end index (exclusive)
+     */
+    private void setToken(int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        tokenStart = start;
+        tokenEnd = end;
+    }
+
+    /**
+     * A set of separator operators compiled into a lookup table indexed by their first character,
+     * so the scanner decides in one array read whether an operator can start at a position.
+     * Operators must be ASCII and must not share a first character.
+     */
+    public static final class Operators {
+        private final String[] byFirstChar = new String[128];
+
+        private Operators() {
+        }
+
+        /**
+         * Compiles a set of operators.
+         *
+         * @param operators the operators, e.g. {@code "&&"} and {@code "||"}
+         * @return the compiled operator set
+         * @throws IllegalArgumentException if an operator is empty, not ASCII,
+         *                                  or shares its first character with another one
+         */
+        public static Operators compile(String... operators) {
+            Operators compiled = new Operators();
+            for (String operator : operators) {
+                if (operator.isEmpty() || operator.charAt(0) >= 128
+                        || compiled.byFirstChar[operator.charAt(0)] != null) {
+                    throw new IllegalArgumentException("Unsupported operator: " + operator);
+                }
+                compiled.byFirstChar[operator.charAt(0)] = operator;
+            }
+            return compiled;
+        }
+
+        /**
+         * Returns the operator starting with the given character.
+         *
+         * @param c the first character
+         * @return the operator, or {@code null} if none starts with that character
+         */
+        String startingWith(char c) {
+            return c < 128 ? byFirstChar[c] : null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package parser;
+
+import errors.ValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decides, per file, whether the top-level parse runs sequentially or through
+ * {@link VariablesAndMethodsParser#parseLinesParallel(List, ExecutorService)}.
+ *
+ * <p>The parallel parse only pays off above some line count, which depends on the machine. A
+ * policy is either the fixed default, calibrated at startup by timing both parses over synthetic
+ * files of growing size, or read back from a stored calibration. With a single thread in the
+ * common pool, the parallel parse is never used.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * ParallelParsePolicy policy = ParallelParsePolicy.loadOrCalibrate(Paths.get("parse.properties"));
+ * if (policy.isParallel(lines.size())) { ... }
+ * </pre>
+ */
+public final class ParallelParsePolicy {
+    /** Line count meaning the parallel parse is never used. */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    /** Line counts of the synthetic files timed by the calibration, in increasing order. */
+    private static final int[] CALIBRATION_SIZES = {1_024, 4_096, 16_384, 65_536};
+    /** Line count of the synthetic file both parses are warmed up on. */
+    private static final int WARM_UP_SIZE = 8_192;
+    /** Number of timed runs per parse and size; the fastest counts. */
+    private static final int CALIBRATION_RUNS = 5;
+    /** Number of body lines in each synthetic method. */
+    private static final int METHOD_BODY_LINES = 6;
+    private static final String PROCESSORS_KEY = "processors";
+    private static final String MIN_LINES_KEY = "min.lines";
+
+    private final int minLines;
+
+    /**
+     * Constructs a new {@code ParallelParsePolicy}.
+     *
+     * @param minLines the line count from which the parallel parse is used, or {@link #NEVER}
+     */
+    public ParallelParsePolicy(int minLines) {
+        this.minLines = minLines;
+    }
+
+    /**
+     * Returns the policy used without calibration: the fixed
+     * {@link VariablesAndMethodsParser#PARALLEL_THRESHOLD}, or never on a single thread.
+     *
+     * @return the default policy
+     */
+    public static ParallelParsePolicy defaultPolicy() {
+        return new ParallelParsePolicy(threads() > 1 ? VariablesAndMethodsParser.PARALLEL_THRESHOLD : NEVER);
+    }
+
+    /**
+     * Returns whether a file of the given size is parsed in parallel.
+     *
+     * @param lineCount the number of relevant lines of the file
+     * @return {@code true} to use the parallel parse
+     */
+    public boolean isParallel(int lineCount) {
+        return lineCount >= minLines;
+    }
+
+    /**
+     * Returns the line count from which the parallel parse is used.
+     *
+     * @return the threshold, or {@link #NEVER}
+     */
+    public int getMinLines() {
+        return minLines;
+    }
+
+    /**
+     * Reads a stored calibration, or calibrates now and stores the result.
+     * A calibration made with a different number of threads is redone.
+     *
+     * @param file the calibration file
+     * @return the policy
+     * @throws IOException if the calibration file cannot be read or written
+     */
+    public static ParallelParsePolicy loadOrCalibrate(Path file) throws IOException {
+        ParallelParsePolicy stored = load(file);
+        if (stored != null) {
+            return stored;
+        }
+        ParallelParsePolicy calibrated = calibrate(ForkJoinPool.commonPool());
+        calibrated.store(file);
+        return calibrated;
+    }
+
+    /**
+     * Reads a stored calibration.
+     *
+     * @param file the calibration file
+     * @return the policy, or {@code null} if the file is missing, malformed or made with a
+     * different number of threads
+     * @throws IOException if the calibration file exists but cannot be read
+     */
+    public static ParallelParsePolicy load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties stored = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            stored.load(in);
+        }
+        try {
+            if (Integer.parseInt(stored.getProperty(PROCESSORS_KEY, "")) != threads()) {
+                return null;
+            }
+            return new ParallelParsePolicy(Integer.parseInt(stored.getProperty(MIN_LINES_KEY, "")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores this policy. The file is replaced atomically, so processes calibrating at the same
+     * time never read a partial file.
+     *
+     * @param file the calibration file
+     * @throws IOException if the calibration file cannot be written
+     */
+    public void store(Path file) throws IOException {
+        Properties stored = new Properties();
+        stored.setProperty(PROCESSORS_KEY, Integer.toString(threads()));
+        stored.setProperty(MIN_LINES_KEY, Integer.toString(minLines));
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                stored.store(out, "Parallel parse calibration");
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Times the sequential and the parallel parse over synthetic files of growing size, and picks
+     * the smallest size at which the parallel parse is faster.
+     *
+     * @param executor the executor the parallel parse runs on
+     * @return the calibrated policy; {@link #NEVER} if the parallel parse never won
+     */
+    public static ParallelParsePolicy calibrate(ExecutorService executor) {
+        if (threads() <= 1) {
+            return new ParallelParsePolicy(NEVER);
+        }
+        try {
+            List<String> warmUp = syntheticFile(WARM_UP_SIZE);
+            for (int i = 0; i < CALIBRATION_RUNS; i++) {
+                time(warmUp, null);
+                time(warmUp, executor);
+            }
+            for (int size : CALIBRATION_SIZES) {
+                List<String> lines = syntheticFile(size);
+                long sequential = Long.MAX_VALUE;
+                long parallel = Long.MAX_VALUE;
+                for (int i = 0; i < CALIBRATION_RUNS; i++) {
+                    sequential = Math.min(sequential, time(lines, null));
+                    parallel = Math.min(parallel, time(lines, executor));
+                }
+                if (parallel < sequential) {
+                    return new ParallelParsePolicy(size);
+                }
+            }
+        } catch (ValidationException e) {
+            throw new IllegalStateException("Synthetic calibration file did not parse", e);
+        }
+        return new ParallelParsePolicy(NEVER);
+    }
+
+    /**
+     * Parses lines once and returns the time it took.
+     *
+     * @param lines    the lines
+     * @param executor the executor of the parallel parse, or {@code null} to parse sequentially
+     * @return the elapsed time in nanoseconds
+     * @throws ValidationException if the lines do not parse
+     */
+    private static long time(List<String> lines, ExecutorService executor) throws ValidationException {
+        VariablesAndMethodsParser parser = new VariablesAndMethodsParser();
+        long start = System.nanoTime();
+        if (executor == null) {
+            parser.parseLines(lines);
+        } else {
+            parser.parseLinesParallel(lines, executor);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Builds the relevant lines of a legal file of about the given size: a global, then a method
+     * with a short body, repeated.
+     *
+     * @param lineCount the approximate number of lines
+     * @return the lines
+     */
+    private static List<String> syntheticFile(int lineCount) {
+        List<String> lines = new ArrayList<>(lineCount + METHOD_BODY_LINES + 3);
+        for (int i = 0; lines.size() < lineCount; i++) {
+            lines.add("int g" + i + " = " + i + ";");
+            lines.add("void m" + i + "(int a, boolean b) {");
+            for (int j = 0; j < METHOD_BODY_LINES; j++) {
+                lines.add("int v" + j + " = a;");
+            }
+            lines.add("return;");
+            lines.add("}");
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the number of threads the parallel parse runs on in the common pool.
+     *
+     * @return the parallelism of the common pool
+     */
+    private static int threads() {
+        return ForkJoinPool.getCommonPoolParallelism();
+    }
+}
@@ -0,0 +1,142 @@
+package parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The original, regex-based line syntax of the parsers and validators.
+ *
+ * <p>It applies the patterns the way the parsers used to, with {@link String#matches(String)}
+ * and {@link Matcher#find()}, so timings taken in shadow mode reflect the legacy path.
+ * It is not used outside shadow mode.</p>
+ */
+public final class RegexLineSyntax implements LineSyntax {
+    /** The single instance. */
+    public static final RegexLineSyntax INSTANCE = new RegexLineSyntax();
+
+    // SJavaFileParser
+    private static final String END_LINE = "^(?!\\s*\\n)(?!.*\\n.*[{};]).*[{};]\\s*$";
+    private static final String INVALID_COMMENT =
+            "//(?!\\s*$).*[^\\w\\s].*|/\\*[^*]*\\*+(?:[^/*][^*]*\\*+)*\\/|\\/\\*\\*.*\\*+\\/";
+
+    // VariablesAndMethodsParser
+    private static final String METHOD_DEFINITION =
+            "^void\\s+([a-zA-Z][a-zA-Z0-9_]*)\\s*\\((.*?)\\)\\s*\\{\\s*$";
+    private static final String CONDITION_OR_LOOP = "^\\s*(if|while)\\s*\\(.*\\)\\s*\\{\\s*$";
+    private static final String END_BLOCK = "\\s*\\}\\s*$";
+    private static final String PARAMETER_PATTERN =
+            "^(final\\s+)?(int|double|String|boolean|char)\\s+([a-zA-Z_][a-zA-Z0-9_]*)$";
+
+    // MethodParser
+    private static final String VARIABLE_DECLARATION =
+            "^(final\\s+)?(int|double|String|boolean|char)\\s+[a-zA-Z_][a-zA-Z0-9_]*(\\s*=\\s*.+)?;$";
+    private static final String VARIABLE_ASSIGNMENT = "^[a-zA-Z_][a-zA-Z0-9_]*\\s*=\\s*.+;$";
+    private static final String FUNCTION_CALL = "^[a-zA-Z][a-zA-Z0-9_]*\\s*\\(.*\\)\\s*;$";
+    private static final String CONDITION = "^(if|while)\\s*\\(.*\\)\\s*\\{?$";
+    private static final String CLOSING_BRACE = "^\\}\\s*$";
+
+    // VariableValidator
+    private static final Pattern VARIABLE_NAME_PATTERN =
+            Pattern.compile("^[a-zA-Z]|^_[a-zA-Z][a-zA-Z0-9_]*|^[a-zA-Z][a-zA-Z0-9_]*$");
+    private static final String INT_LITERAL = "^(-|\\+)?\\d+$";
+    private static final String DOUBLE_LITERAL = "^(-|\\+)?\\d*\\.?\\d+$";
+    private static final String BOOLEAN_LITERAL = "^(false|true|[-+]?\\d*\\.?\\d+)$";
+    private static final String CHAR_LITERAL = "^'.'$";
+    private static final String STRING_LITERAL = "^\".*\"$";
+
+    private RegexLineSyntax() {
+    }
+
+    @Override
+    public boolean isEndLine(String line) {
+        return line.matches(END_LINE);
+    }
+
+    @Override
+    public boolean isInvalidComment(String line) {
+        return line.matches(INVALID_COMMENT);
+    }
+
+    @Override
+    public String[] matchMethodDefinition(String line) {
+        Matcher matcher = Pattern.compile(METHOD_DEFINITION).matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new String[] {matcher.group(1), matcher.group(2)};
+    }
+
+    @Override
+    public boolean isConditionOrLoop(String line) {
+        return line.matches(CONDITION_OR_LOOP);
+    }
+
+    @Override
+    public boolean isEndBlock(String line) {
+        return line.matches(END_BLOCK);
+    }
+
+    @Override
+    public String[] matchParameter(String param) {
+        Matcher matcher = Pattern.compile(PARAMETER_PATTERN).matcher(param);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new String[] {matcher.group(1), matcher.group(2), matcher.group(3)};
+    }
+
+    @Override
+    public boolean isVariableDeclaration(String line) {
+        return line.matches(VARIABLE_DECLARATION);
+    }
+
+    @Override
+    public boolean isVariableAssignment(String line) {
+        return line.matches(VARIABLE_ASSIGNMENT);
+    }
+
+    @Override
+    public boolean isFunctionCall(String line) {
+        return line.matches(FUNCTION_CALL);
+    }
+
+    @Override
+    public boolean isCondition(String line) {
+        return line.matches(CONDITION);
+    }
+
+    @Override
+    public boolean isClosingBrace(String line) {
+        return line.matches(CLOSING_BRACE);
+    }
+
+    @Override
+    public boolean isVariableName(String name) {
+        return VARIABLE_NAME_PATTERN.matcher(name).matches();
+    }
+
+    @Override
+    public boolean isIntLiteral(String value) {
+        return value.matches(INT_LITERAL);
+    }
+
+    @Override
+    public boolean isDoubleLiteral(String value) {
+        return value.matches(DOUBLE_LITERAL);
+    }
+
+    @Override
+    public boolean isBooleanLiteral(String value) {
+        return value.matches(BOOLEAN_LITERAL);
+    }
+
+    @Override
+    public boolean isCharLiteral(String value) {
+        return value.matches(CHAR_LITERAL);
+    }
+
+    @Override
+    public boolean isStringLiteral(String value) {
+        return value.matches(STRING_LITERAL);
+    }
+}
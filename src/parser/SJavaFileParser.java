@@ -1,8 +1,13 @@
 package parser;
 
+import errors.ValidationBudget;
+
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,10 +15,16 @@ import java.util.List;
 
 public class SJavaFileParser {
     //Constants
-    private static final String END_LINE = "^(?!\\s*\\n)(?!.*\\n.*[{};]).*[{};]\\s*$";
-    private static final String INVALID_COMMENT =
-            "//(?!\\s*$).*[^\\w\\s].*|/\\*[^*]*\\*+(?:[^/*][^*]*\\*+)*\\/|\\/\\*\\*.*\\*+\\/";
-    public static int INVALID_LINES =0;
+    /** Invalid lines found by the last read of the current thread. */
+    private static final ThreadLocal<int[]> INVALID_LINES = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Returns the number of invalid lines found by the last read on the current thread
+     * @return number of invalid lines
+     */
+    public static int getInvalidLines() {
+        return INVALID_LINES.get()[0];
+    }
 
     /**
      *
@@ -22,33 +33,82 @@ public class SJavaFileParser {
      * @throws IOException
      */
     public static List<String> readFileToList(String filePath) throws IOException {
-        List<String> lines = new ArrayList<>();
+        return readFileToList(filePath, LineMatchers.SYNTAX);
+    }
+
+    /**
+     * Reads the relevant lines of a file, checking them with the given syntax
+     * @param filePath
+     * @param syntax the line syntax to check the lines with
+     * @return List of lines in the file that is relevant lines
+     * @throws IOException
+     */
+    public static List<String> readFileToList(String filePath, LineSyntax syntax) throws IOException {
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-               if(relevantLine(line))
-               {lines.add(deleteEscape(line));}
-            }
+            return readToList(reader, syntax);
+        }
+    }
+
+    /**
+     * Decodes file content that was already read into memory
+     * @param content the raw bytes of the file, in the platform charset
+     * @return List of lines in the content that is relevant lines
+     * @throws IOException
+     */
+    public static List<String> readBytesToList(byte[] content) throws IOException {
+        return readBytesToList(content, LineMatchers.SYNTAX);
+    }
+
+    /**
+     * Decodes file content that was already read into memory, checking the lines with the given syntax
+     * @param content the raw bytes of the file, in the platform charset
+     * @param syntax the line syntax to check the lines with
+     * @return List of lines in the content that is relevant lines
+     * @throws IOException
+     */
+    public static List<String> readBytesToList(byte[] content, LineSyntax syntax) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()))) {
+            return readToList(reader, syntax);
         }
+    }
 
+    /**
+     * Reads the relevant lines from a reader
+     * @param reader
+     * @param syntax the line syntax to check the lines with
+     * @return List of lines that is relevant lines
+     * @throws IOException
+     */
+    private static List<String> readToList(BufferedReader reader, LineSyntax syntax) throws IOException {
+        List<String> lines = new ArrayList<>();
+        int[] invalidLines = INVALID_LINES.get();
+        invalidLines[0] = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+           ValidationBudget.checkpoint();
+           if(relevantLine(line, syntax, invalidLines))
+           {lines.add(deleteEscape(line));}
+        }
         return lines;
     }
 
     /**
      * Check if the line is relevant
      * @param line
+     * @param syntax the line syntax to check the line with
+     * @param invalidLines counter of invalid lines, incremented for an invalid line
      * @return true if the line is relevant
      */
-    private static boolean relevantLine(String line) {
+    private static boolean relevantLine(String line, LineSyntax syntax, int[] invalidLines) {
         if (line.isEmpty()) return false;
         if (line.startsWith("//")) return false;
-        if (line.matches(INVALID_COMMENT)) {
-            System.out.println("1");
-            INVALID_LINES++;
+        if (syntax.isInvalidComment(line)) {
+            invalidLines[0]++;
             return false;
         }
-        if (!line.matches(END_LINE)) {
-            INVALID_LINES++;
+        if (!syntax.isEndLine(line)) {
+            invalidLines[0]++;
             return false;
         }
 
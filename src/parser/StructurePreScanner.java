@@ -0,0 +1,202 @@
+package parser;
+
+import errors.ValidationException;
+
+/**
+ * A single-pass structural pre-scan over the raw bytes of a source file.
+ *
+ * <p>The scanner finds line terminators, tracks block balance and flags comment markers without
+ * decoding the file into strings or running any regular expression. It only rejects files that the
+ * full pipeline is certain to reject as well:
+ * <ul>
+ *   <li>A closing-brace line with no open block, or blocks left open at the end of the file.
+ *   Like {@link VariablesAndMethodsParser}, a block opens on a line ending with {@code {} and
+ *   closes on a line holding only {@code }}.</li>
+ *   <li>A block-opening line whose parentheses do not balance.</li>
+ *   <li>A non-empty line whose last non-whitespace character is not {@code ;}, {@code {} or {@code }},
+ *   such as a statement missing its semicolon.</li>
+ *   <li>A line starting with a block comment marker ({@code /*}), which s-Java does not support.</li>
+ * </ul>
+ * Empty lines and lines starting with {@code //} are skipped, as in {@link SJavaFileParser}.</p>
+ *
+ * <p>Bytes are classified through a 256-entry table, so a byte with no structural meaning costs
+ * one array read and one branch. All markers are ASCII, so UTF-8 input needs no decoding.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ * StructurePreScanner scanner = new StructurePreScanner();
+ * scanner.scan(Files.readAllBytes(path));
+ * int lines = scanner.getLineCount();
+ * </pre>
+ */
+public class StructurePreScanner {
+    // Byte classes
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte LINE_FEED = 2;
+    private static final byte CARRIAGE_RETURN = 3;
+    private static final byte OPEN_PAREN = 4;
+    private static final byte CLOSE_PAREN = 5;
+    private static final byte QUOTE = 6;
+
+    private static final byte[] BYTE_CLASS = new byte[256];
+
+    static {
+        BYTE_CLASS[' '] = WHITESPACE;
+        BYTE_CLASS['\t'] = WHITESPACE;
+        BYTE_CLASS[0x0B] = WHITESPACE;
+        BYTE_CLASS['\f'] = WHITESPACE;
+        BYTE_CLASS['\n'] = LINE_FEED;
+        BYTE_CLASS['\r'] = CARRIAGE_RETURN;
+        BYTE_CLASS['('] = OPEN_PAREN;
+        BYTE_CLASS[')'] = CLOSE_PAREN;
+        BYTE_CLASS['"'] = QUOTE;
+        BYTE_CLASS['\''] = QUOTE;
+    }
+
+    private int lineCount;
+    private int maxBlockDepth;
+    private int commentLines;
+
+    /**
+     * Scans the raw bytes of a source file.
+     *
+     * @param source the file content
+     * @return this scanner, holding the statistics of the scanned file
+     * @throws ValidationException if the file is structurally broken
+     */
+    public StructurePreScanner scan(byte[] source) throws ValidationException {
+        lineCount = 0;
+        maxBlockDepth = 0;
+        commentLines = 0;
+
+        int blockDepth = 0;
+        int length = source.length;
+        int lineStart = 0;
+        while (lineStart < length) {
+            // Single pass over the line: find its terminator, its first and last
+            // non-whitespace bytes, and the parenthesis balance outside literals.
+            int first = -1;
+            int last = -1;
+            int parenDepth = 0;
+            boolean parenUnderflow = false;
+            byte quote = 0;
+            int i = lineStart;
+            byte byteClass = OTHER;
+            while (i < length) {
+                byte b = source[i];
+                byteClass = BYTE_CLASS[b & 0xFF];
+                if (byteClass == LINE_FEED || byteClass == CARRIAGE_RETURN) {
+                    break;
+                }
+                if (byteClass != WHITESPACE) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                    if (quote != 0) {
+                        if (b == quote) {
+                            quote = 0;
+                        }
+                    } else if (byteClass == QUOTE) {
+                        quote = b;
+                    } else if (byteClass == OPEN_PAREN) {
+                        parenDepth++;
+                    } else if (byteClass == CLOSE_PAREN && --parenDepth < 0) {
+                        parenUnderflow = true;
+                    }
+                }
+                i++;
+            }
+            lineCount++;
+
+            boolean commentLine = i - lineStart >= 2 && source[lineStart] == '/' && source[lineStart + 1] == '/';
+            if (commentLine) {
+                commentLines++;
+            } else if (i > lineStart) {
+                if (first < 0 || !isLineEnd(source[last])) {
+                    if (!endsWithUnicodeTerminator(source, lineStart, i)) {
+                        throw new ValidationException("Line " + lineCount + " does not end with ';', '{' or '}'");
+                    }
+                    // Left to the line-level filter, which treats these as line terminators
+                } else if (source[first] == '/' && first + 1 <= last && source[first + 1] == '*') {
+                    throw new ValidationException("Block comments are not supported (line " + lineCount + ")");
+                } else if (source[last] == '{') {
+                    if (parenUnderflow || parenDepth != 0) {
+                        throw new ValidationException("Unbalanced parentheses in line " + lineCount);
+                    }
+                    blockDepth++;
+                    maxBlockDepth = Math.max(maxBlockDepth, blockDepth);
+                } else if (first == last && source[first] == '}') {
+                    if (--blockDepth < 0) {
+                        throw new ValidationException("Unexpected closing block in line " + lineCount);
+                    }
+                }
+            }
+
+            // Step over the terminator: \n, \r or \r\n, as BufferedReader.readLine does
+            if (byteClass == CARRIAGE_RETURN && i + 1 < length && source[i + 1] == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+        }
+        if (blockDepth != 0) {
+            throw new ValidationException("Unclosed block detected.");
+        }
+        return this;
+    }
+
+    /**
+     * Checks whether a byte can end a relevant s-Java line.
+     *
+     * @param b the last non-whitespace byte of a line
+     * @return {@code true} for {@code ;}, {@code {} and {@code }}
+     */
+    private static boolean isLineEnd(byte b) {
+        return b == ';' || b == '{' || b == '}';
+    }
+
+    /**
+     * Checks whether a line ends with a UTF-8 encoded NEL, LINE SEPARATOR or PARAGRAPH SEPARATOR,
+     * which {@link java.util.regex.Pattern} accepts before {@code $} but this scanner does not decode.
+     *
+     * @param source the file content
+     * @param start  the start of the line (inclusive)
+     * @param end    the end of the line (exclusive)
+     * @return {@code true} if the line ends with one of those characters
+     */
+    private static boolean endsWithUnicodeTerminator(byte[] source, int start, int end) {
+        if (end - start >= 2 && source[end - 2] == (byte) 0xC2 && source[end - 1] == (byte) 0x85) {
+            return true;
+        }
+        return end - start >= 3 && source[end - 3] == (byte) 0xE2 && source[end - 2] == (byte) 0x80
+                && (source[end - 1] == (byte) 0xA8 || source[end - 1] == (byte) 0xA9);
+    }
+
+    /**
+     * Returns the number of lines in the last scanned file.
+     *
+     * @return the line count
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the deepest block nesting seen in the last scanned file.
+     *
+     * @return the maximal block depth
+     */
+    public int getMaxBlockDepth() {
+        return maxBlockDepth;
+    }
+
+    /**
+     * Returns the number of {@code //} comment lines in the last scanned file.
+     *
+     * @return the comment line count
+     */
+    public int getCommentLines() {
+        return commentLines;
+    }
+}
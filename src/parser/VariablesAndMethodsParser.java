@@ -1,34 +1,62 @@
 package parser;
 
 import Methods.MethodData;
+import Methods.MethodSignatureTable;
 import VariablesManegment.Variable;
 import VariablesManegment.VariableValidator;
+import errors.ValidationBudget;
 import errors.ValidationException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A class responsible for parsing global variables and methods from a list of lines.
  */
 public class VariablesAndMethodsParser {
-    // Regular expressions for global variables, method definitions, and blocks
-    private static final String METHOD_DEFINITION =
-            "^void\\s+([a-zA-Z][a-zA-Z0-9_]*)\\s*\\((.*?)\\)\\s*\\{\\s*$";//TODO: check
-        private static final String CONDITION_OR_LOOP =
-                "^\\s*(if|while)\\s*\\(.*\\)\\s*\\{\\s*$"; //TODO: check if posiible to be "{" in a new line
-    private static final String END_BLOCK = "\\s*\\}\\s*$";
-    private static final String PARAMETER_PATTERN =
-            "^(final\\s+)?(int|double|String|boolean|char)\\s+([a-zA-Z_][a-zA-Z0-9_]*)$";
+    /**
+     * Default line count from which {@link #parseLinesParallel(List, ExecutorService)} is worth its
+     * overhead; {@link ParallelParsePolicy} can calibrate it for the machine instead.
+     */
+    public static final int PARALLEL_THRESHOLD = 50_000;
+    /** Number of chunks per worker thread, so uneven chunks still balance out. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Structural kinds of a line, as used by the parallel parse
+    private static final byte OTHER_LINE = 0;
+    private static final byte METHOD_LINE = 1;
+    private static final byte CONDITION_LINE = 2;
+    private static final byte END_BLOCK_LINE = 3;
+
+    /** The line syntax the lines are checked with. */
+    private final LineSyntax syntax;
 
     // Data structures for parsed results
     private final List<String> globalVariables = new ArrayList<>();
     private final Map<String, MethodData> methods = new HashMap<>();
+    private MethodSignatureTable signatureTable;
+
+    /**
+     * Constructs a parser checking lines with the default, linear-time syntax.
+     */
+    public VariablesAndMethodsParser() {
+        this(LineMatchers.SYNTAX);
+    }
 
+    /**
+     * Constructs a parser checking lines with the given syntax.
+     *
+     * @param syntax the line syntax to check the lines with
+     */
+    public VariablesAndMethodsParser(LineSyntax syntax) {
+        this.syntax = syntax;
+    }
 
     /**
      * Parses a list of lines to extract global variables and methods.
@@ -43,7 +71,8 @@ public class VariablesAndMethodsParser {
         List<String> currentMethodLines = new ArrayList<>();
         String methodDefinitionLine = null;
         for (String line : lines) {
-            if (line.matches(METHOD_DEFINITION)) {
+            ValidationBudget.checkpoint();
+            if (syntax.matchMethodDefinition(line) != null) {
                 if (inMethod) {
                     throw new IllegalStateException("Nested method definitions are not allowed: " + line);
                 }
@@ -53,13 +82,13 @@ public class VariablesAndMethodsParser {
                 currentMethodLines = new ArrayList<>();
                 methodDefinitionLine = line;
                 //currentMethodLines.add(line);//TODO: could create problems
-            } else if (line.matches(CONDITION_OR_LOOP)) {
+            } else if (syntax.isConditionOrLoop(line)) {
                 if (!inMethod) {
                     throw new IllegalStateException("Condition or loop outside of a method is not allowed: " + line);
                 }
                 blockDepth++;
                 currentMethodLines.add(line);
-            } else if (line.matches(END_BLOCK)) {
+            } else if (syntax.isEndBlock(line)) {
                 if (blockDepth > 0) {
                     blockDepth--;
                     currentMethodLines.add(line);
@@ -83,18 +112,282 @@ public class VariablesAndMethodsParser {
         if (blockDepth != 0) {
             throw new IllegalStateException("Unclosed block detected.");
         }
+        signatureTable = MethodSignatureTable.of(methods);
+
+    }
+
+    /**
+     * Parses a list of lines like {@link #parseLines(List)}, splitting the work across an executor.
+     *
+     * <p>The lines are cut into chunks. In parallel, every chunk classifies its lines and computes
+     * its block-depth delta and the minimal depth reached relative to its start. A prefix sum over
+     * the chunk deltas gives each chunk its starting depth, after which every chunk finds its
+     * method boundaries and global lines in parallel. Method headers are then parsed concurrently
+     * and merged in source order.</p>
+     *
+     * <p>If the structure is broken in any way, the lines are re-parsed sequentially so the
+     * reported error is exactly the one {@link #parseLines(List)} reports.</p>
+     *
+     * <p>The chunk tasks run under the budget bound to the calling thread, so a timeout or a
+     * cancellation stops them as it stops the sequential parse.</p>
+     *
+     * @param lines    A list of strings, each representing a line of code in the program.
+     * @param executor the executor running the chunk tasks
+     * @throws ValidationException if an error occurs during the parsing of the input lines.
+     */
+    public void parseLinesParallel(List<String> lines, ExecutorService executor) throws ValidationException {
+        int size = lines.size();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int chunkCount = Math.max(1, Math.min(size, threads * CHUNKS_PER_THREAD));
+        int chunkSize = (size + chunkCount - 1) / Math.max(1, chunkCount);
+        byte[] kinds = new byte[size];
+
+        // 1) Classify every chunk and summarize its depth delta and minimum
+        List<Callable<int[]>> summaries = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+            summaries.add(() -> summarizeChunk(lines, kinds, from, to));
+        }
+        List<int[]> chunkSummaries = invokeAll(executor, summaries);
+
+        // 2) Prefix sum of the deltas gives every chunk its starting depth
+        int[] startDepths = new int[chunkSummaries.size()];
+        int depth = 0;
+        for (int c = 0; c < chunkSummaries.size(); c++) {
+            startDepths[c] = depth;
+            if (depth + chunkSummaries.get(c)[1] < 0) {
+                parseLines(lines); // an unexpected closing block: report it exactly
+                return;
+            }
+            depth += chunkSummaries.get(c)[0];
+        }
+        if (depth != 0) {
+            parseLines(lines); // an unclosed block: report it exactly
+            return;
+        }
+
+        // 3) Find method boundaries and global lines in every chunk
+        List<Callable<ChunkStructure>> structures = new ArrayList<>();
+        for (int c = 0; c < startDepths.length; c++) {
+            int from = c * chunkSize;
+            int to = Math.min(size, from + chunkSize);
+            int startDepth = startDepths[c];
+            structures.add(() -> findStructure(lines, kinds, from, to, startDepth));
+        }
+        List<ChunkStructure> chunkStructures = invokeAll(executor, structures);
+        for (ChunkStructure structure : chunkStructures) {
+            if (structure.broken) {
+                parseLines(lines); // a nested method or a condition outside a method
+                return;
+            }
+        }
+        List<int[]> boundaries = new ArrayList<>();
+        int openMethod = -1;
+        for (ChunkStructure structure : chunkStructures) {
+            globalVariables.addAll(structure.globals);
+            for (int b = 0; b < structure.boundaries.size(); b++) {
+                int index = structure.boundaries.get(b);
+                if (kinds[index] == METHOD_LINE) {
+                    openMethod = index;
+                } else {
+                    boundaries.add(new int[]{openMethod, index});
+                }
+            }
+        }
+
+        // 4) Parse method headers concurrently, then merge them in source order
+        List<Callable<Object>> headers = new ArrayList<>();
+        for (int[] boundary : boundaries) {
+            headers.add(() -> parseHeader(lines.get(boundary[0])));
+        }
+        List<Object> parsedHeaders = invokeAll(executor, headers);
+        for (int m = 0; m < boundaries.size(); m++) {
+            int[] boundary = boundaries.get(m);
+            String methodName = extractMethodName(lines.get(boundary[0]));
+            if (methods.containsKey(methodName)) {
+                throw new IllegalStateException("Duplicates methods are not allowed");
+            }
+            Object header = parsedHeaders.get(m);
+            if (header instanceof RuntimeException) {
+                throw (RuntimeException) header;
+            }
+            if (header instanceof ValidationException) {
+                throw (ValidationException) header;
+            }
+            @SuppressWarnings("unchecked")
+            List<Variable> methodParameters = (List<Variable>) header;
+            List<String> body = new ArrayList<>(lines.subList(boundary[0] + 1, boundary[1] + 1));
+            methods.put(methodName, new MethodData(methodName, methodParameters, body));
+        }
+        signatureTable = MethodSignatureTable.of(methods);
+    }
+
+    /**
+     * Classifies the lines of one chunk and computes its block-depth summary.
+     *
+     * @param lines the program lines
+     * @param kinds the array receiving the structural kind of every line
+     * @param from  the first line of the chunk (inclusive)
+     * @param to    the last line of the chunk (exclusive)
+     * @return the depth delta of the chunk and the minimal depth relative to its start
+     */
+    private int[] summarizeChunk(List<String> lines, byte[] kinds, int from, int to) {
+        int delta = 0;
+        int min = 0;
+        for (int i = from; i < to; i++) {
+            ValidationBudget.checkpoint();
+            byte kind = classifyLine(lines.get(i));
+            kinds[i] = kind;
+            if (kind == METHOD_LINE || kind == CONDITION_LINE) {
+                delta++;
+            } else if (kind == END_BLOCK_LINE) {
+                delta--;
+                min = Math.min(min, delta);
+            }
+        }
+        return new int[]{delta, min};
+    }
+
+    /**
+     * Walks one chunk from its known starting depth and records method boundaries and global lines.
+     *
+     * @param lines      the program lines
+     * @param kinds      the structural kind of every line
+     * @param from       the first line of the chunk (inclusive)
+     * @param to         the last line of the chunk (exclusive)
+     * @param startDepth the block depth before the first line of the chunk
+     * @return the structure found in the chunk
+     */
+    private static ChunkStructure findStructure(List<String> lines, byte[] kinds, int from, int to,
+                                                int startDepth) {
+        ChunkStructure structure = new ChunkStructure();
+        int depth = startDepth;
+        for (int i = from; i < to && !structure.broken; i++) {
+            ValidationBudget.checkpoint();
+            switch (kinds[i]) {
+                case METHOD_LINE:
+                    if (depth != 0) {
+                        structure.broken = true;
+                    }
+                    structure.boundaries.add(i);
+                    depth = 1;
+                    break;
+                case CONDITION_LINE:
+                    if (depth == 0) {
+                        structure.broken = true;
+                    }
+                    depth++;
+                    break;
+                case END_BLOCK_LINE:
+                    depth--;
+                    if (depth == 0) {
+                        structure.boundaries.add(i);
+                    }
+                    break;
+                default:
+                    if (depth == 0 && !lines.get(i).isBlank()) {
+                        structure.globals.add(lines.get(i));
+                    }
+            }
+        }
+        return structure;
+    }
 
+    /**
+     * Returns the structural kind of a line.
+     *
+     * @param line the line to classify
+     * @return one of the line kind constants
+     */
+    private byte classifyLine(String line) {
+        if (syntax.matchMethodDefinition(line) != null) {
+            return METHOD_LINE;
+        } else if (syntax.isConditionOrLoop(line)) {
+            return CONDITION_LINE;
+        } else if (syntax.isEndBlock(line)) {
+            return END_BLOCK_LINE;
+        }
+        return OTHER_LINE;
+    }
+
+    /**
+     * Parses the parameters of a method header, returning a failure instead of throwing it
+     * so the caller can report failures in source order.
+     *
+     * @param line the method definition line
+     * @return the parameter list, or the exception thrown while parsing it
+     */
+    private Object parseHeader(String line) {
+        try {
+            String[] definition = syntax.matchMethodDefinition(line);
+            if (definition == null) {
+                throw new IllegalStateException("Invalid method declaration: " + line);
+            }
+            return parseParameters(definition[1]);
+        } catch (RuntimeException | ValidationException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Runs tasks on the executor and collects their results in order. The tasks run under the
+     * budget bound to the calling thread (see {@link ValidationBudget#carry(Callable)}), which is
+     * checked again once they are done.
+     *
+     * @param executor the executor
+     * @param tasks    the tasks to run
+     * @param <T>      the result type
+     * @return the results, in the order of the tasks
+     * @throws ValidationException if a task failed with a validation error
+     */
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+            throws ValidationException {
+        try {
+            List<Callable<T>> budgeted = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                budgeted.add(ValidationBudget.carry(task));
+            }
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(budgeted)) {
+                results.add(future.get());
+            }
+            ValidationBudget.checkpoint();
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The method boundaries and global lines found in one chunk.
+     */
+    private static final class ChunkStructure {
+        /** Indexes of method definition lines and of the lines closing them, in order. */
+        private final List<Integer> boundaries = new ArrayList<>();
+        /** Global lines of the chunk, in order. */
+        private final List<String> globals = new ArrayList<>();
+        /** Set when the chunk holds a nested method or a condition outside a method. */
+        private boolean broken;
     }
 
     // Extract method name from a method definition line
     private String extractMethodName(String line)  {
-        String[] parts = line.split("\\s+|\\(");
-        for (int i = 0; i < parts.length; i++) {
-            if ("void".equals(parts[i])) {
-                return parts[i + 1];
-            }
+        String[] definition = syntax.matchMethodDefinition(line);
+        if (definition == null) {
+            throw new IllegalStateException("Method with no name"); //TODO: throw exception
         }
-        throw new IllegalStateException("Method with no name"); //TODO: throw exception
+        return definition[0];
     }
 
     /**
@@ -114,6 +407,15 @@ public class VariablesAndMethodsParser {
         return methods;
     }
 
+    /**
+     * Returns the signature table built from the parsed methods.
+     *
+     * @return the immutable {@link MethodSignatureTable}, or {@code null} before {@link #parseLines(List)}
+     */
+    public MethodSignatureTable getSignatureTable() {
+        return signatureTable;
+    }
+
     /**
      * Validates and stores a method definition line.
      *
@@ -122,12 +424,11 @@ public class VariablesAndMethodsParser {
      * @throws ValidationException if the method definition is invalid.
      */
     public List<Variable> validateAndStoreMethod(String line) throws ValidationException {
-        Pattern pattern = Pattern.compile(METHOD_DEFINITION);
-        Matcher matcher = pattern.matcher(line);
+        String[] definition = syntax.matchMethodDefinition(line);
 
-        if (matcher.find()) {
-            String methodName = matcher.group(1);
-            String parameters = matcher.group(2);
+        if (definition != null) {
+            String methodName = definition[0];
+            String parameters = definition[1];
 
             // Validate method name
             //todo: check if number are valid in method name, amf if this checking is necessary at all
@@ -139,28 +440,7 @@ public class VariablesAndMethodsParser {
                 throw new IllegalStateException("Duplicates methods are not allowed");
             }
             // Validate and parse parameters
-            List<Variable> parameterList = new ArrayList<>();
-            if (!parameters.isBlank()) {
-                String[] paramArray = parameters.split(",");
-                for (String param : paramArray) {
-                    Matcher parameterMatcher = Pattern.compile(PARAMETER_PATTERN).matcher(param.trim());
-                    if (!parameterMatcher.find()) {
-                        //It's failed also at the case "(Parm parm,)"
-                        throw new IllegalStateException("Invalid parameter: " + param);
-                    }
-                    String finalKeyword = parameterMatcher.group(1);
-                    String type = parameterMatcher.group(2);
-                    String varName = parameterMatcher.group(3);
-
-                    Variable parameter = new Variable(
-                            varName,
-                            type,
-                            finalKeyword != null ? true : false,
-                            false,
-                           null);
-                    parameterList.add(parameter);
-                }
-            }
+            List<Variable> parameterList = parseParameters(parameters);
 
             // Store method and its parameters
             return parameterList;
@@ -168,4 +448,37 @@ public class VariablesAndMethodsParser {
             throw new IllegalStateException("Invalid method declaration: " + line);
         }
     }
+
+    /**
+     * Validates and parses the parameter list of a method definition.
+     *
+     * @param parameters the text between the parentheses of the method definition
+     * @return A list of {@link Variable} objects representing the method parameters.
+     * @throws ValidationException if a parameter type is unknown.
+     */
+    private List<Variable> parseParameters(String parameters) throws ValidationException {
+        List<Variable> parameterList = new ArrayList<>();
+        if (!parameters.isBlank()) {
+            String[] paramArray = parameters.split(",");
+            for (String param : paramArray) {
+                String[] parameterMatch = syntax.matchParameter(param.trim());
+                if (parameterMatch == null) {
+                    //It's failed also at the case "(Parm parm,)"
+                    throw new IllegalStateException("Invalid parameter: " + param);
+                }
+                String finalKeyword = parameterMatch[0];
+                String type = parameterMatch[1];
+                String varName = parameterMatch[2];
+
+                Variable parameter = new Variable(
+                        varName,
+                        type,
+                        finalKeyword != null ? true : false,
+                        false,
+                       null);
+                parameterList.add(parameter);
+            }
+        }
+        return parameterList;
+    }
 }